@@ -0,0 +1,25 @@
+package com.colossalg.benchmarks;
+
+import com.colossalg.dataTypes.JocksValue;
+import com.colossalg.expression.Expression;
+import com.colossalg.statement.Statement;
+import com.colossalg.visitors.Interpreter;
+
+// The Interpreter, but dispatching on each node through accept (as every visitor once did) rather
+// than on the node's type, so that the two may be compared (see the 'interpreter-accept' engine).
+public class AcceptDispatchingInterpreter extends Interpreter {
+
+    public AcceptDispatchingInterpreter(int maxCallDepth, int jitThreshold) {
+        super(maxCallDepth, jitThreshold);
+    }
+
+    @Override
+    public Void visit(Statement statement) {
+        return statement.accept(this);
+    }
+
+    @Override
+    public JocksValue visit(Expression expression) {
+        return expression.accept(this);
+    }
+}
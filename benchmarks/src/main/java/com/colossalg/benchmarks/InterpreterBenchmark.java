@@ -0,0 +1,70 @@
+package com.colossalg.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Measures the time taken to run each workload (found in resources/workloads) to completion.
+//
+// The workloads are:
+//  - fib                  - Recursive calls, with little work done per call.
+//  - numeric_loop         - Arithmetic and comparisons on local variables within loops.
+//  - string_concatenation - Concatenation of short strings, and conversions of numbers to strings.
+//  - method_dispatch      - Method calls within a small class hierarchy, including through 'super'.
+//  - property_access      - Creation of small objects, and reads and writes of their properties.
+//  - operator_overloading - Arithmetic and comparisons on instances of a class overloading operators.
+//  - closure_creation     - Creation and invocation of closures capturing enclosing variables.
+//  - counting_loop        - Loops doing no work other than counting, for which the conditions
+//                           should allocate nothing (see the GC profiler's gc.alloc.rate.norm).
+//
+// Only running the program is measured, the front end is run before each invocation.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InterpreterBenchmark {
+
+    @Param({
+            "fib",
+            "numeric_loop",
+            "string_concatenation",
+            "method_dispatch",
+            "property_access",
+            "operator_overloading",
+            "closure_creation",
+            "counting_loop"
+    })
+    public String workload;
+
+    // The 'interpreter-accept' engine is the interpreter dispatching on each node through accept,
+    // rather than on its type, as a baseline for the 'interpreter' engine.
+    @Param({"interpreter", "interpreter-accept", "jit", "compiled", "vm"})
+    public String engine;
+
+    @Setup(Level.Trial)
+    public void readWorkload() {
+        _source = JocksProgram.readWorkload(workload);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareProgram() {
+        _program = JocksProgram.prepare(workload, _source);
+    }
+
+    @Benchmark
+    public void run() {
+        switch (engine) {
+            case "interpreter" -> _program.interpret();
+            case "interpreter-accept" -> _program.interpretWithAccept();
+            case "jit" -> _program.interpretWithJit();
+            case "compiled" -> _program.compileAndRun();
+            case "vm" -> _program.execute();
+            default -> throw new IllegalArgumentException("Unknown engine '" + engine + "'.");
+        }
+    }
+
+    private String _source;
+    private JocksProgram _program;
+}
@@ -0,0 +1,107 @@
+package com.colossalg.benchmarks;
+
+import com.colossalg.ErrorReporter;
+import com.colossalg.Parser;
+import com.colossalg.Scanner;
+import com.colossalg.compiler.ClosureCompiler;
+import com.colossalg.statement.Statement;
+import com.colossalg.vm.BytecodeCompiler;
+import com.colossalg.vm.VirtualMachine;
+import com.colossalg.visitors.CallStack;
+import com.colossalg.visitors.Interpreter;
+import com.colossalg.visitors.Optimizer;
+import com.colossalg.visitors.Resolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// A workload, run through the same front end as Jocks.main but entirely in process.
+//
+// The Resolver annotates the AST it is given and the interpreters cache lookups within it,
+// so each run should be given a freshly prepared program (see prepare).
+public class JocksProgram {
+
+    public static String readWorkload(String name) {
+        final var resource = "/workloads/" + name + ".jocks";
+        try (InputStream stream = JocksProgram.class.getResourceAsStream(resource)) {
+            if (stream == null) {
+                throw new IllegalArgumentException("No such workload '" + name + "'.");
+            }
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Couldn't read workload '" + name + "'.", ex);
+        }
+    }
+
+    public static JocksProgram prepare(String name, String source) {
+        final var errorReporter = new ErrorReporter();
+        final var tokens = new Scanner(errorReporter, source, name).scanTokens();
+        checkErrors(errorReporter);
+        final var statements = new Parser(errorReporter, tokens).parse();
+        checkErrors(errorReporter);
+        new Resolver(errorReporter).visitAll(statements);
+        checkErrors(errorReporter);
+        final var optimizedStatements = new Optimizer().visitAll(statements);
+        new Resolver(errorReporter).visitAll(optimizedStatements);
+        checkErrors(errorReporter);
+        return new JocksProgram(name, errorReporter, optimizedStatements);
+    }
+
+    // Interprets the program without compiling any of its functions.
+    public void interpret() {
+        interpret(new Interpreter(CallStack.DEFAULT_MAX_SIZE, 0));
+    }
+
+    // As interpret, but dispatching on each node through accept (see AcceptDispatchingInterpreter).
+    public void interpretWithAccept() {
+        interpret(new AcceptDispatchingInterpreter(CallStack.DEFAULT_MAX_SIZE, 0));
+    }
+
+    public void interpretWithJit() {
+        interpret(new Interpreter());
+    }
+
+    public void compileAndRun() {
+        final var compiler = new ClosureCompiler();
+        compiler.interpret(_statements);
+        if (compiler.getIsThrowing()) {
+            throw new IllegalStateException("Workload '" + _name + "' terminated with an uncaught thrown value.");
+        }
+    }
+
+    public void execute() {
+        final var virtualMachine = new VirtualMachine();
+        final var compiler = new BytecodeCompiler(_errorReporter, _name, virtualMachine.getGlobalIdentifiers());
+        final var script = compiler.compile(_statements);
+        checkErrors(_errorReporter);
+        virtualMachine.interpret(script, compiler.getGlobalCount());
+        if (virtualMachine.getIsThrowing()) {
+            throw new IllegalStateException("Workload '" + _name + "' terminated with an uncaught thrown value.");
+        }
+    }
+
+    private void interpret(Interpreter interpreter) {
+        interpreter.interpret(_statements);
+        if (interpreter.getIsThrowing()) {
+            throw new IllegalStateException("Workload '" + _name + "' terminated with an uncaught thrown value.");
+        }
+    }
+
+    private JocksProgram(String name, ErrorReporter errorReporter, List<Statement> statements) {
+        _name = name;
+        _errorReporter = errorReporter;
+        _statements = statements;
+    }
+
+    private static void checkErrors(ErrorReporter errorReporter) {
+        if (!errorReporter.getErrors().isEmpty()) {
+            throw new IllegalStateException(errorReporter.getErrors().getFirst().getMessage());
+        }
+    }
+
+    private final String _name;
+    private final ErrorReporter _errorReporter;
+    private final List<Statement> _statements;
+}
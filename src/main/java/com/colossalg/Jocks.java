@@ -1,17 +1,29 @@
 package com.colossalg;
 
+import com.colossalg.aot.AotCompiler;
+import com.colossalg.aot.AstCache;
+import com.colossalg.compiler.ClosureCompiler;
+import com.colossalg.jit.JitProfile;
 import com.colossalg.statement.Statement;
+import com.colossalg.vm.BytecodeCompiler;
+import com.colossalg.vm.VirtualMachine;
+import com.colossalg.visitors.CallStack;
 import com.colossalg.visitors.Interpreter;
+import com.colossalg.visitors.Optimizer;
 import com.colossalg.visitors.PrettyPrinter;
 import com.colossalg.visitors.Resolver;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 
 public class Jocks {
 
+    // The profile of a program (see --profile) is kept alongside its source.
+    public static final String PROFILE_FILE_SUFFIX = ".profile";
+
     public static void main(String[] args) {
         if (args.length == 0) {
             usage();
@@ -19,6 +31,40 @@ public class Jocks {
         }
 
         final var file = args[0];
+        String mode = null;
+        String jarFile = null;
+        var maxCallDepth = CallStack.DEFAULT_MAX_SIZE;
+        var stackSizeMegabytes = ProgramRunner.DEFAULT_STACK_SIZE_MEGABYTES;
+        var jitThreshold = Interpreter.DEFAULT_JIT_THRESHOLD;
+        var isProfiled = false;
+        var isCached = false;
+        for (int i = 1; i < args.length; i++) {
+            final var arg = args[i];
+            if ((arg.equals("--print") || arg.equals("--vm") || arg.equals("--compiled")) && mode == null) {
+                mode = arg;
+            } else if (arg.startsWith("--jar=") && mode == null) {
+                mode = "--jar";
+                jarFile = arg.substring("--jar=".length());
+            } else if (arg.startsWith("--max-call-depth=")) {
+                maxCallDepth = parseInt(arg.substring("--max-call-depth=".length()));
+            } else if (arg.startsWith("--stack-size=")) {
+                stackSizeMegabytes = parseInt(arg.substring("--stack-size=".length()));
+            } else if (arg.equals("--cache")) {
+                isCached = true;
+            } else if (arg.equals("--profile")) {
+                isProfiled = true;
+            } else if (arg.startsWith("--jit-threshold=")) {
+                jitThreshold = parseInt(arg.substring("--jit-threshold=".length()));
+            } else {
+                usage();
+                return;
+            }
+        }
+        if (maxCallDepth <= 0 || stackSizeMegabytes <= 0 || jitThreshold < 0 || "".equals(jarFile) || (isProfiled && mode != null)) {
+            usage();
+            return;
+        }
+
         String fileContents;
         try {
             fileContents = readFileContents(file);
@@ -30,13 +76,97 @@ public class Jocks {
 
         final var errorReporter = new ErrorReporter();
 
+        // The statements are printed as parsed (not optimized), so they don't go through the cache.
+        if ("--print".equals(mode)) {
+            final var statements = scanParseAndResolve(errorReporter, fileContents, file);
+            if (statements != null) {
+                print(statements);
+            }
+            return;
+        }
+
+        final var astCache = isCached ? new AstCache(file, fileContents) : null;
+        final var optimizedStatements = scanParseResolveAndOptimize(errorReporter, fileContents, file, astCache);
+        if (optimizedStatements == null) {
+            return;
+        }
+
+        if ("--jar".equals(mode)) {
+            final var compiler = new AotCompiler(maxCallDepth, stackSizeMegabytes, jitThreshold);
+            final var jitProfile = readJitProfile(optimizedStatements, fileContents, file);
+            try {
+                compiler.compile(optimizedStatements, jitProfile.isEmpty() ? null : jitProfile, Path.of(jarFile));
+            } catch (IOException exception) {
+                System.out.println("ERROR - Couldn't write jar file.");
+                System.out.println(exception.getMessage());
+            }
+        } else if ("--vm".equals(mode)) {
+            final var finalMaxCallDepth = maxCallDepth;
+            ProgramRunner.runWithStackSize(
+                    () -> execute(errorReporter, file, optimizedStatements, finalMaxCallDepth),
+                    stackSizeMegabytes);
+        } else if ("--compiled".equals(mode)) {
+            final var finalMaxCallDepth = maxCallDepth;
+            ProgramRunner.runWithStackSize(
+                    () -> compileAndRun(optimizedStatements, finalMaxCallDepth),
+                    stackSizeMegabytes);
+        } else {
+            final var jitProfile = isProfiled ? readJitProfile(optimizedStatements, fileContents, file) : null;
+            final var finalMaxCallDepth = maxCallDepth;
+            final var finalJitThreshold = jitThreshold;
+            ProgramRunner.runWithStackSize(
+                    () -> ProgramRunner.interpret(optimizedStatements, finalMaxCallDepth, finalJitThreshold, jitProfile),
+                    stackSizeMegabytes);
+            if (jitProfile != null) {
+                writeJitProfile(jitProfile, file);
+            }
+        }
+    }
+
+    // Returns -1 if the text isn't an integer.
+    private static int parseInt(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private static String readFileContents(String file) throws IOException {
+        final var stringBuilder = new StringBuilder();
+        final var reader = new BufferedReader(new FileReader(file));
+        String line = reader.readLine();
+        while (line != null) {
+            stringBuilder.append(line);
+            stringBuilder.append('\n');
+            line = reader.readLine();
+        }
+        return stringBuilder.toString();
+    }
+
+    // Returns null if any errors were found (having reported them). The optimized statements are
+    // resolved again, so any error here is one introduced by the Optimizer.
+    private static List<Statement> optimize(ErrorReporter errorReporter, List<Statement> statements) {
+        final var optimizedStatements = new Optimizer().visitAll(statements);
+        new Resolver(errorReporter).visitAll(optimizedStatements);
+        if (!errorReporter.getErrors().isEmpty()) {
+            for (final var error : errorReporter.getErrors()) {
+                System.out.println(error.getMessage());
+            }
+            return null;
+        }
+        return optimizedStatements;
+    }
+
+    // Returns null if any errors were found (having reported them).
+    private static List<Statement> scanParseAndResolve(ErrorReporter errorReporter, String fileContents, String file) {
         final var scanner = new Scanner(errorReporter, fileContents, file);
         final var tokens  = scanner.scanTokens();
         if (!errorReporter.getErrors().isEmpty()) {
             for (final var error : errorReporter.getErrors()) {
                 System.out.println(error.getMessage());
             }
-            return;
+            return null;
         }
 
         final var parser = new Parser(errorReporter, tokens);
@@ -45,7 +175,7 @@ public class Jocks {
             for (final var error : errorReporter.getErrors()) {
                 System.out.println(error.getMessage());
             }
-            return;
+            return null;
         }
 
         final var resolver = new Resolver(errorReporter);
@@ -54,43 +184,99 @@ public class Jocks {
             for (final var error : errorReporter.getErrors()) {
                 System.out.println(error.getMessage());
             }
-            return;
+            return null;
         }
 
-        switch (args.length) {
-            case 1:
-                interpret(statements);
-                break;
-            case 2:
-                if (args[1].equals("--print")) {
-                    print(statements);
-                } else {
-                    usage();
-                }
-                break;
-            default:
-                usage();
-                break;
+        return statements;
+    }
+
+    // A cache which can't be read is discarded, and replaced once the source has been resolved again.
+    // Reads the optimized statements from the cache (if given), otherwise produces them from the source
+    // (and writes them to the cache). Returns null if any errors were found (having reported them).
+    private static List<Statement> scanParseResolveAndOptimize(
+            ErrorReporter errorReporter,
+            String fileContents,
+            String file,
+            AstCache astCache) {
+        final var cachedStatements = astCache != null ? readAstCache(astCache) : null;
+        if (cachedStatements != null) {
+            return cachedStatements;
+        }
+        final var statements = scanParseAndResolve(errorReporter, fileContents, file);
+        if (statements == null) {
+            return null;
         }
+        final var optimizedStatements = optimize(errorReporter, statements);
+        if (optimizedStatements != null && astCache != null) {
+            writeAstCache(astCache, optimizedStatements);
+        }
+        return optimizedStatements;
     }
 
-    private static String readFileContents(String file) throws IOException {
-        final var stringBuilder = new StringBuilder();
-        final var reader = new BufferedReader(new FileReader(file));
-        String line = reader.readLine();
-        while (line != null) {
-            stringBuilder.append(line);
-            stringBuilder.append('\n');
-            line = reader.readLine();
+    private static List<Statement> readAstCache(AstCache astCache) {
+        try {
+            return astCache.read();
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static void writeAstCache(AstCache astCache, List<Statement> statements) {
+        try {
+            astCache.write(statements);
+        } catch (IOException exception) {
+            System.out.println("ERROR - Couldn't write cache file.");
+            System.out.println(exception.getMessage());
+        }
+    }
+
+    // A profile which can't be read is discarded, and replaced once the program has run.
+    private static JitProfile readJitProfile(List<Statement> statements, String fileContents, String file) {
+        final var jitProfile = new JitProfile(statements, fileContents);
+        try {
+            jitProfile.read(file + PROFILE_FILE_SUFFIX);
+            return jitProfile;
+        } catch (IOException ex) {
+            return new JitProfile(statements, fileContents);
+        }
+    }
+
+    private static void writeJitProfile(JitProfile jitProfile, String file) {
+        try {
+            jitProfile.write(file + PROFILE_FILE_SUFFIX);
+        } catch (IOException exception) {
+            System.out.println("ERROR - Couldn't write profile file.");
+            System.out.println(exception.getMessage());
         }
-        return stringBuilder.toString();
     }
 
-    private static void interpret(List<Statement> statements) {
+    private static void compileAndRun(List<Statement> statements, int maxCallDepth) {
+        try {
+            final var compiler = new ClosureCompiler(maxCallDepth);
+            compiler.interpret(statements);
+            if (compiler.getIsThrowing()) {
+                System.out.println("ERROR - Program terminating with uncaught thrown value.");
+                System.out.println("\tConsider adding a top level try/catch block to log the exception.");
+            }
+        } catch (RuntimeException ex) {
+            System.out.println(ex.getMessage());
+        }
+    }
+
+    private static void execute(ErrorReporter errorReporter, String file, List<Statement> statements, int maxCallDepth) {
+        final var virtualMachine = new VirtualMachine(maxCallDepth);
+        final var compiler = new BytecodeCompiler(errorReporter, file, virtualMachine.getGlobalIdentifiers());
+        final var script = compiler.compile(statements);
+        if (!errorReporter.getErrors().isEmpty()) {
+            for (final var error : errorReporter.getErrors()) {
+                System.out.println(error.getMessage());
+            }
+            return;
+        }
+
         try {
-            final var interpreter = new Interpreter();
-            interpreter.visitAll(statements);
-            if (interpreter.getIsThrowing()) {
+            virtualMachine.interpret(script, compiler.getGlobalCount());
+            if (virtualMachine.getIsThrowing()) {
                 System.out.println("ERROR - Program terminating with uncaught thrown value.");
                 System.out.println("\tConsider adding a top level try/catch block to log the exception.");
             }
@@ -105,8 +291,16 @@ public class Jocks {
     }
 
     private static void usage() {
-        System.out.println("USAGE: jocks <source-file-path> [--print]");
-        System.out.println("\tsource-file-path - The file path for the source code to interpret or print.");
-        System.out.println("\t--print          - If specified, the source code will be pretty-printed.");
+        System.out.println("USAGE: jocks <source-file-path> [--print | --vm | --compiled | --jar=<jar-file-path>] [--max-call-depth=<n>] [--stack-size=<megabytes>] [--jit-threshold=<n>] [--profile] [--cache]");
+        System.out.println("\tsource-file-path   - The file path for the source code to interpret or print.");
+        System.out.println("\t--print            - If specified, the source code will be pretty-printed.");
+        System.out.println("\t--vm               - If specified, the source code will be compiled to bytecode and run on the virtual machine.");
+        System.out.println("\t--compiled         - If specified, the source code will be compiled to a tree of closures and run.");
+        System.out.println("\t--jar              - If specified, the resolved source code will be packaged with the interpreter into a jar file, which runs it (with the options given, and any profile saved by --profile) via java -jar.");
+        System.out.println("\t--max-call-depth   - The depth of calls beyond which the program is terminated (default " + CallStack.DEFAULT_MAX_SIZE + ").");
+        System.out.println("\t--stack-size       - The size of the stack the program runs on (default " + ProgramRunner.DEFAULT_STACK_SIZE_MEGABYTES + " megabytes).");
+        System.out.println("\t--jit-threshold    - The number of calls (or loop iterations) after which a function (or top level loop) is compiled to JVM bytecode, or 0 to never compile (default " + Interpreter.DEFAULT_JIT_THRESHOLD + ").");
+        System.out.println("\t--profile          - If specified, which functions and loops were found to be hot (and nothing else, e.g. the types of values) is saved to <source-file-path>" + PROFILE_FILE_SUFFIX + ", and those are compiled when first run by later runs of the same source (interpreter only).");
+        System.out.println("\t--cache            - If specified, the resolved and optimized source code is saved to <source-file-path>" + AstCache.FILE_SUFFIX + " and read by later runs of the same source, rather than scanning, parsing, resolving and optimizing it again (ignored by --print).");
     }
 }
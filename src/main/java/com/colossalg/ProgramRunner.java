@@ -0,0 +1,55 @@
+package com.colossalg;
+
+import com.colossalg.jit.JitProfile;
+import com.colossalg.statement.Statement;
+import com.colossalg.visitors.Interpreter;
+
+import java.util.List;
+
+// Runs resolved statements on the Interpreter, reporting errors as Jocks does. Shared by
+// Jocks and the launcher of programs compiled ahead of time (see AotLauncher).
+public class ProgramRunner {
+
+    // Programs are run on a thread of their own so that the depth of recursion they're
+    // capable of isn't bound by the (typically small) stack size of the main thread.
+    public static final int DEFAULT_STACK_SIZE_MEGABYTES = 1024;
+
+    public static void runWithStackSize(Runnable runnable, int stackSizeMegabytes) {
+        final var thread = new Thread(
+                null,
+                () -> {
+                    try {
+                        runnable.run();
+                    } catch (StackOverflowError error) {
+                        System.out.println("ERROR - Program terminating as the stack overflowed.");
+                        System.out.println("\tConsider increasing --stack-size, or decreasing --max-call-depth.");
+                    }
+                },
+                "jocks",
+                (long)stackSizeMegabytes * 1024 * 1024);
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The profile may be null if none is to be used.
+    public static void interpret(List<Statement> statements, int maxCallDepth, int jitThreshold, JitProfile jitProfile) {
+        try {
+            final var interpreter = new Interpreter(maxCallDepth, jitThreshold);
+            interpreter.setJitProfile(jitProfile);
+            interpreter.interpret(statements);
+            if (interpreter.getIsThrowing()) {
+                System.out.println("ERROR - Program terminating with uncaught thrown value.");
+                System.out.println("\tConsider adding a top level try/catch block to log the exception.");
+            }
+        } catch (RuntimeException ex) {
+            System.out.println(ex.getMessage());
+        }
+    }
+
+    private ProgramRunner() {
+    }
+}
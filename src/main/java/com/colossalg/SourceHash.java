@@ -0,0 +1,19 @@
+package com.colossalg;
+
+// Hashes the source of a program, to identify the files derived from it (see JitProfile and AstCache).
+//
+// The hash is the 64 bit FNV-1a hash of the source's characters, rather than that of a MessageDigest,
+// as loading the security providers would cost more at startup than the files save.
+public class SourceHash {
+
+    public static String of(String source) {
+        var hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < source.length(); i++) {
+            hash = (hash ^ source.charAt(i)) * 0x100000001b3L;
+        }
+        return Long.toHexString(hash);
+    }
+
+    private SourceHash() {
+    }
+}
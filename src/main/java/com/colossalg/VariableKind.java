@@ -0,0 +1,9 @@
+package com.colossalg;
+
+// How a declared or referenced variable is stored, as determined by the Resolver.
+public enum VariableKind {
+    GLOBAL,     // In the global symbol table, by slot.
+    LOCAL,      // In one of the current function's symbol tables, by depth and slot.
+    CELL,       // As for LOCAL, but boxed in a cell as it is captured by a closure.
+    UPVALUE,    // In a cell captured by the current function, by the index of its upvalue.
+}
@@ -0,0 +1,154 @@
+package com.colossalg.aot;
+
+import com.colossalg.jit.JitProfile;
+import com.colossalg.launcher.AotLauncher;
+import com.colossalg.statement.Statement;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+// Builds a runnable JAR from a program's resolved (and optimized) statements.
+//
+// The JAR contains the statements (written by AstWriter) and the classes of Jocks, bar those of this
+// package (which builds it) and the benchmarks, so launching the JAR skips straight to running the
+// program (see AotLauncher). Classes are loaded as they're first used, so those which the program
+// doesn't need (e.g. the front end and the VM) cost nothing to include.
+//
+// The statements are compiled to JVM bytecode by the JIT as they're run rather than ahead of time,
+// as the code it generates is linked against the program's live state (e.g. its inline caches).
+// If the program has been profiled (see JitProfile), the profile is included too, so that the
+// functions and loops it found to be hot are compiled when first run rather than after warming up.
+public class AotCompiler {
+
+    public AotCompiler(int maxCallDepth, int stackSizeMegabytes, int jitThreshold) {
+        _maxCallDepth = maxCallDepth;
+        _stackSizeMegabytes = stackSizeMegabytes;
+        _jitThreshold = jitThreshold;
+    }
+
+    // The profile may be null.
+    public void compile(List<Statement> statements, JitProfile jitProfile, Path jarFile) throws IOException {
+        final var manifest = new Manifest();
+        final var attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.put(Attributes.Name.MAIN_CLASS, AotLauncher.class.getName());
+        attributes.putValue(AotLauncher.MAX_CALL_DEPTH_ATTRIBUTE, Integer.toString(_maxCallDepth));
+        attributes.putValue(AotLauncher.STACK_SIZE_ATTRIBUTE, Integer.toString(_stackSizeMegabytes));
+        attributes.putValue(AotLauncher.JIT_THRESHOLD_ATTRIBUTE, Integer.toString(_jitThreshold));
+        if (jitProfile != null) {
+            attributes.putValue(AotLauncher.SOURCE_HASH_ATTRIBUTE, jitProfile.getSourceHash());
+        }
+
+        try (final var jar = new JarOutputStream(new BufferedOutputStream(Files.newOutputStream(jarFile)), manifest)) {
+            jar.putNextEntry(new JarEntry(AotLauncher.PROGRAM_RESOURCE));
+            AstWriter.write(statements, jar);
+            jar.closeEntry();
+
+            if (jitProfile != null) {
+                jar.putNextEntry(new JarEntry(AotLauncher.PROFILE_RESOURCE));
+                jitProfile.write(new BufferedWriter(new OutputStreamWriter(jar)));
+                jar.closeEntry();
+            }
+
+            final var runtimeClasses = new RuntimeClasses(jar);
+            final var location = getRuntimeLocation();
+            if (Files.isDirectory(location)) {
+                runtimeClasses.copyFromDirectory(location);
+            } else {
+                runtimeClasses.copyFromJar(location);
+            }
+        }
+    }
+
+    // The location (directory or JAR) from which the classes of Jocks were loaded.
+    private static Path getRuntimeLocation() throws IOException {
+        try {
+            return Path.of(AotCompiler.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException | SecurityException | NullPointerException ex) {
+            throw new IOException("Couldn't find the classes of the Jocks runtime.", ex);
+        }
+    }
+
+    private static class RuntimeClasses {
+
+        RuntimeClasses(JarOutputStream jar) {
+            _jar = jar;
+        }
+
+        void copyFromDirectory(Path directory) throws IOException {
+            final var files = new ArrayList<Path>();
+            try (final var stream = Files.walk(directory.resolve(PACKAGE_DIRECTORY))) {
+                stream.filter(Files::isRegularFile).forEach(files::add);
+            }
+            files.sort(null);
+            for (final var file : files) {
+                final var name = directory.relativize(file).toString().replace('\\', '/');
+                if (isRuntimeClass(name)) {
+                    try (final var in = Files.newInputStream(file)) {
+                        copy(name, in);
+                    }
+                }
+            }
+        }
+
+        void copyFromJar(Path jarFile) throws IOException {
+            try (final var source = new JarFile(jarFile.toFile())) {
+                final var entries = source.entries();
+                while (entries.hasMoreElements()) {
+                    final var entry = entries.nextElement();
+                    if (!entry.isDirectory() && isRuntimeClass(entry.getName())) {
+                        try (final var in = source.getInputStream(entry)) {
+                            copy(entry.getName(), in);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void copy(String name, InputStream in) throws IOException {
+            _jar.putNextEntry(new JarEntry(name));
+            in.transferTo(_jar);
+            _jar.closeEntry();
+        }
+
+        private static boolean isRuntimeClass(String name) {
+            if (!name.startsWith(PACKAGE_DIRECTORY) || !name.endsWith(".class")) {
+                return false;
+            }
+            for (final var excluded : EXCLUDED_PACKAGES) {
+                if (name.startsWith(excluded)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static final String PACKAGE_DIRECTORY = "com/colossalg/";
+
+        // Packages (and their subpackages) which programs don't need to run. Those classes of the
+        // packaging which programs do need (e.g. AotLauncher) are in the launcher package instead.
+        private static final String[] EXCLUDED_PACKAGES = {
+                PACKAGE_DIRECTORY + "aot/",
+                PACKAGE_DIRECTORY + "benchmarks/",
+        };
+
+        private final JarOutputStream _jar;
+    }
+
+    private final int _maxCallDepth;
+    private final int _stackSizeMegabytes;
+    private final int _jitThreshold;
+}
@@ -0,0 +1,82 @@
+package com.colossalg.aot;
+
+import com.colossalg.SourceHash;
+import com.colossalg.launcher.AstReader;
+import com.colossalg.statement.Statement;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Caches the resolved and optimized statements of a program alongside its source, so that later runs
+// of the same source may read them (see AstReader) rather than scanning, parsing, resolving and
+// optimizing it again.
+//
+// The file starts with the path of the source and the hash of its source, followed by the length and
+// CRC-32 checksum of the statements (see AstFormat), then the statements themselves. The path is part
+// of the key as it's written into the statements' tokens (and so appears in error messages), and the
+// hash so that the cache is ignored if the source has changed. The checksum is so that a cache which
+// has been corrupted is ignored too, rather than running whatever statements it now reads as.
+public class AstCache {
+
+    public static final String FILE_SUFFIX = ".ast";
+
+    public AstCache(String file, String source) {
+        _file = file;
+        _sourceHash = SourceHash.of(source);
+    }
+
+    // Returns null if there's no cache for the source (or it has been corrupted).
+    public List<Statement> read() throws IOException {
+        final var cacheFile = new File(_file + FILE_SUFFIX);
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try (final var in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (!in.readUTF().equals(_file) || !in.readUTF().equals(_sourceHash)) {
+                return null;
+            }
+            final var length = in.readInt();
+            final var checksum = in.readLong();
+            if (length < 0) {
+                return null;
+            }
+            final var statements = in.readNBytes(length);
+            if (statements.length != length || in.read() != -1 || checksum(statements) != checksum) {
+                return null;
+            }
+            return AstReader.read(new ByteArrayInputStream(statements));
+        }
+    }
+
+    public void write(List<Statement> statements) throws IOException {
+        final var bytes = new ByteArrayOutputStream();
+        AstWriter.write(statements, bytes);
+        final var statementBytes = bytes.toByteArray();
+        try (final var out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(_file + FILE_SUFFIX)))) {
+            out.writeUTF(_file);
+            out.writeUTF(_sourceHash);
+            out.writeInt(statementBytes.length);
+            out.writeLong(checksum(statementBytes));
+            out.write(statementBytes);
+        }
+    }
+
+    private static long checksum(byte[] bytes) {
+        final var crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    private final String _file;
+    private final String _sourceHash;
+}
@@ -0,0 +1,384 @@
+package com.colossalg.aot;
+
+import com.colossalg.Token;
+import com.colossalg.VariableKind;
+import com.colossalg.expression.*;
+import com.colossalg.launcher.AstFormat;
+import com.colossalg.statement.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+
+// Writes resolved statements in the format read by AstReader (see AstFormat), so that a program
+// may be run again without scanning, parsing and resolving its source.
+//
+// Only the state of the nodes which is fixed once they're resolved is written, not anything the
+// interpreters build up while running them (e.g. inline caches).
+public class AstWriter implements StatementVisitor<Void>, ExpressionVisitor<Void> {
+
+    public static void write(List<Statement> statements, OutputStream outputStream) throws IOException {
+        final var out = new DataOutputStream(outputStream);
+        out.writeInt(AstFormat.MAGIC);
+        out.writeInt(AstFormat.VERSION);
+        try {
+            new AstWriter(out).writeStatements(statements);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        out.flush();
+    }
+
+    @Override
+    public Void visit(Statement statement) {
+        return statement.accept(this);
+    }
+
+    @Override
+    public Void visitClassDeclaration(ClassDeclaration statement) {
+        writeInt(AstFormat.CLASS_DECLARATION);
+        writeToken(statement.getIdentifier());
+        writeToken(statement.getSuperClass().orElse(null));
+        writeInt(statement.getMethods().size());
+        for (final var method : statement.getMethods()) {
+            visit(method);
+        }
+        writeVariableKind(statement.getVariableKind());
+        writeInt(statement.getSymbolTableSlot());
+        writeVariableKind(statement.getSuperClassVariableKind());
+        writeInt(statement.getSuperClassSymbolTableDepth());
+        writeInt(statement.getSuperClassSymbolTableSlot());
+        return null;
+    }
+
+    @Override
+    public Void visitFunDeclaration(FunDeclaration statement) {
+        writeInt(AstFormat.FUN_DECLARATION);
+        writeToken(statement.getIdentifier());
+        writeInt(statement.getParameters().size());
+        for (final var parameter : statement.getParameters()) {
+            writeToken(parameter);
+        }
+        writeStatements(statement.getStatements());
+        writeVariableKind(statement.getVariableKind());
+        writeInt(statement.getSymbolTableSlot());
+        writeInt(statement.getSymbolTableSize());
+        for (final var slot : statement.getParameterSymbolTableSlots()) {
+            writeInt(slot);
+        }
+        for (final var kind : statement.getParameterVariableKinds()) {
+            writeVariableKind(kind);
+        }
+        writeInt(statement.getCaptures().size());
+        for (final var capture : statement.getCaptures()) {
+            writeBoolean(capture.getIsCell());
+            writeInt(capture.getSymbolTableDepth());
+            writeInt(capture.getIndex());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVarDeclaration(VarDeclaration statement) {
+        writeInt(AstFormat.VAR_DECLARATION);
+        writeToken(statement.getIdentifier());
+        visit(statement.getExpression());
+        writeVariableKind(statement.getVariableKind());
+        writeInt(statement.getSymbolTableSlot());
+        return null;
+    }
+
+    @Override
+    public Void visitIfElseStatement(IfElseStatement statement) {
+        writeInt(AstFormat.IF_ELSE);
+        visit(statement.getCondition());
+        visit(statement.getThenSubStatement());
+        writeOptional(statement.getElseSubStatement().orElse(null));
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStatement(WhileStatement statement) {
+        writeInt(AstFormat.WHILE);
+        visit(statement.getCondition());
+        visit(statement.getSubStatement());
+        return null;
+    }
+
+    @Override
+    public Void visitForStatement(ForStatement statement) {
+        writeInt(AstFormat.FOR);
+        writeOptional(statement.getInitializer().orElse(null));
+        writeOptional(statement.getCondition().orElse(null));
+        writeOptional(statement.getIncrement().orElse(null));
+        visit(statement.getSubStatement());
+        writeBoolean(statement.getHasScope());
+        writeInt(statement.getSymbolTableSize());
+        return null;
+    }
+
+    @Override
+    public Void visitTryCatchStatement(TryCatchStatement statement) {
+        writeInt(AstFormat.TRY_CATCH);
+        visit(statement.getTryStatement());
+        visit(statement.getCatchStatement());
+        writeToken(statement.getExceptionIdentifier());
+        writeVariableKind(statement.getExceptionVariableKind());
+        return null;
+    }
+
+    @Override
+    public Void visitThrowStatement(ThrowStatement statement) {
+        writeInt(AstFormat.THROW);
+        visit(statement.getSubExpression());
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStatement(BlockStatement statement) {
+        writeInt(AstFormat.BLOCK);
+        writeStatements(statement.getSubStatements());
+        writeBoolean(statement.getHasScope());
+        writeInt(statement.getSymbolTableSize());
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStatement(ReturnStatement statement) {
+        writeInt(AstFormat.RETURN);
+        writeString(statement.getFile());
+        writeInt(statement.getLine());
+        writeOptional(statement.getSubExpression().orElse(null));
+        writeBoolean(statement.getIsTailCall());
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStatement(PrintStatement statement) {
+        writeInt(AstFormat.PRINT);
+        visit(statement.getSubExpression());
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(ExpressionStatement statement) {
+        writeInt(AstFormat.EXPRESSION_STATEMENT);
+        visit(statement.getSubExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Expression expression) {
+        return expression.accept(this);
+    }
+
+    @Override
+    public Void visitLogicalExpression(LogicalExpression expression) {
+        writeInt(AstFormat.LOGICAL);
+        writeToken(expression.getOperator());
+        visit(expression.getLftSubExpression());
+        visit(expression.getRgtSubExpression());
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpression(BinaryExpression expression) {
+        writeInt(AstFormat.BINARY);
+        writeToken(expression.getOperator());
+        visit(expression.getLftSubExpression());
+        visit(expression.getRgtSubExpression());
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpression(UnaryExpression expression) {
+        writeInt(AstFormat.UNARY);
+        writeToken(expression.getOperator());
+        visit(expression.getSubExpression());
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpression(GroupingExpression expression) {
+        writeInt(AstFormat.GROUPING);
+        visit(expression.getSubExpression());
+        return null;
+    }
+
+    @Override
+    public Void visitDotExpression(DotExpression expression) {
+        writeInt(AstFormat.DOT);
+        visit(expression.getLhsExpression());
+        writeToken(expression.getRhsIdentifier());
+        return null;
+    }
+
+    @Override
+    public Void visitFunInvocation(FunInvocation expression) {
+        writeInt(AstFormat.FUN_INVOCATION);
+        writeString(expression.getFile());
+        writeInt(expression.getLine());
+        visit(expression.getSubExpression());
+        writeExpressions(expression.getArguments());
+        return null;
+    }
+
+    @Override
+    public Void visitNewInvocation(NewInvocation expression) {
+        writeInt(AstFormat.NEW_INVOCATION);
+        writeString(expression.getFile());
+        writeInt(expression.getLine());
+        writeToken(expression.getIdentifier());
+        writeExpressions(expression.getArguments());
+        writeVariableKind(expression.getVariableKind());
+        writeInt(expression.getSymbolTableDepth());
+        writeInt(expression.getSymbolTableSlot());
+        return null;
+    }
+
+    @Override
+    public Void visitVarAssignment(VarAssignment expression) {
+        writeInt(AstFormat.VAR_ASSIGNMENT);
+        visit(expression.getLhsExpression());
+        visit(expression.getRhsExpression());
+        return null;
+    }
+
+    @Override
+    public Void visitVarExpression(VarExpression expression) {
+        writeInt(AstFormat.VAR_EXPRESSION);
+        writeToken(expression.getIdentifier());
+        writeVariableKind(expression.getVariableKind());
+        writeInt(expression.getSymbolTableDepth());
+        writeInt(expression.getSymbolTableSlot());
+        return null;
+    }
+
+    // The value of a literal isn't written, as it is derived from its token when read. This is
+    // also true of literals created by the Optimizer, whose tokens are created from their value.
+    @Override
+    public Void visitLiteralExpression(LiteralExpression expression) {
+        writeInt(AstFormat.LITERAL);
+        writeToken(expression.getToken());
+        return null;
+    }
+
+    private AstWriter(DataOutputStream out) {
+        _out = out;
+    }
+
+    private void writeStatements(List<Statement> statements) {
+        writeInt(statements.size());
+        for (final var statement : statements) {
+            visit(statement);
+        }
+    }
+
+    private void writeExpressions(List<Expression> expressions) {
+        writeInt(expressions.size());
+        for (final var expression : expressions) {
+            visit(expression);
+        }
+    }
+
+    private void writeOptional(Statement statement) {
+        if (statement == null) {
+            writeInt(AstFormat.NONE);
+        } else {
+            visit(statement);
+        }
+    }
+
+    private void writeOptional(Expression expression) {
+        if (expression == null) {
+            writeInt(AstFormat.NONE);
+        } else {
+            visit(expression);
+        }
+    }
+
+    private void writeToken(Token token) {
+        if (token == null) {
+            writeBoolean(false);
+            return;
+        }
+        writeBoolean(true);
+        writeInt(token.getType().ordinal());
+        switch (token.getLiteral()) {
+            case null -> writeInt(AstFormat.NO_LITERAL);
+            case Double number -> {
+                writeInt(AstFormat.NUMBER_LITERAL);
+                writeDouble(number);
+            }
+            case String string -> {
+                writeInt(AstFormat.STRING_LITERAL);
+                writeString(string);
+            }
+            default -> throw new IllegalArgumentException(
+                    "Token has literal of unexpected type " + token.getLiteral().getClass().getName());
+        }
+        writeString(token.getText());
+        writeString(token.getFile());
+        writeInt(token.getLine());
+    }
+
+    // The kind is null where there is no variable (e.g. the super class of a class without one).
+    private void writeVariableKind(VariableKind kind) {
+        writeInt(kind != null ? kind.ordinal() : AstFormat.NO_VARIABLE_KIND);
+    }
+
+    // Each string is only written in full the first time, after which its index is written instead.
+    private void writeString(String string) {
+        final var index = _stringIndices.get(string);
+        if (index != null) {
+            writeInt(index);
+            return;
+        }
+        final var bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeInt(_stringIndices.size());
+        writeInt(bytes.length);
+        try {
+            _out.write(bytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        _stringIndices.put(string, _stringIndices.size());
+    }
+
+    // Integers are written 7 bits to a byte, least significant first, with the top bit of each byte
+    // set if more follow. Most are small (e.g. tags, slots and line numbers), so take a byte or two.
+    private void writeInt(int value) {
+        try {
+            while ((value & ~0x7F) != 0) {
+                _out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            _out.writeByte(value);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void writeBoolean(boolean value) {
+        try {
+            _out.writeBoolean(value);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void writeDouble(double value) {
+        try {
+            _out.writeDouble(value);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private final DataOutputStream _out;
+    private final HashMap<String, Integer> _stringIndices = new HashMap<>();
+}
@@ -0,0 +1,59 @@
+package com.colossalg.builtin;
+
+import com.colossalg.builtin.functions.IsType;
+import com.colossalg.builtin.functions.ToString;
+import com.colossalg.builtin.functions.maths.Abs;
+import com.colossalg.builtin.functions.maths.Floor;
+import com.colossalg.builtin.functions.maths.Pow;
+import com.colossalg.dataTypes.JocksValue;
+import com.colossalg.dataTypes.classes.JocksClass;
+import com.colossalg.dataTypes.classes.JocksInstance;
+import com.colossalg.dataTypes.functions.JocksFunction;
+import com.colossalg.dataTypes.primitives.JocksBool;
+import com.colossalg.dataTypes.primitives.JocksNil;
+import com.colossalg.dataTypes.primitives.JocksNumber;
+import com.colossalg.dataTypes.primitives.JocksString;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Supplier;
+
+// The built-in globals, in the order of their slots.
+//
+// The Resolver declares them in this order, and each engine (the Interpreter, ClosureCompiler and
+// VirtualMachine) fills the slots from it, so that the slots the Resolver assigns are those the
+// engines hold the built-ins in. Each engine creates its own values, as some (e.g. the Object class)
+// are modified as the program runs.
+public final class Builtins {
+
+    public record Builtin(String name, Supplier<JocksValue> factory) {
+
+        public JocksValue create() {
+            return factory.get();
+        }
+    }
+
+    public static final List<Builtin> ALL = List.of(
+            // Type checking
+            new Builtin("is_nil", () -> new IsType<>("is_nil", JocksNil.class)),
+            new Builtin("is_bool", () -> new IsType<>("is_bool", JocksBool.class)),
+            new Builtin("is_number", () -> new IsType<>("is_number", JocksNumber.class)),
+            new Builtin("is_string", () -> new IsType<>("is_string", JocksString.class)),
+            new Builtin("is_instance", () -> new IsType<>("is_instance", JocksInstance.class)),
+            new Builtin("is_function", () -> new IsType<>("is_function", JocksFunction.class)),
+            new Builtin("is_class", () -> new IsType<>("is_class", JocksClass.class)),
+
+            // Maths
+            new Builtin("abs", Abs::new),
+            new Builtin("floor", Floor::new),
+            new Builtin("pow", Pow::new),
+
+            // Strings
+            new Builtin("to_string", ToString::new),
+
+            // Global Object class which all other classes are descendants of.
+            new Builtin("Object", () -> new JocksClass("Object", null, new HashMap<>())));
+
+    private Builtins() {
+    }
+}
@@ -4,9 +4,6 @@ import com.colossalg.dataTypes.JocksValue;
 import com.colossalg.dataTypes.classes.JocksInstance;
 import com.colossalg.dataTypes.functions.JocksFunction;
 
-import java.util.ArrayList;
-import java.util.List;
-
 public class BoundMethod extends JocksFunction {
 
     public BoundMethod(JocksInstance instance, JocksFunction function) {
@@ -26,13 +23,36 @@ public class BoundMethod extends JocksFunction {
     }
 
     @Override
-    public JocksValue call(List<JocksValue> arguments) {
-        final var argumentsCopy = new ArrayList<JocksValue>();
-        argumentsCopy.add(_instance);
-        argumentsCopy.addAll(arguments);
+    public JocksValue call(JocksValue[] arguments) {
+        final var argumentsCopy = new JocksValue[arguments.length + 1];
+        argumentsCopy[0] = _instance;
+        System.arraycopy(arguments, 0, argumentsCopy, 1, arguments.length);
         return _function.call(argumentsCopy);
     }
 
+    @Override
+    public JocksValue call0() {
+        return _function.call1(_instance);
+    }
+
+    @Override
+    public JocksValue call1(JocksValue argument0) {
+        return _function.call2(_instance, argument0);
+    }
+
+    @Override
+    public JocksValue call2(JocksValue argument0, JocksValue argument1) {
+        return _function.call3(_instance, argument0, argument1);
+    }
+
+    public JocksInstance getInstance() {
+        return _instance;
+    }
+
+    public JocksFunction getFunction() {
+        return _function;
+    }
+
     private final JocksInstance _instance;
     private final JocksFunction _function;
 }
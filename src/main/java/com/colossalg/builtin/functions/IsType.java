@@ -4,7 +4,6 @@ import com.colossalg.dataTypes.JocksValue;
 import com.colossalg.dataTypes.functions.JocksJavaLandFunction;
 import com.colossalg.dataTypes.primitives.JocksBool;
 
-import java.util.List;
 
 // See answers from here:
 // https://stackoverflow.com/questions/1570073/java-instanceof-and-generics
@@ -21,8 +20,8 @@ public class IsType<T extends JocksValue> extends JocksJavaLandFunction {
     }
 
     @Override
-    public JocksValue call(List<JocksValue> arguments) {
-        return _type.isAssignableFrom(arguments.getFirst().getClass())
+    public JocksValue call1(JocksValue argument0) {
+        return _type.isAssignableFrom(argument0.getClass())
                 ? JocksBool.Truthy
                 : JocksBool.Falsey;
     }
@@ -4,7 +4,6 @@ import com.colossalg.dataTypes.JocksValue;
 import com.colossalg.dataTypes.functions.JocksJavaLandFunction;
 import com.colossalg.dataTypes.primitives.JocksNil;
 
-import java.util.List;
 
 public class NoopConstructor extends JocksJavaLandFunction {
 
@@ -18,7 +17,7 @@ public class NoopConstructor extends JocksJavaLandFunction {
     }
 
     @Override
-    public JocksValue call(List<JocksValue> arguments) {
+    public JocksValue call1(JocksValue argument0) {
         return JocksNil.Instance;
     }
 }
@@ -4,7 +4,6 @@ import com.colossalg.dataTypes.JocksValue;
 import com.colossalg.dataTypes.functions.JocksJavaLandFunction;
 import com.colossalg.dataTypes.primitives.JocksString;
 
-import java.util.List;
 
 public class ToString extends JocksJavaLandFunction {
 
@@ -18,7 +17,7 @@ public class ToString extends JocksJavaLandFunction {
     }
 
     @Override
-    public JocksValue call(List<JocksValue> arguments) {
-        return new JocksString(arguments.getFirst().str());
+    public JocksValue call1(JocksValue argument0) {
+        return new JocksString(argument0.str());
     }
 }
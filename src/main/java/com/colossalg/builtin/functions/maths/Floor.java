@@ -4,7 +4,6 @@ import com.colossalg.dataTypes.JocksValue;
 import com.colossalg.dataTypes.functions.JocksJavaLandFunction;
 import com.colossalg.dataTypes.primitives.JocksNumber;
 
-import java.util.List;
 
 public class Floor extends JocksJavaLandFunction {
 
@@ -18,11 +17,11 @@ public class Floor extends JocksJavaLandFunction {
     }
 
     @Override
-    public JocksValue call(List<JocksValue> arguments) {
-        if (!(arguments.getFirst() instanceof JocksNumber x)) {
+    public JocksValue call1(JocksValue argument0) {
+        if (!(argument0 instanceof JocksNumber x)) {
             throw new IllegalStateException("floor() expects arguments to be of type JocksNumber.");
         }
 
-        return new JocksNumber(Math.floor(x.getData()));
+        return JocksNumber.valueOf(Math.floor(x.getData()));
     }
 }
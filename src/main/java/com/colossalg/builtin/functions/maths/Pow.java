@@ -4,7 +4,6 @@ import com.colossalg.dataTypes.JocksValue;
 import com.colossalg.dataTypes.functions.JocksJavaLandFunction;
 import com.colossalg.dataTypes.primitives.JocksNumber;
 
-import java.util.List;
 
 public class Pow extends JocksJavaLandFunction {
 
@@ -18,11 +17,11 @@ public class Pow extends JocksJavaLandFunction {
     }
 
     @Override
-    public JocksValue call(List<JocksValue> arguments) {
-        if (!(arguments.get(0) instanceof JocksNumber x) || !(arguments.get(1) instanceof JocksNumber y)) {
+    public JocksValue call2(JocksValue argument0, JocksValue argument1) {
+        if (!(argument0 instanceof JocksNumber x) || !(argument1 instanceof JocksNumber y)) {
             throw new IllegalStateException("pow() expects arguments to both be of type JocksNumber.");
         }
 
-        return new JocksNumber(Math.pow(x.getData(), y.getData()));
+        return JocksNumber.valueOf(Math.pow(x.getData(), y.getData()));
     }
 }
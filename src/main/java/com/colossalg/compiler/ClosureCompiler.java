@@ -0,0 +1,1060 @@
+package com.colossalg.compiler;
+
+import com.colossalg.Token;
+import com.colossalg.TokenType;
+import com.colossalg.VariableKind;
+import com.colossalg.builtin.Builtins;
+import com.colossalg.builtin.functions.*;
+import com.colossalg.dataTypes.*;
+import com.colossalg.dataTypes.classes.*;
+import com.colossalg.dataTypes.functions.*;
+import com.colossalg.dataTypes.primitives.*;
+import com.colossalg.expression.*;
+import com.colossalg.statement.*;
+import com.colossalg.visitors.CallStack;
+import com.colossalg.visitors.Cell;
+import com.colossalg.visitors.ExceptionFactory;
+import com.colossalg.visitors.SymbolTable;
+
+import java.util.HashMap;
+import java.util.List;
+
+// Compiles the resolved AST into a tree of nodes (closures) which are executed in its place.
+//
+// Everything which the Interpreter works out each time a node is visited is instead worked out
+// once here, when the node is compiled:
+//  - Operators are selected, with fast paths for numbers (falling back to the JocksValue methods).
+//  - Variables are accessed by their kind, depth and slot, without switching on their kind.
+//  - Literals are evaluated to their (pre-boxed) values.
+//  - Calls are specialised for the number of arguments, and methods for their receiver.
+//
+// This is an alternative to the Interpreter (which remains the reference implementation) and
+// should behave identically. The nodes share the state of the running program (the globals and
+// the call stack) through the compiler, so a program should be run by the compiler producing it.
+public class ClosureCompiler implements StatementVisitor<StatementNode>, ExpressionVisitor<ExpressionNode> {
+
+    // Sets a variable which has been resolved to a given kind, depth and slot.
+    @FunctionalInterface
+    private interface VariableSetter {
+
+        void set(Frame frame, JocksValue value);
+    }
+
+    // Calls a function (with a given number of arguments), after evaluating its arguments.
+    @FunctionalInterface
+    private interface FunctionCall {
+
+        JocksValue call(Frame frame, JocksFunction function);
+    }
+
+    // Calls a method (with a given number of arguments) on the receiver, after evaluating its arguments.
+    @FunctionalInterface
+    private interface MethodCall {
+
+        JocksValue call(Frame frame, JocksFunction method, JocksInstance receiver);
+    }
+
+    public ClosureCompiler() {
+        this(CallStack.DEFAULT_MAX_SIZE);
+    }
+
+    public ClosureCompiler(int maxCallDepth) {
+        _maxCallDepth = maxCallDepth;
+
+        var slot = 0;
+        for (final var builtin : Builtins.ALL) {
+            _globals.createVariable(slot++, builtin.name(), builtin.create());
+        }
+    }
+
+    // Compiles the statements and runs them.
+    public void interpret(List<Statement> statements) {
+        final var script = compileAll(statements);
+        try {
+            script.execute(new Frame(_globals, null));
+        } catch (ThrowSignal signal) {
+            _isThrowing = true;
+        }
+    }
+
+    // Whether the program terminated with an uncaught thrown value.
+    public boolean getIsThrowing() {
+        return _isThrowing;
+    }
+
+    @Override
+    public StatementNode visit(Statement statement) {
+        return statement.accept(this);
+    }
+
+    @Override
+    public StatementNode visitClassDeclaration(ClassDeclaration statement) {
+        final var superClassIdentifier = statement.getSuperClass().isPresent()
+                ? statement.getSuperClass().get().getText()
+                : "Object";
+        final var superClassGetter = createGetter(
+                statement.getSuperClassVariableKind(),
+                statement.getSuperClassSymbolTableDepth(),
+                statement.getSuperClassSymbolTableSlot());
+        final var identifier = statement.getIdentifier().getText();
+        final var creator = createCreator(statement.getVariableKind(), statement.getSymbolTableSlot(), identifier);
+        final var setter = createSetter(statement.getVariableKind(), 0, statement.getSymbolTableSlot());
+
+        final var methodDeclarations = statement.getMethods();
+        final var methodNames = new String[methodDeclarations.size()];
+        final var methodPrototypes = new CompiledFunction.Prototype[methodDeclarations.size()];
+        for (int i = 0; i < methodDeclarations.size(); i++) {
+            methodNames[i] = methodDeclarations.get(i).getIdentifier().getText();
+            methodPrototypes[i] = compilePrototype(identifier + "." + methodNames[i], methodDeclarations.get(i));
+        }
+
+        return (frame) -> {
+            if (!(superClassGetter.evaluate(frame) instanceof JocksClass superClass)) {
+                throw _exceptionFactory.createExceptionWithFileAndLine(
+                        statement.getIdentifier().getFile(),
+                        statement.getIdentifier().getLine(),
+                        "The identifier '%s' is not a class and can not be derived from.",
+                        superClassIdentifier);
+            }
+
+            // The class is created before its methods so that they may capture it.
+            creator.set(frame, JocksNil.Instance);
+
+            final var symbolTable = frame.symbolTable;
+            frame.symbolTable = new SymbolTable(symbolTable, 1, _exceptionFactory);
+            frame.symbolTable.createCell(0, "super", superClass);
+
+            final var methods = new HashMap<String, JocksFunction>();
+            for (int i = 0; i < methodPrototypes.length; i++) {
+                methods.put(methodNames[i], createFunction(frame, methodPrototypes[i]));
+            }
+
+            frame.symbolTable = symbolTable;
+
+            setter.set(frame, new JocksClass(identifier, superClass, methods));
+            return null;
+        };
+    }
+
+    @Override
+    public StatementNode visitFunDeclaration(FunDeclaration statement) {
+        final var identifier = statement.getIdentifier().getText();
+        final var prototype = compilePrototype(identifier, statement);
+        final var creator = createCreator(statement.getVariableKind(), statement.getSymbolTableSlot(), identifier);
+        final var setter = createSetter(statement.getVariableKind(), 0, statement.getSymbolTableSlot());
+
+        return (frame) -> {
+            // The function is created before being assigned so that it may capture itself.
+            creator.set(frame, JocksNil.Instance);
+            setter.set(frame, createFunction(frame, prototype));
+            return null;
+        };
+    }
+
+    @Override
+    public StatementNode visitVarDeclaration(VarDeclaration statement) {
+        final var creator = createCreator(
+                statement.getVariableKind(),
+                statement.getSymbolTableSlot(),
+                statement.getIdentifier().getText());
+        final var expression = visit(statement.getExpression());
+
+        return (frame) -> {
+            creator.set(frame, expression.evaluate(frame));
+            return null;
+        };
+    }
+
+    @Override
+    public StatementNode visitIfElseStatement(IfElseStatement statement) {
+        final var message = "If/else statement condition did not evaluate to type 'bool'.";
+        final var condition = visit(statement.getCondition());
+        final var thenSubStatement = visit(statement.getThenSubStatement());
+        if (statement.getElseSubStatement().isEmpty()) {
+            return (frame) -> isTruthy(condition.evaluate(frame), message)
+                    ? thenSubStatement.execute(frame)
+                    : null;
+        }
+
+        final var elseSubStatement = visit(statement.getElseSubStatement().get());
+        return (frame) -> isTruthy(condition.evaluate(frame), message)
+                ? thenSubStatement.execute(frame)
+                : elseSubStatement.execute(frame);
+    }
+
+    @Override
+    public StatementNode visitWhileStatement(WhileStatement statement) {
+        final var message = "While statement condition did not evaluate to type 'bool'.";
+        final var condition = visit(statement.getCondition());
+        final var subStatement = visit(statement.getSubStatement());
+
+        return (frame) -> {
+            while (isTruthy(condition.evaluate(frame), message)) {
+                final var result = subStatement.execute(frame);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        };
+    }
+
+    @Override
+    public StatementNode visitForStatement(ForStatement statement) {
+        final var message = "For statement condition did not evaluate to type 'bool'.";
+        final var initializer = statement.getInitializer().isPresent()
+                ? visit(statement.getInitializer().get())
+                : null;
+        final ExpressionNode condition = statement.getCondition().isPresent()
+                ? visit(statement.getCondition().get())
+                : (frame) -> JocksBool.Truthy;
+        final var increment = statement.getIncrement().isPresent()
+                ? visit(statement.getIncrement().get())
+                : null;
+        final var subStatement = visit(statement.getSubStatement());
+
+        final StatementNode loop = (frame) -> {
+            if (initializer != null) {
+                initializer.execute(frame);
+            }
+            while (isTruthy(condition.evaluate(frame), message)) {
+                final var result = subStatement.execute(frame);
+                if (result != null) {
+                    return result;
+                }
+                if (increment != null) {
+                    increment.evaluate(frame);
+                }
+            }
+            return null;
+        };
+        return statement.getHasScope()
+                ? withScope(statement.getSymbolTableSize(), loop)
+                : loop;
+    }
+
+    @Override
+    public StatementNode visitTryCatchStatement(TryCatchStatement statement) {
+        final var tryStatement = visit(statement.getTryStatement());
+        final var catchStatement = visit(statement.getCatchStatement());
+        final var creator = createCreator(
+                statement.getExceptionVariableKind(),
+                0,
+                statement.getExceptionIdentifier().getText());
+
+        return (frame) -> {
+            // The value may be thrown from within any number of nested scopes and calls, which are
+            // all exited on catching it.
+            final var symbolTable = frame.symbolTable;
+            final var callStackSize = _callStack.size();
+            final JocksValue thrownValue;
+            try {
+                return tryStatement.execute(frame);
+            } catch (ThrowSignal signal) {
+                frame.symbolTable = symbolTable;
+                _callStack.truncate(callStackSize);
+                thrownValue = signal.getThrownValue();
+            }
+
+            frame.symbolTable = new SymbolTable(symbolTable, 1, _exceptionFactory);
+            creator.set(frame, thrownValue);
+            final var result = catchStatement.execute(frame);
+            frame.symbolTable = symbolTable;
+            return result;
+        };
+    }
+
+    @Override
+    public StatementNode visitThrowStatement(ThrowStatement statement) {
+        final var subExpression = visit(statement.getSubExpression());
+
+        return (frame) -> {
+            throw new ThrowSignal(subExpression.evaluate(frame));
+        };
+    }
+
+    @Override
+    public StatementNode visitBlockStatement(BlockStatement statement) {
+        final var subStatements = compileAll(statement.getSubStatements());
+        return statement.getHasScope()
+                ? withScope(statement.getSymbolTableSize(), subStatements)
+                : subStatements;
+    }
+
+    @Override
+    public StatementNode visitReturnStatement(ReturnStatement statement) {
+        if (statement.getIsTailCall()) {
+            // Evaluates to nil once the tail call has been prepared, which is never observed.
+            final var invocation = compileInvocation((FunInvocation)statement.getSubExpression().orElseThrow(), true);
+            return invocation::evaluate;
+        }
+        if (statement.getSubExpression().isPresent()) {
+            return visit(statement.getSubExpression().get())::evaluate;
+        }
+        return (frame) -> JocksNil.Instance;
+    }
+
+    @Override
+    public StatementNode visitPrintStatement(PrintStatement statement) {
+        final var subExpression = visit(statement.getSubExpression());
+
+        return (frame) -> {
+            System.out.println(subExpression.evaluate(frame).str());
+            return null;
+        };
+    }
+
+    @Override
+    public StatementNode visitExpressionStatement(ExpressionStatement statement) {
+        final var subExpression = visit(statement.getSubExpression());
+
+        return (frame) -> {
+            subExpression.evaluate(frame);
+            return null;
+        };
+    }
+
+    @Override
+    public ExpressionNode visit(Expression expression) {
+        return expression.accept(this);
+    }
+
+    @Override
+    public ExpressionNode visitLogicalExpression(LogicalExpression expression) {
+        final var operator = expression.getOperator();
+        final var lftSubExpression = visit(expression.getLftSubExpression());
+        final var rgtSubExpression = visit(expression.getRgtSubExpression());
+        final var shortCircuitValue = switch (operator.getType()) {
+            case TokenType.AND -> JocksBool.Falsey;
+            case TokenType.OR  -> JocksBool.Truthy;
+            default -> null;
+        };
+        if (shortCircuitValue == null) {
+            return (frame) -> {
+                throw _exceptionFactory.createExceptionWithFileAndLine(
+                        operator.getFile(),
+                        operator.getLine(),
+                        "Invalid logical operator type '" + operator.getType().name() + "'.");
+            };
+        }
+
+        return (frame) -> {
+            final var lftSubExpressionResult = lftSubExpression.evaluate(frame);
+            if (lftSubExpressionResult == shortCircuitValue) {
+                return lftSubExpressionResult;
+            }
+            if (!(lftSubExpressionResult instanceof JocksBool)) {
+                throw _exceptionFactory.createExceptionWithFileAndLine(
+                        operator.getFile(),
+                        operator.getLine(),
+                        "Left sub expression of '%s' expression did not evaluate to type 'bool.",
+                        operator.getText());
+            }
+
+            final var rgtSubExpressionResult = rgtSubExpression.evaluate(frame);
+            if (!(rgtSubExpressionResult instanceof JocksBool)) {
+                throw _exceptionFactory.createExceptionWithFileAndLine(
+                        operator.getFile(),
+                        operator.getLine(),
+                        "Right sub expression of '%s' expression did not evaluate to type 'bool.",
+                        operator.getText());
+            }
+            return rgtSubExpressionResult;
+        };
+    }
+
+    @Override
+    public ExpressionNode visitBinaryExpression(BinaryExpression expression) {
+        final var operator = expression.getOperator();
+        final var lft = visit(expression.getLftSubExpression());
+        final var rgt = visit(expression.getRgtSubExpression());
+
+        // Each operator is given a fast path for numbers, everything else (including operators
+        // overloaded by instances) goes through applyBinaryOperator as it would in the Interpreter.
+        return switch (operator.getType()) {
+            case TokenType.EQUAL_EQUAL -> (frame) -> {
+                final var l = lft.evaluate(frame);
+                final var r = rgt.evaluate(frame);
+                return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                        ? JocksBool.fromBoolean(lNumber.getData() == rNumber.getData())
+                        : applyBinaryOperator(operator, l, r);
+            };
+            case TokenType.BANGS_EQUAL -> (frame) -> {
+                final var l = lft.evaluate(frame);
+                final var r = rgt.evaluate(frame);
+                return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                        ? JocksBool.fromBoolean(lNumber.getData() != rNumber.getData())
+                        : applyBinaryOperator(operator, l, r);
+            };
+            case TokenType.LESS_THAN -> (frame) -> {
+                final var l = lft.evaluate(frame);
+                final var r = rgt.evaluate(frame);
+                return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                        ? JocksBool.fromBoolean(lNumber.getData() < rNumber.getData())
+                        : applyBinaryOperator(operator, l, r);
+            };
+            case TokenType.LESS_THAN_OR_EQUAL -> (frame) -> {
+                final var l = lft.evaluate(frame);
+                final var r = rgt.evaluate(frame);
+                return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                        ? JocksBool.fromBoolean(lNumber.getData() <= rNumber.getData())
+                        : applyBinaryOperator(operator, l, r);
+            };
+            case TokenType.MORE_THAN -> (frame) -> {
+                final var l = lft.evaluate(frame);
+                final var r = rgt.evaluate(frame);
+                return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                        ? JocksBool.fromBoolean(lNumber.getData() > rNumber.getData())
+                        : applyBinaryOperator(operator, l, r);
+            };
+            case TokenType.MORE_THAN_OR_EQUAL -> (frame) -> {
+                final var l = lft.evaluate(frame);
+                final var r = rgt.evaluate(frame);
+                return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                        ? JocksBool.fromBoolean(lNumber.getData() >= rNumber.getData())
+                        : applyBinaryOperator(operator, l, r);
+            };
+            case TokenType.ADD -> (frame) -> {
+                final var l = lft.evaluate(frame);
+                final var r = rgt.evaluate(frame);
+                return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                        ? JocksNumber.valueOf(lNumber.getData() + rNumber.getData())
+                        : applyBinaryOperator(operator, l, r);
+            };
+            case TokenType.SUB -> (frame) -> {
+                final var l = lft.evaluate(frame);
+                final var r = rgt.evaluate(frame);
+                return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                        ? JocksNumber.valueOf(lNumber.getData() - rNumber.getData())
+                        : applyBinaryOperator(operator, l, r);
+            };
+            case TokenType.MUL -> (frame) -> {
+                final var l = lft.evaluate(frame);
+                final var r = rgt.evaluate(frame);
+                return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                        ? JocksNumber.valueOf(lNumber.getData() * rNumber.getData())
+                        : applyBinaryOperator(operator, l, r);
+            };
+            case TokenType.DIV -> (frame) -> {
+                final var l = lft.evaluate(frame);
+                final var r = rgt.evaluate(frame);
+                return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                        ? JocksNumber.valueOf(lNumber.getData() / rNumber.getData())
+                        : applyBinaryOperator(operator, l, r);
+            };
+            default -> (frame) -> applyBinaryOperator(operator, lft.evaluate(frame), rgt.evaluate(frame));
+        };
+    }
+
+    @Override
+    public ExpressionNode visitUnaryExpression(UnaryExpression expression) {
+        final var operator = expression.getOperator();
+        final var subExpression = visit(expression.getSubExpression());
+
+        return switch (operator.getType()) {
+            case TokenType.BANGS -> (frame) -> {
+                final var value = subExpression.evaluate(frame);
+                if (value == JocksBool.Truthy) {
+                    return JocksBool.Falsey;
+                }
+                if (value == JocksBool.Falsey) {
+                    return JocksBool.Truthy;
+                }
+                return applyUnaryOperator(operator, value);
+            };
+            case TokenType.ADD -> (frame) -> {
+                final var value = subExpression.evaluate(frame);
+                return value instanceof JocksNumber
+                        ? value
+                        : applyUnaryOperator(operator, value);
+            };
+            case TokenType.SUB -> (frame) -> {
+                final var value = subExpression.evaluate(frame);
+                return value instanceof JocksNumber number
+                        ? JocksNumber.valueOf(-1 * number.getData())
+                        : applyUnaryOperator(operator, value);
+            };
+            default -> (frame) -> applyUnaryOperator(operator, subExpression.evaluate(frame));
+        };
+    }
+
+    @Override
+    public ExpressionNode visitGroupingExpression(GroupingExpression expression) {
+        return visit(expression.getSubExpression());
+    }
+
+    @Override
+    public ExpressionNode visitDotExpression(DotExpression expression) {
+        final var lhsExpression = visit(expression.getLhsExpression());
+        final var rhsIdentifier = expression.getRhsIdentifier();
+        final var inlineCache = new InlineCache();
+
+        return (frame) -> getPropertyOrMethod(rhsIdentifier, inlineCache, lhsExpression.evaluate(frame));
+    }
+
+    @Override
+    public ExpressionNode visitFunInvocation(FunInvocation expression) {
+        return compileInvocation(expression, false);
+    }
+
+    @Override
+    public ExpressionNode visitNewInvocation(NewInvocation expression) {
+        final var classGetter = createGetter(
+                expression.getVariableKind(),
+                expression.getSymbolTableDepth(),
+                expression.getSymbolTableSlot());
+        final var exprArity = expression.getArguments().size() + 1; // Leading instance parameter - implicitly passed.
+        final var initCall = createMethodCall(
+                compileArguments(expression.getArguments()),
+                expression.getFile(),
+                expression.getLine());
+
+        return (frame) -> {
+            if (!(classGetter.evaluate(frame) instanceof JocksClass invoked)) {
+                throw _exceptionFactory.createExceptionWithFileAndLine(
+                        expression.getFile(),
+                        expression.getLine(),
+                        "The identifier '%s' is not a class from which a new instance can be instantiated.",
+                        expression.getIdentifier().getText());
+            }
+
+            final var instance = invoked.createInstance();
+
+            final var initMethod = invoked.getInitMethod();
+            final var initArity = initMethod.getArity();
+            if (initArity != exprArity) {
+                throw _exceptionFactory.createExceptionWithFileAndLine(
+                        expression.getFile(),
+                        expression.getLine(),
+                        "Number of parameters (%d) did not match what was expected (%d).",
+                        initArity,
+                        exprArity);
+            }
+
+            initCall.call(frame, initMethod, instance);
+            return instance;
+        };
+    }
+
+    @Override
+    public ExpressionNode visitVarAssignment(VarAssignment expression) {
+        final var rhsExpression = visit(expression.getRhsExpression());
+
+        if (expression.getLhsExpression() instanceof DotExpression lhsDotExpression) {
+            final var lhsExpression = visit(lhsDotExpression.getLhsExpression());
+            final var rhsIdentifier = lhsDotExpression.getRhsIdentifier();
+            final var property = rhsIdentifier.getText();
+            final var inlineCache = new InlineCache();
+            return (frame) -> {
+                final var rhsResult = rhsExpression.evaluate(frame);
+                if (!(lhsExpression.evaluate(frame) instanceof JocksInstance instance)) {
+                    throw _exceptionFactory.createExceptionWithFileAndLine(
+                            rhsIdentifier.getFile(),
+                            rhsIdentifier.getLine(),
+                            "The left sub expression did not evaluate to an instance during '.' assignment expression.");
+                }
+                inlineCache.assign(instance, property, rhsResult);
+                return rhsResult;
+            };
+        }
+        if (expression.getLhsExpression() instanceof VarExpression lhsVarExpression) {
+            final var setter = createSetter(
+                    lhsVarExpression.getVariableKind(),
+                    lhsVarExpression.getSymbolTableDepth(),
+                    lhsVarExpression.getSymbolTableSlot());
+            return (frame) -> {
+                final var rhsResult = rhsExpression.evaluate(frame);
+                setter.set(frame, rhsResult);
+                return rhsResult;
+            };
+        }
+        return rhsExpression;
+    }
+
+    @Override
+    public ExpressionNode visitVarExpression(VarExpression expression) {
+        return createGetter(
+                expression.getVariableKind(),
+                expression.getSymbolTableDepth(),
+                expression.getSymbolTableSlot());
+    }
+
+    @Override
+    public ExpressionNode visitLiteralExpression(LiteralExpression expression) {
+        final var value = expression.getValue();
+        if (value == null) {
+            final var literalToken = expression.getToken();
+            return (frame) -> {
+                throw _exceptionFactory.createExceptionWithFileAndLine(
+                        literalToken.getFile(),
+                        literalToken.getLine(),
+                        "Invalid literal type '" + literalToken.getType().name() + "'.");
+            };
+        }
+        return (frame) -> value;
+    }
+
+    private StatementNode compileAll(List<Statement> statements) {
+        final var nodes = new StatementNode[statements.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = visit(statements.get(i));
+        }
+
+        if (nodes.length == 0) {
+            return (frame) -> null;
+        }
+        if (nodes.length == 1) {
+            return nodes[0];
+        }
+        return (frame) -> {
+            for (final var node : nodes) {
+                final var result = node.execute(frame);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        };
+    }
+
+    private StatementNode withScope(int symbolTableSize, StatementNode statement) {
+        return (frame) -> {
+            final var symbolTable = frame.symbolTable;
+            frame.symbolTable = new SymbolTable(symbolTable, symbolTableSize, _exceptionFactory);
+            final var result = statement.execute(frame);
+            frame.symbolTable = symbolTable;
+            return result;
+        };
+    }
+
+    private ExpressionNode[] compileArguments(List<Expression> arguments) {
+        final var nodes = new ExpressionNode[arguments.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = visit(arguments.get(i));
+        }
+        return nodes;
+    }
+
+    // A tail call to a compiled function isn't made here, instead it is prepared to be made by
+    // the calling function once it has returned (see prepareTailCall).
+    private ExpressionNode compileInvocation(FunInvocation expression, boolean isTailCall) {
+        final var file = expression.getFile();
+        final var line = expression.getLine();
+        final var arguments = compileArguments(expression.getArguments());
+        final var exprArity = arguments.length;
+
+        if (isTailCall) {
+            final var subExpression = visit(expression.getSubExpression());
+            final var call = createFunctionCall(arguments, file, line);
+            return (frame) -> {
+                final var invoked = checkInvoked(subExpression.evaluate(frame), exprArity, file, line);
+                if (invoked instanceof CompiledFunction function) {
+                    prepareTailCall(frame, function, null, arguments, file, line);
+                    return JocksNil.Instance;
+                }
+                if (invoked instanceof BoundMethod boundMethod
+                        && boundMethod.getFunction() instanceof CompiledFunction function) {
+                    prepareTailCall(frame, function, boundMethod.getInstance(), arguments, file, line);
+                    return JocksNil.Instance;
+                }
+                return call.call(frame, invoked);
+            };
+        }
+
+        if (expression.getSubExpression() instanceof DotExpression dotExpression) {
+            // A method called directly on an instance is passed the instance as its leading
+            // argument, rather than creating a BoundMethod only to discard it after the call.
+            final var lhsExpression = visit(dotExpression.getLhsExpression());
+            final var rhsIdentifier = dotExpression.getRhsIdentifier();
+            final var identifier = rhsIdentifier.getText();
+            final var inlineCache = new InlineCache();
+            final var functionCall = createFunctionCall(arguments, file, line);
+            final var methodCall = createMethodCall(arguments, file, line);
+            return (frame) -> {
+                final var lhsResult = lhsExpression.evaluate(frame);
+                if (lhsResult instanceof JocksInstance instance) {
+                    final var index = inlineCache.lookup(instance, identifier);
+                    if (index != -1 && inlineCache.getSlot(index) == -1) {
+                        final var method = inlineCache.getMethod(index);
+                        checkArity(method.getArity() - 1, exprArity, file, line);
+                        return methodCall.call(frame, method, instance);
+                    }
+                }
+                final var invoked = checkInvoked(
+                        getPropertyOrMethod(rhsIdentifier, inlineCache, lhsResult),
+                        exprArity,
+                        file,
+                        line);
+                return functionCall.call(frame, invoked);
+            };
+        }
+
+        return createCall(visit(expression.getSubExpression()), arguments, file, line);
+    }
+
+    // As for createFunctionCall, but evaluating the function too so that the most common calls
+    // are made by a single node.
+    private ExpressionNode createCall(ExpressionNode subExpression, ExpressionNode[] arguments, String file, int line) {
+        return switch (arguments.length) {
+            case 0 -> (frame) -> {
+                final var function = checkInvoked(subExpression.evaluate(frame), 0, file, line);
+                pushCallStackEntryInfo(function.getName(), file, line);
+                final var result = function.call0();
+                popCallStackEntryInfo();
+                return result;
+            };
+            case 1 -> (frame) -> {
+                final var function = checkInvoked(subExpression.evaluate(frame), 1, file, line);
+                final var argument0 = arguments[0].evaluate(frame);
+                pushCallStackEntryInfo(function.getName(), file, line);
+                final var result = function.call1(argument0);
+                popCallStackEntryInfo();
+                return result;
+            };
+            case 2 -> (frame) -> {
+                final var function = checkInvoked(subExpression.evaluate(frame), 2, file, line);
+                final var argument0 = arguments[0].evaluate(frame);
+                final var argument1 = arguments[1].evaluate(frame);
+                pushCallStackEntryInfo(function.getName(), file, line);
+                final var result = function.call2(argument0, argument1);
+                popCallStackEntryInfo();
+                return result;
+            };
+            default -> {
+                final var call = createFunctionCall(arguments, file, line);
+                yield (frame) -> call.call(frame, checkInvoked(subExpression.evaluate(frame), arguments.length, file, line));
+            }
+        };
+    }
+
+    private JocksFunction checkInvoked(JocksValue value, int exprArity, String file, int line) {
+        if (!(value instanceof JocksFunction invoked)) {
+            throw _exceptionFactory.createExceptionWithFileAndLine(
+                    file,
+                    line,
+                    "Sub expression did not evaluate to a function which can be invoked.");
+        }
+        checkArity(invoked.getArity(), exprArity, file, line);
+        return invoked;
+    }
+
+    private void checkArity(int funcArity, int exprArity, String file, int line) {
+        if (funcArity != exprArity) {
+            throw _exceptionFactory.createExceptionWithFileAndLine(
+                    file,
+                    line,
+                    "Number of parameters (%d) did not match what was expected (%d).",
+                    funcArity,
+                    exprArity);
+        }
+    }
+
+    // Calls through the entry point specialised for the number of arguments where possible.
+    private FunctionCall createFunctionCall(ExpressionNode[] arguments, String file, int line) {
+        return switch (arguments.length) {
+            case 0 -> (frame, function) -> {
+                pushCallStackEntryInfo(function.getName(), file, line);
+                final var result = function.call0();
+                popCallStackEntryInfo();
+                return result;
+            };
+            case 1 -> (frame, function) -> {
+                final var argument0 = arguments[0].evaluate(frame);
+                pushCallStackEntryInfo(function.getName(), file, line);
+                final var result = function.call1(argument0);
+                popCallStackEntryInfo();
+                return result;
+            };
+            case 2 -> (frame, function) -> {
+                final var argument0 = arguments[0].evaluate(frame);
+                final var argument1 = arguments[1].evaluate(frame);
+                pushCallStackEntryInfo(function.getName(), file, line);
+                final var result = function.call2(argument0, argument1);
+                popCallStackEntryInfo();
+                return result;
+            };
+            case 3 -> (frame, function) -> {
+                final var argument0 = arguments[0].evaluate(frame);
+                final var argument1 = arguments[1].evaluate(frame);
+                final var argument2 = arguments[2].evaluate(frame);
+                pushCallStackEntryInfo(function.getName(), file, line);
+                final var result = function.call3(argument0, argument1, argument2);
+                popCallStackEntryInfo();
+                return result;
+            };
+            default -> (frame, function) -> {
+                final var values = new JocksValue[arguments.length];
+                for (int i = 0; i < arguments.length; i++) {
+                    values[i] = arguments[i].evaluate(frame);
+                }
+                pushCallStackEntryInfo(function.getName(), file, line);
+                final var result = function.call(values);
+                popCallStackEntryInfo();
+                return result;
+            };
+        };
+    }
+
+    // As for createFunctionCall, with the receiver passed as the leading argument.
+    private MethodCall createMethodCall(ExpressionNode[] arguments, String file, int line) {
+        return switch (arguments.length) {
+            case 0 -> (frame, method, receiver) -> {
+                pushCallStackEntryInfo(method.getName(), file, line);
+                final var result = method.call1(receiver);
+                popCallStackEntryInfo();
+                return result;
+            };
+            case 1 -> (frame, method, receiver) -> {
+                final var argument0 = arguments[0].evaluate(frame);
+                pushCallStackEntryInfo(method.getName(), file, line);
+                final var result = method.call2(receiver, argument0);
+                popCallStackEntryInfo();
+                return result;
+            };
+            case 2 -> (frame, method, receiver) -> {
+                final var argument0 = arguments[0].evaluate(frame);
+                final var argument1 = arguments[1].evaluate(frame);
+                pushCallStackEntryInfo(method.getName(), file, line);
+                final var result = method.call3(receiver, argument0, argument1);
+                popCallStackEntryInfo();
+                return result;
+            };
+            default -> (frame, method, receiver) -> {
+                final var values = new JocksValue[arguments.length + 1];
+                values[0] = receiver;
+                for (int i = 0; i < arguments.length; i++) {
+                    values[i + 1] = arguments[i].evaluate(frame);
+                }
+                pushCallStackEntryInfo(method.getName(), file, line);
+                final var result = method.call(values);
+                popCallStackEntryInfo();
+                return result;
+            };
+        };
+    }
+
+    // Evaluates the arguments and binds them to the function's parameters, ready for the call to be
+    // made in place of the calling function. The caller's call stack entry is replaced by the callee's.
+    private void prepareTailCall(
+            Frame frame,
+            CompiledFunction function,
+            JocksValue leadingArgument,
+            ExpressionNode[] arguments,
+            String file,
+            int line
+    ) {
+        final var offset = leadingArgument == null ? 0 : 1;
+        final var symbolTable = function.createSymbolTable();
+        if (leadingArgument != null) {
+            function.bindParameter(symbolTable, 0, leadingArgument);
+        }
+        for (int i = 0; i < arguments.length; i++) {
+            function.bindParameter(symbolTable, i + offset, arguments[i].evaluate(frame));
+        }
+
+        popCallStackEntryInfo();
+        pushCallStackEntryInfo(function.getName(), file, line);
+        frame.tailCallFunction = function;
+        frame.tailCallSymbolTable = symbolTable;
+    }
+
+    private JocksValue applyBinaryOperator(Token operator, JocksValue lft, JocksValue rgt) {
+        try {
+            // If a user defined operator overload is being called, then update the call stack
+            // entry info list so any errors triggered within will have good diagnostics
+            // messages for debugging.
+            if (lft instanceof JocksInstance instance) {
+                pushCallStackEntryInfo(
+                        instance.getJClass().getIdentifier(),
+                        JocksInstance.binaryOperatorTypeToMethodString(operator.getType()),
+                        operator.getFile(), operator.getLine());
+            }
+            final var result = switch (operator.getType()) {
+                case TokenType.EQUAL_EQUAL -> lft.equal(rgt);
+                case TokenType.BANGS_EQUAL -> lft.notEqual(rgt);
+                case TokenType.LESS_THAN -> lft.lessThan(rgt);
+                case TokenType.LESS_THAN_OR_EQUAL -> lft.lessThanOrEqual(rgt);
+                case TokenType.MORE_THAN -> lft.moreThan(rgt);
+                case TokenType.MORE_THAN_OR_EQUAL -> lft.moreThanOrEqual(rgt);
+                case TokenType.ADD -> lft.add(rgt);
+                case TokenType.SUB -> lft.sub(rgt);
+                case TokenType.MUL -> lft.mul(rgt);
+                case TokenType.DIV -> lft.div(rgt);
+                default -> throw _exceptionFactory.createExceptionWithFileAndLine(
+                        operator.getFile(),
+                        operator.getLine(),
+                        "Invalid binary operator type '" + operator.getType().name() + "'.");
+            };
+            if (lft instanceof JocksInstance) {
+                popCallStackEntryInfo();
+            }
+            return result;
+        } catch (UnsupportedOperationException ex) {
+            // Add localization and re-throw.
+            throw _exceptionFactory.createExceptionWithFileAndLine(operator.getFile(), operator.getLine(), ex.getMessage());
+        }
+    }
+
+    private JocksValue applyUnaryOperator(Token operator, JocksValue value) {
+        try {
+            // As for binary operators.
+            if (value instanceof JocksInstance instance) {
+                pushCallStackEntryInfo(
+                        instance.getJClass().getIdentifier(),
+                        JocksInstance.unaryOperatorTypeToMethodString(operator.getType()),
+                        operator.getFile(), operator.getLine());
+            }
+            final var result = switch (operator.getType()) {
+                case TokenType.BANGS -> value.not();
+                case TokenType.ADD -> value.add();
+                case TokenType.SUB -> value.sub();
+                default -> throw _exceptionFactory.createExceptionWithFileAndLine(
+                        operator.getFile(),
+                        operator.getLine(),
+                        "Invalid unary operator type '" + operator.getType().name() + "'.");
+            };
+            if (value instanceof JocksInstance) {
+                popCallStackEntryInfo();
+            }
+            return result;
+        } catch (UnsupportedOperationException ex) {
+            // Add localization and re-throw.
+            throw _exceptionFactory.createExceptionWithFileAndLine(operator.getFile(), operator.getLine(), ex.getMessage());
+        }
+    }
+
+    private boolean isTruthy(JocksValue condition, String message) {
+        if (condition == JocksBool.Truthy) {
+            return true;
+        }
+        if (condition == JocksBool.Falsey) {
+            return false;
+        }
+        throw _exceptionFactory.createExceptionWithoutFileOrLine(message);
+    }
+
+    private void pushCallStackEntryInfo(String name, String file, int line) {
+        checkCallDepth(file, line);
+        _callStack.push(name, file, line);
+    }
+
+    private void pushCallStackEntryInfo(String classIdentifier, String methodName, String file, int line) {
+        checkCallDepth(file, line);
+        _callStack.push(classIdentifier, methodName, file, line);
+    }
+
+    private void checkCallDepth(String file, int line) {
+        if (_callStack.size() >= _maxCallDepth) {
+            throw _exceptionFactory.createExceptionWithFileAndLine(
+                    file,
+                    line,
+                    "Maximum call depth (%d) exceeded.",
+                    _maxCallDepth);
+        }
+    }
+
+    private void popCallStackEntryInfo() {
+        _callStack.pop();
+    }
+
+    private JocksValue getPropertyOrMethod(Token rhsIdentifier, InlineCache inlineCache, JocksValue lhsExpressionResult) {
+        if ((lhsExpressionResult instanceof JocksInstance instance)) {
+            // Return the property if it exists, otherwise return the method if it exists.
+            final var index = inlineCache.lookup(instance, rhsIdentifier.getText());
+            if (index == -1) {
+                throw _exceptionFactory.createExceptionWithFileAndLine(
+                        rhsIdentifier.getFile(),
+                        rhsIdentifier.getLine(),
+                        "Couldn't find property or method '" + rhsIdentifier.getText() + "' on instance.");
+            }
+            final var slot = inlineCache.getSlot(index);
+            return slot != -1
+                    ? instance.getPropertyAt(slot)
+                    : new BoundMethod(instance, inlineCache.getMethod(index));
+        }
+
+        if ((lhsExpressionResult instanceof JocksClass jClass)) {
+            // Return the method if it exists.
+            final var index = inlineCache.lookup(jClass, rhsIdentifier.getText());
+            if (index == -1) {
+                throw _exceptionFactory.createExceptionWithFileAndLine(
+                        rhsIdentifier.getFile(),
+                        rhsIdentifier.getLine(),
+                        "Couldn't find method '%s' on class '%s'.",
+                        rhsIdentifier.getText(),
+                        jClass.getIdentifier());
+            }
+            return inlineCache.getMethod(index);
+        }
+
+        throw _exceptionFactory.createExceptionWithFileAndLine(
+                rhsIdentifier.getFile(),
+                rhsIdentifier.getLine(),
+                "Left sub expression of '.' expression did not evaluate to an instance or class.");
+    }
+
+    private CompiledFunction.Prototype compilePrototype(String functionName, FunDeclaration statement) {
+        return new CompiledFunction.Prototype(
+                functionName,
+                statement.getParameters().stream().map(Token::getText).toArray(String[]::new),
+                statement.getParameterSymbolTableSlots(),
+                statement.getParameterVariableKinds(),
+                statement.getSymbolTableSize(),
+                statement.getCaptures(),
+                compileAll(statement.getStatements()));
+    }
+
+    private CompiledFunction createFunction(Frame frame, CompiledFunction.Prototype prototype) {
+        final var captures = prototype.captures();
+        final var upvalues = new Cell[captures.size()];
+        for (int i = 0; i < upvalues.length; i++) {
+            final var capture = captures.get(i);
+            upvalues[i] = capture.getIsCell()
+                    ? frame.symbolTable.getAncestor(capture.getSymbolTableDepth()).getCell(capture.getIndex())
+                    : frame.upvalues[capture.getIndex()];
+        }
+        return new CompiledFunction(prototype, upvalues, _exceptionFactory);
+    }
+
+    private ExpressionNode createGetter(VariableKind kind, int depth, int slot) {
+        return switch (kind) {
+            case GLOBAL -> (frame) -> _globals.getVariable(slot);
+            case LOCAL -> depth == 0
+                    ? (frame) -> frame.symbolTable.getVariable(slot)
+                    : (frame) -> frame.symbolTable.getAncestor(depth).getVariable(slot);
+            case CELL -> depth == 0
+                    ? (frame) -> frame.symbolTable.getCell(slot).get()
+                    : (frame) -> frame.symbolTable.getAncestor(depth).getCell(slot).get();
+            case UPVALUE -> (frame) -> frame.upvalues[slot].get();
+        };
+    }
+
+    private VariableSetter createSetter(VariableKind kind, int depth, int slot) {
+        return switch (kind) {
+            case GLOBAL -> (frame, value) -> _globals.setVariable(slot, value);
+            case LOCAL -> depth == 0
+                    ? (frame, value) -> frame.symbolTable.setVariable(slot, value)
+                    : (frame, value) -> frame.symbolTable.getAncestor(depth).setVariable(slot, value);
+            case CELL -> depth == 0
+                    ? (frame, value) -> frame.symbolTable.getCell(slot).set(value)
+                    : (frame, value) -> frame.symbolTable.getAncestor(depth).getCell(slot).set(value);
+            case UPVALUE -> (frame, value) -> frame.upvalues[slot].set(value);
+        };
+    }
+
+    // Variables are always created in the current scope, so are never upvalues.
+    private VariableSetter createCreator(VariableKind kind, int slot, String identifier) {
+        return switch (kind) {
+            case GLOBAL -> (frame, value) -> _globals.createVariable(slot, identifier, value);
+            case LOCAL -> (frame, value) -> frame.symbolTable.createVariable(slot, identifier, value);
+            case CELL -> (frame, value) -> frame.symbolTable.createCell(slot, identifier, value);
+            case UPVALUE -> throw new IllegalStateException("Can not create a variable as an upvalue.");
+        };
+    }
+
+    private final int _maxCallDepth;
+    private final CallStack _callStack = new CallStack();
+    private final ExceptionFactory _exceptionFactory = new ExceptionFactory(_callStack);
+    private final SymbolTable _globals = new SymbolTable(null, 0, _exceptionFactory);
+    private boolean _isThrowing = false;
+}
@@ -0,0 +1,119 @@
+package com.colossalg.compiler;
+
+import com.colossalg.VariableKind;
+import com.colossalg.dataTypes.JocksValue;
+import com.colossalg.dataTypes.functions.JocksFunction;
+import com.colossalg.dataTypes.primitives.JocksNil;
+import com.colossalg.statement.Capture;
+import com.colossalg.visitors.Cell;
+import com.colossalg.visitors.ExceptionFactory;
+import com.colossalg.visitors.SymbolTable;
+
+import java.util.List;
+
+final class CompiledFunction extends JocksFunction {
+
+    // Everything known about a function once its declaration has been compiled. A function is
+    // created from its prototype, capturing its upvalues, each time the declaration is executed.
+    record Prototype(
+            String name,
+            String[] parameters,
+            int[] parameterSlots,
+            VariableKind[] parameterKinds,
+            int symbolTableSize,
+            List<Capture> captures,
+            StatementNode body
+    ) {}
+
+    CompiledFunction(Prototype prototype, Cell[] upvalues, ExceptionFactory exceptionFactory) {
+        super(prototype.name());
+        _prototype = prototype;
+        _upvalues = upvalues;
+        _exceptionFactory = exceptionFactory;
+    }
+
+    @Override
+    public String str() {
+        // Compiled functions are user land functions as far as Jocks programs are concerned.
+        return String.format("JocksUserLandFunction(%s)", getName());
+    }
+
+    @Override
+    public int getArity() {
+        return _prototype.parameters().length;
+    }
+
+    @Override
+    public JocksValue call(JocksValue[] arguments) {
+        final var symbolTable = createSymbolTable();
+        for (int i = 0; i < arguments.length; i++) {
+            bindParameter(symbolTable, i, arguments[i]);
+        }
+        return execute(symbolTable);
+    }
+
+    @Override
+    public JocksValue call0() {
+        return execute(createSymbolTable());
+    }
+
+    @Override
+    public JocksValue call1(JocksValue argument0) {
+        final var symbolTable = createSymbolTable();
+        bindParameter(symbolTable, 0, argument0);
+        return execute(symbolTable);
+    }
+
+    @Override
+    public JocksValue call2(JocksValue argument0, JocksValue argument1) {
+        final var symbolTable = createSymbolTable();
+        bindParameter(symbolTable, 0, argument0);
+        bindParameter(symbolTable, 1, argument1);
+        return execute(symbolTable);
+    }
+
+    @Override
+    public JocksValue call3(JocksValue argument0, JocksValue argument1, JocksValue argument2) {
+        final var symbolTable = createSymbolTable();
+        bindParameter(symbolTable, 0, argument0);
+        bindParameter(symbolTable, 1, argument1);
+        bindParameter(symbolTable, 2, argument2);
+        return execute(symbolTable);
+    }
+
+    SymbolTable createSymbolTable() {
+        return new SymbolTable(null, _prototype.symbolTableSize(), _exceptionFactory);
+    }
+
+    void bindParameter(SymbolTable symbolTable, int index, JocksValue argument) {
+        if (_prototype.parameterKinds()[index] == VariableKind.CELL) {
+            symbolTable.createCell(_prototype.parameterSlots()[index], _prototype.parameters()[index], argument);
+        } else {
+            symbolTable.createVariable(_prototype.parameterSlots()[index], _prototype.parameters()[index], argument);
+        }
+    }
+
+    // The symbol table should be created by createSymbolTable with the function's parameters bound.
+    private JocksValue execute(SymbolTable symbolTable) {
+        final var frame = new Frame(symbolTable, _upvalues);
+        var result = _prototype.body().execute(frame);
+        // Tail calls are made from here, once the caller has returned, so that a chain of them
+        // runs in constant stack.
+        while (frame.tailCallFunction != null) {
+            final var function = frame.tailCallFunction;
+            frame.symbolTable = frame.tailCallSymbolTable;
+            frame.upvalues = function._upvalues;
+            frame.tailCallFunction = null;
+            frame.tailCallSymbolTable = null;
+
+            result = function._prototype.body().execute(frame);
+        }
+        return result != null
+                ? result
+                : JocksNil.Instance;
+    }
+
+    private final Prototype _prototype;
+    private final Cell[] _upvalues;
+    private final ExceptionFactory _exceptionFactory;
+}
@@ -0,0 +1,10 @@
+package com.colossalg.compiler;
+
+import com.colossalg.dataTypes.JocksValue;
+
+// An expression compiled by the ClosureCompiler.
+@FunctionalInterface
+interface ExpressionNode {
+
+    JocksValue evaluate(Frame frame);
+}
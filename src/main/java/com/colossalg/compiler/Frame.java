@@ -0,0 +1,22 @@
+package com.colossalg.compiler;
+
+import com.colossalg.visitors.Cell;
+import com.colossalg.visitors.SymbolTable;
+
+// The state of a single call to a compiled function (or of the script itself).
+//
+// Each call has a frame of its own, so the frames of the calls exited when a thrown value
+// unwinds the Java stack are simply discarded, and only the symbol table of the frame in
+// which the value is caught need be restored.
+final class Frame {
+
+    Frame(SymbolTable symbolTable, Cell[] upvalues) {
+        this.symbolTable = symbolTable;
+        this.upvalues = upvalues;
+    }
+
+    SymbolTable symbolTable;
+    Cell[] upvalues;
+    CompiledFunction tailCallFunction;  // Made in place of the current function once it has returned.
+    SymbolTable tailCallSymbolTable;    // The symbol table of the tail call, with its parameters bound.
+}
@@ -0,0 +1,14 @@
+package com.colossalg.compiler;
+
+import com.colossalg.dataTypes.JocksValue;
+
+// A statement compiled by the ClosureCompiler.
+//
+// Executing a statement returns null if control reaches its end, otherwise the value returned
+// by the return statement which ended it, so a return unwinds through the enclosing statements
+// without throwing.
+@FunctionalInterface
+interface StatementNode {
+
+    JocksValue execute(Frame frame);
+}
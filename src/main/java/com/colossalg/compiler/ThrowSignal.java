@@ -0,0 +1,21 @@
+package com.colossalg.compiler;
+
+import com.colossalg.dataTypes.JocksValue;
+
+// Unwinds the Java stack from a throw statement to the enclosing try/catch statement, which may
+// be any number of calls away. The stack trace is never used, so it isn't captured.
+final class ThrowSignal extends RuntimeException {
+
+    ThrowSignal(JocksValue thrownValue) {
+        super(null, null, false, false);
+        _thrownValue = thrownValue;
+    }
+
+    JocksValue getThrownValue() {
+        return _thrownValue;
+    }
+
+    private final transient JocksValue _thrownValue;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -1,15 +1,7 @@
 package com.colossalg.dataTypes;
 
-import java.util.Optional;
-
 public abstract class JocksValue {
 
-    public static <T> Optional<T> cast(JocksValue value, Class<T> type) {
-        return type.isAssignableFrom(value.getClass())
-                ? Optional.of(type.cast(value))
-                : Optional.empty();
-    }
-
     public String str() {
         throw new UnsupportedOperationException("Str is not implemented by " + getClass().getName());
     }
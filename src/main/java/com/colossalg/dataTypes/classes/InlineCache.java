@@ -0,0 +1,107 @@
+package com.colossalg.dataTypes.classes;
+
+import com.colossalg.dataTypes.JocksValue;
+import com.colossalg.dataTypes.functions.JocksFunction;
+
+// Remembers the outcome of property and method lookups at a single '.' expression.
+//
+// Entries are keyed on the receiver's shape (for instances) or class (for classes), both of which
+// fully determine the result of a lookup of a given identifier, so an entry never goes stale.
+// Each entry holds one of:
+//  - The slot of an existing property.
+//  - The method found when the shape has no such property (slot is -1).
+//  - The shape transitioned to when assigning a new property, along with its slot.
+//
+// Up to MAX_ENTRIES receivers are remembered, after which the last entry is replaced on each miss.
+public class InlineCache {
+
+    public static final int MAX_ENTRIES = 4;
+
+    // Returns the index of the entry for the instance's shape, looking up the property or method
+    // on a miss, or -1 if the instance has neither.
+    public int lookup(JocksInstance instance, String identifier) {
+        final var shape = instance.getShape();
+        final var index = find(shape);
+        if (index != -1) {
+            return index;
+        }
+        final var slot = shape.getSlot(identifier);
+        if (slot != -1) {
+            return add(shape, slot, null, null);
+        }
+        final var method = shape.getJClass().getMethodRecursive(identifier);
+        return method.isPresent()
+                ? add(shape, -1, method.get(), null)
+                : -1;
+    }
+
+    // Returns the index of the entry for the class, looking up the method on a miss,
+    // or -1 if the class has no such method.
+    public int lookup(JocksClass jClass, String identifier) {
+        final var index = find(jClass);
+        if (index != -1) {
+            return index;
+        }
+        final var method = jClass.getMethodRecursive(identifier);
+        return method.isPresent()
+                ? add(jClass, -1, method.get(), null)
+                : -1;
+    }
+
+    public void assign(JocksInstance instance, String identifier, JocksValue value) {
+        final var shape = instance.getShape();
+        var index = find(shape);
+        // A site is only ever used for either lookups or assignments, so any entry
+        // found here is either a property or a transition rather than a method.
+        if (index == -1) {
+            final var slot = shape.getSlot(identifier);
+            index = slot != -1
+                    ? add(shape, slot, null, null)
+                    : addTransition(shape, shape.getTransition(identifier));
+        }
+        final var transition = _transitions[index];
+        if (transition == null) {
+            instance.setPropertyAt(_slots[index], value);
+        } else {
+            instance.addProperty(transition, value);
+        }
+    }
+
+    public int getSlot(int index) {
+        return _slots[index];
+    }
+
+    public JocksFunction getMethod(int index) {
+        return _methods[index];
+    }
+
+    private int find(Object key) {
+        for (int i = 0; i < _size; i++) {
+            if (_keys[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int addTransition(Shape shape, Shape transition) {
+        return add(shape, transition.getSize() - 1, null, transition);
+    }
+
+    private int add(Object key, int slot, JocksFunction method, Shape transition) {
+        final var index = _size < MAX_ENTRIES
+                ? _size++
+                : MAX_ENTRIES - 1;
+        _keys[index] = key;
+        _slots[index] = slot;
+        _methods[index] = method;
+        _transitions[index] = transition;
+        return index;
+    }
+
+    private final Object[] _keys = new Object[MAX_ENTRIES];
+    private final int[] _slots = new int[MAX_ENTRIES];
+    private final JocksFunction[] _methods = new JocksFunction[MAX_ENTRIES];
+    private final Shape[] _transitions = new Shape[MAX_ENTRIES];
+    private int _size = 0;
+}
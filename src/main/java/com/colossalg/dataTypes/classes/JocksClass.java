@@ -1,13 +1,15 @@
 package com.colossalg.dataTypes.classes;
 
+import com.colossalg.TokenType;
 import com.colossalg.builtin.functions.NoopConstructor;
 import com.colossalg.dataTypes.JocksValue;
 import com.colossalg.dataTypes.functions.JocksFunction;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Optional;
 
-public class JocksClass extends JocksValue {
+public final class JocksClass extends JocksValue {
 
     public JocksClass(String identifier, JocksClass superClass, HashMap<String, JocksFunction> methods) {
         _identifier = identifier;
@@ -17,6 +19,31 @@ public class JocksClass extends JocksValue {
         if (getMethod("__init__").isEmpty()) {
             _methods.put("__init__", new NoopConstructor(identifier));
         }
+        _initMethod = _methods.get("__init__");
+
+        // Classes can't be modified once created, so the methods inherited from the super
+        // classes are flattened into a single table up front rather than walked per lookup.
+        _methodTable = superClass == null
+                ? new HashMap<>()
+                : new HashMap<>(superClass._methodTable);
+        _methodTable.putAll(_methods);
+
+        // Likewise, the methods overloading operators are resolved up front.
+        for (final var operator : JocksInstance.OVERLOADABLE_BINARY_OPERATORS) {
+            final var method = _methodTable.get(JocksInstance.binaryOperatorTypeToMethodString(operator));
+            if (method != null) {
+                _binaryOperatorMethods.put(operator, method);
+            }
+        }
+        for (final var operator : JocksInstance.OVERLOADABLE_UNARY_OPERATORS) {
+            final var method = _methodTable.get(JocksInstance.unaryOperatorTypeToMethodString(operator));
+            if (method != null) {
+                _unaryOperatorMethods.put(operator, method);
+            }
+        }
+
+        // Created last, as the shape holds a reference to the (fully constructed) class.
+        _rootShape = new Shape(this);
     }
 
     @Override
@@ -25,26 +52,54 @@ public class JocksClass extends JocksValue {
     }
 
     public JocksInstance createInstance() {
-        return new JocksInstance(this);
+        return new JocksInstance(_rootShape, _instanceSizeHint);
     }
 
     public String getIdentifier() {
         return _identifier;
     }
 
+    public JocksClass getSuperClass() {
+        return _superClass;
+    }
+
+    // Returns the method overloading the binary operator, or null if it isn't overloaded.
+    public JocksFunction getBinaryOperatorMethod(TokenType operator) {
+        return _binaryOperatorMethods.get(operator);
+    }
+
+    // Returns the method overloading the unary operator, or null if it isn't overloaded.
+    public JocksFunction getUnaryOperatorMethod(TokenType operator) {
+        return _unaryOperatorMethods.get(operator);
+    }
+
+    // Instances are allocated with room for as many properties as any instance
+    // of the class has had so far, so that they rarely need to be grown.
+    public void updateInstanceSizeHint(int size) {
+        _instanceSizeHint = Math.max(_instanceSizeHint, size);
+    }
+
+    // Every class has an '__init__' method, which is a no-op unless one is declared.
+    public JocksFunction getInitMethod() {
+        return _initMethod;
+    }
+
     public Optional<JocksFunction> getMethod(String identifier) {
         return Optional.ofNullable(
                 _methods.getOrDefault(identifier, null));
     }
 
     public Optional<JocksFunction> getMethodRecursive(String identifier) {
-        return getMethod(identifier)
-                .or(() -> _superClass == null
-                    ? Optional.empty()
-                    : _superClass.getMethodRecursive(identifier));
+        return Optional.ofNullable(_methodTable.get(identifier));
     }
 
     private final String _identifier;
     private final JocksClass _superClass;
     private final HashMap<String, JocksFunction> _methods;
+    private final HashMap<String, JocksFunction> _methodTable;
+    private final JocksFunction _initMethod;
+    private final EnumMap<TokenType, JocksFunction> _binaryOperatorMethods = new EnumMap<>(TokenType.class);
+    private final EnumMap<TokenType, JocksFunction> _unaryOperatorMethods = new EnumMap<>(TokenType.class);
+    private final Shape _rootShape;
+    private int _instanceSizeHint = 0;
 }
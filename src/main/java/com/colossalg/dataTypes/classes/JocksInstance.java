@@ -5,12 +5,28 @@ import com.colossalg.builtin.functions.BoundMethod;
 import com.colossalg.dataTypes.JocksValue;
 import com.colossalg.dataTypes.functions.JocksFunction;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 public class JocksInstance extends JocksValue {
 
+    public static final List<TokenType> OVERLOADABLE_BINARY_OPERATORS = List.of(
+            TokenType.EQUAL_EQUAL,
+            TokenType.BANGS_EQUAL,
+            TokenType.LESS_THAN,
+            TokenType.LESS_THAN_OR_EQUAL,
+            TokenType.MORE_THAN,
+            TokenType.MORE_THAN_OR_EQUAL,
+            TokenType.ADD,
+            TokenType.SUB,
+            TokenType.MUL,
+            TokenType.DIV);
+
+    public static final List<TokenType> OVERLOADABLE_UNARY_OPERATORS = List.of(
+            TokenType.ADD,
+            TokenType.SUB);
+
     public static String binaryOperatorTypeToSourceString(TokenType operator) {
         return switch (operator) {
             case TokenType.EQUAL_EQUAL -> "==";
@@ -59,17 +75,18 @@ public class JocksInstance extends JocksValue {
         };
     }
 
-    public JocksInstance(JocksClass jClass) {
-        _class = jClass;
+    public JocksInstance(Shape shape, int capacity) {
+        _shape = shape;
+        _values = new JocksValue[capacity];
     }
 
     @Override
     public String str() {
         final var strMethod = getMethod("__str__");
         if (strMethod.isPresent()) {
-            return strMethod.get().call(new ArrayList<>()).str();
+            return strMethod.get().call0().str();
         } else {
-            return String.format("Instance(%s)", _class.getIdentifier());
+            return String.format("Instance(%s)", getJClass().getIdentifier());
         }
     }
 
@@ -134,28 +151,41 @@ public class JocksInstance extends JocksValue {
     }
 
     public JocksClass getJClass() {
-        return _class;
+        return _shape.getJClass();
+    }
+
+    public Shape getShape() {
+        return _shape;
     }
 
-    public Optional<JocksValue> getProperty(String identifier) {
-        return Optional.ofNullable(
-                _properties.getOrDefault(identifier, null));
+    public JocksValue getPropertyAt(int slot) {
+        return _values[slot];
     }
 
-    public void setProperty(String identifier, JocksValue value) {
-        _properties.put(identifier, value);
+    public void setPropertyAt(int slot, JocksValue value) {
+        _values[slot] = value;
+    }
+
+    // Adds a new property, given the transition from the current shape which adds it.
+    public void addProperty(Shape transition, JocksValue value) {
+        final var slot = transition.getSize() - 1;
+        if (slot == _values.length) {
+            _values = Arrays.copyOf(_values, Math.max(4, _values.length * 2));
+        }
+        _shape = transition;
+        _values[slot] = value;
     }
 
     public Optional<JocksFunction> getMethod(String identifier) {
-        return _class.getMethodRecursive(identifier)
+        return getJClass().getMethodRecursive(identifier)
                 .map((method) -> new BoundMethod(this, method));
     }
 
     private JocksValue executeOverloadedBinaryOperator(TokenType operator, JocksValue other) {
-        final var method = getMethod(binaryOperatorTypeToMethodString(operator));
-        if (method.isPresent()) {
-            final var args = new ArrayList<JocksValue>() {{ add(other); }};
-            return method.get().call(args);
+        final var method = getJClass().getBinaryOperatorMethod(operator);
+        if (method != null) {
+            // Equivalent to calling the bound method, without needing to create it.
+            return method.call2(this, other);
         } else {
             throw new UnsupportedOperationException(
                     String.format(
@@ -163,15 +193,16 @@ public class JocksInstance extends JocksValue {
                             The '%s' operator has not been overridden for the class '%s' or any of its super classes.
                             Consider implementing the '%s' method to fix this error.""",
                             binaryOperatorTypeToSourceString(operator),
-                            _class.getIdentifier(),
+                            getJClass().getIdentifier(),
                             binaryOperatorTypeToMethodString(operator)));
         }
     }
 
     private JocksValue executeOverloadedUnaryOperator(TokenType operator) {
-        final var method = getMethod(unaryOperatorTypeToMethodString(operator));
-        if (method.isPresent()) {
-            return method.get().call(new ArrayList<>());
+        final var method = getJClass().getUnaryOperatorMethod(operator);
+        if (method != null) {
+            // Equivalent to calling the bound method, without needing to create it.
+            return method.call1(this);
         } else {
             throw new UnsupportedOperationException(
                     String.format(
@@ -179,11 +210,11 @@ public class JocksInstance extends JocksValue {
                             The '%s' operator has not been overridden for the class '%s' or any of its super classes.
                             Consider implementing the '%s' method to fix this error.""",
                             unaryOperatorTypeToSourceString(operator),
-                            _class.getIdentifier(),
+                            getJClass().getIdentifier(),
                             unaryOperatorTypeToMethodString(operator)));
         }
     }
 
-    private final JocksClass _class;
-    private final HashMap<String, JocksValue> _properties = new HashMap<>();
+    private Shape _shape;
+    private JocksValue[] _values;
 }
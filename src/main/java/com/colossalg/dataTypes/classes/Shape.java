@@ -0,0 +1,50 @@
+package com.colossalg.dataTypes.classes;
+
+import java.util.HashMap;
+
+// Describes the layout of an instance's properties, mapping each property's identifier to the
+// index at which its value is stored in the instance.
+//
+// Shapes are shared between all instances of a class that had the same properties added in the
+// same order, starting from the class's root shape (no properties) and following a transition
+// for each property added. Shapes are immutable once created other than their transitions.
+public class Shape {
+
+    public Shape(JocksClass jClass) {
+        _class = jClass;
+        _slots = new HashMap<>();
+    }
+
+    private Shape(Shape parent, String identifier) {
+        _class = parent._class;
+        _slots = new HashMap<>(parent._slots);
+        _slots.put(identifier, _slots.size());
+    }
+
+    public JocksClass getJClass() {
+        return _class;
+    }
+
+    public int getSize() {
+        return _slots.size();
+    }
+
+    public int getSlot(String identifier) {
+        final var slot = _slots.get(identifier);
+        return slot == null ? -1 : slot;
+    }
+
+    public Shape getTransition(String identifier) {
+        var transition = _transitions.get(identifier);
+        if (transition == null) {
+            transition = new Shape(this, identifier);
+            _transitions.put(identifier, transition);
+            _class.updateInstanceSizeHint(transition.getSize());
+        }
+        return transition;
+    }
+
+    private final JocksClass _class;
+    private final HashMap<String, Integer> _slots;
+    private final HashMap<String, Shape> _transitions = new HashMap<>();
+}
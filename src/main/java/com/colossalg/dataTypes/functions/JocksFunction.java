@@ -2,10 +2,14 @@ package com.colossalg.dataTypes.functions;
 
 import com.colossalg.dataTypes.JocksValue;
 
-import java.util.List;
-
+// Functions may be called either with an array of arguments, or through the entry point
+// specialised for the number of arguments (for up to three), which callers should prefer
+// as it avoids allocating the array. By default the specialised entry points delegate to
+// the array based one, so functions need only override those which they can do better.
 public abstract class JocksFunction extends JocksValue {
 
+    public static final JocksValue[] NO_ARGUMENTS = new JocksValue[0];
+
     public JocksFunction(String name) {
         _name = name;
     }
@@ -16,7 +20,23 @@ public abstract class JocksFunction extends JocksValue {
 
     public abstract int getArity();
 
-    public abstract JocksValue call(List<JocksValue> arguments);
+    public abstract JocksValue call(JocksValue[] arguments);
+
+    public JocksValue call0() {
+        return call(NO_ARGUMENTS);
+    }
+
+    public JocksValue call1(JocksValue argument0) {
+        return call(new JocksValue[] { argument0 });
+    }
+
+    public JocksValue call2(JocksValue argument0, JocksValue argument1) {
+        return call(new JocksValue[] { argument0, argument1 });
+    }
+
+    public JocksValue call3(JocksValue argument0, JocksValue argument1, JocksValue argument2) {
+        return call(new JocksValue[] { argument0, argument1, argument2 });
+    }
 
     private final String _name;
 }
@@ -1,5 +1,9 @@
 package com.colossalg.dataTypes.functions;
 
+import com.colossalg.dataTypes.JocksValue;
+
+// Java land functions all have a fixed arity, so implement only the entry point for it,
+// which calls with an array of arguments are forwarded to.
 public abstract class JocksJavaLandFunction extends JocksFunction {
 
     public JocksJavaLandFunction(String name) {
@@ -10,4 +14,40 @@ public abstract class JocksJavaLandFunction extends JocksFunction {
     public String str() {
         return String.format("JocksJavaLandFunction(%s)", getName());
     }
+
+    @Override
+    public JocksValue call(JocksValue[] arguments) {
+        return switch (arguments.length) {
+            case 0 -> call0();
+            case 1 -> call1(arguments[0]);
+            case 2 -> call2(arguments[0], arguments[1]);
+            case 3 -> call3(arguments[0], arguments[1], arguments[2]);
+            default -> throw unexpectedArgumentCount(arguments.length);
+        };
+    }
+
+    @Override
+    public JocksValue call0() {
+        throw unexpectedArgumentCount(0);
+    }
+
+    @Override
+    public JocksValue call1(JocksValue argument0) {
+        throw unexpectedArgumentCount(1);
+    }
+
+    @Override
+    public JocksValue call2(JocksValue argument0, JocksValue argument1) {
+        throw unexpectedArgumentCount(2);
+    }
+
+    @Override
+    public JocksValue call3(JocksValue argument0, JocksValue argument1, JocksValue argument2) {
+        throw unexpectedArgumentCount(3);
+    }
+
+    private IllegalStateException unexpectedArgumentCount(int argumentCount) {
+        return new IllegalStateException(
+                String.format("%s() expects %d arguments but was called with %d.", getName(), getArity(), argumentCount));
+    }
 }
@@ -1,26 +1,46 @@
 package com.colossalg.dataTypes.functions;
 
+import com.colossalg.VariableKind;
 import com.colossalg.dataTypes.JocksValue;
+import com.colossalg.jit.CompiledCode;
+import com.colossalg.statement.FunDeclaration;
 import com.colossalg.statement.Statement;
+import com.colossalg.visitors.Cell;
 import com.colossalg.visitors.Interpreter;
 import com.colossalg.visitors.SymbolTable;
 
 import java.util.List;
 
+// Functions are interpreted until they're hot, having been called (or having iterated a loop)
+// as many times as the Interpreter's JIT threshold, and are then compiled by the JitCompiler.
+// Functions which can't be compiled continue to be interpreted. Functions which a previous run
+// of the program found to be hot (see JitProfile) are compiled on their first call.
 public class JocksUserLandFunction extends JocksFunction {
 
     public JocksUserLandFunction(
             String name,
             List<String> parameters,
+            int[] parameterSlots,
+            VariableKind[] parameterKinds,
             List<Statement> statements,
-            SymbolTable symbolTable,
+            int symbolTableSize,
+            Cell[] upvalues,
+            FunDeclaration declaration,
             Interpreter interpreter
     ) {
         super(name);
         _parameters = parameters;
+        _parameterSlots = parameterSlots;
+        _parameterKinds = parameterKinds;
         _statements = statements;
-        _symbolTable = symbolTable;
+        _symbolTableSize = symbolTableSize;
+        _upvalues = upvalues;
+        _declaration = declaration;
         _interpreter = interpreter;
+        _isNotCompilable = interpreter.getJitThreshold() == 0;
+        if (interpreter.isProfiledAsHot(declaration)) {
+            _hotness = interpreter.getJitThreshold() - 1;
+        }
     }
 
     @Override
@@ -33,25 +53,131 @@ public class JocksUserLandFunction extends JocksFunction {
         return _parameters.size();
     }
 
+    // Compiled code may prepare a tail call before returning, which is then made here (whereas the
+    // Interpreter makes those of interpreted functions as they return, see executeUserLandFunction).
     @Override
-    public JocksValue call(List<JocksValue> arguments) {
-        return _interpreter.executeUserLandFunction(this, arguments);
+    public JocksValue call(JocksValue[] arguments) {
+        if (isCompiled()) {
+            return _interpreter.makeTailCalls(_compiledCode.call(arguments));
+        }
+        final var symbolTable = _interpreter.createSymbolTable(this);
+        for (int i = 0; i < arguments.length; i++) {
+            bindParameter(symbolTable, i, arguments[i]);
+        }
+        return _interpreter.executeUserLandFunction(this, symbolTable);
+    }
+
+    @Override
+    public JocksValue call0() {
+        if (isCompiled()) {
+            return _interpreter.makeTailCalls(_compiledCode.call0());
+        }
+        return _interpreter.executeUserLandFunction(this, _interpreter.createSymbolTable(this));
+    }
+
+    @Override
+    public JocksValue call1(JocksValue argument0) {
+        if (isCompiled()) {
+            return _interpreter.makeTailCalls(_compiledCode.call1(argument0));
+        }
+        final var symbolTable = _interpreter.createSymbolTable(this);
+        bindParameter(symbolTable, 0, argument0);
+        return _interpreter.executeUserLandFunction(this, symbolTable);
+    }
+
+    @Override
+    public JocksValue call2(JocksValue argument0, JocksValue argument1) {
+        if (isCompiled()) {
+            return _interpreter.makeTailCalls(_compiledCode.call2(argument0, argument1));
+        }
+        final var symbolTable = _interpreter.createSymbolTable(this);
+        bindParameter(symbolTable, 0, argument0);
+        bindParameter(symbolTable, 1, argument1);
+        return _interpreter.executeUserLandFunction(this, symbolTable);
+    }
+
+    @Override
+    public JocksValue call3(JocksValue argument0, JocksValue argument1, JocksValue argument2) {
+        if (isCompiled()) {
+            return _interpreter.makeTailCalls(_compiledCode.call3(argument0, argument1, argument2));
+        }
+        final var symbolTable = _interpreter.createSymbolTable(this);
+        bindParameter(symbolTable, 0, argument0);
+        bindParameter(symbolTable, 1, argument1);
+        bindParameter(symbolTable, 2, argument2);
+        return _interpreter.executeUserLandFunction(this, symbolTable);
     }
 
     public List<String> getParameters() {
         return _parameters;
     }
 
+    public int[] getParameterSlots() {
+        return _parameterSlots;
+    }
+
+    public VariableKind[] getParameterKinds() {
+        return _parameterKinds;
+    }
+
     public List<Statement> getStatements() {
         return _statements;
     }
 
-    public SymbolTable getSymbolTable() {
-        return _symbolTable;
+    public int getSymbolTableSize() {
+        return _symbolTableSize;
+    }
+
+    public Cell[] getUpvalues() {
+        return _upvalues;
+    }
+
+    public FunDeclaration getDeclaration() {
+        return _declaration;
+    }
+
+    // Null unless the function has been compiled (see isCompiled).
+    public CompiledCode getCompiledCode() {
+        return _compiledCode;
+    }
+
+    public void bindParameter(SymbolTable symbolTable, int index, JocksValue argument) {
+        if (_parameterKinds[index] == VariableKind.CELL) {
+            symbolTable.createCell(_parameterSlots[index], _parameters.get(index), argument);
+        } else {
+            symbolTable.createVariable(_parameterSlots[index], _parameters.get(index), argument);
+        }
+    }
+
+    // Called by the Interpreter on each iteration of a loop within the function, so that functions
+    // which are called rarely but spend their time in loops are compiled too.
+    public void recordLoopIteration() {
+        _hotness++;
+    }
+
+    // Compiles the function once it becomes hot, returning whether it has been compiled. Each call
+    // counts towards the function becoming hot, so this should be checked once per call.
+    public boolean isCompiled() {
+        if (_compiledCode != null) {
+            return true;
+        }
+        if (_isNotCompilable || ++_hotness < _interpreter.getJitThreshold()) {
+            return false;
+        }
+        _compiledCode = _interpreter.compile(this);
+        _isNotCompilable = _compiledCode == null;
+        return !_isNotCompilable;
     }
 
     private final List<String> _parameters;
+    private final int[] _parameterSlots;
+    private final VariableKind[] _parameterKinds;
     private final List<Statement> _statements;
-    private final SymbolTable _symbolTable;
+    private final int _symbolTableSize;
+    private final Cell[] _upvalues;
+    private final FunDeclaration _declaration;
     private final Interpreter _interpreter;
+    private int _hotness = 0;
+    private CompiledCode _compiledCode = null;
+    private boolean _isNotCompilable;
 }
@@ -2,10 +2,32 @@ package com.colossalg.dataTypes.primitives;
 
 import com.colossalg.dataTypes.JocksValue;
 
+// Numbers are always doubles as far as Jocks programs are concerned, which represent every integer
+// of up to 53 bits exactly. Rather than allocating a new number for each result, integral values in
+// the range [MIN_CACHED, MAX_CACHED] share an instance (created on first use), so that counters and
+// indices don't generate an object per operation. Numbers should be created through valueOf.
 public class JocksNumber extends JocksValue {
 
-    public JocksNumber(double data) {
-        _data = data;
+    public static final int MIN_CACHED = -1024;
+    public static final int MAX_CACHED = 65535;
+
+    public static JocksNumber valueOf(double data) {
+        final var integral = (int)data;
+        // Negative zero is integral but isn't cached, as it prints differently to zero.
+        if (integral == data
+                && integral >= MIN_CACHED
+                && integral <= MAX_CACHED
+                && (integral != 0 || Double.doubleToRawLongBits(data) == 0)) {
+            final var index = integral - MIN_CACHED;
+            var number = Cache[index];
+            if (number == null) {
+                // Numbers are compared by value, so it doesn't matter if two threads race to create one.
+                number = new JocksNumber(integral);
+                Cache[index] = number;
+            }
+            return number;
+        }
+        return new JocksNumber(data);
     }
 
     @Override
@@ -61,30 +83,30 @@ public class JocksNumber extends JocksValue {
     @Override
     public JocksValue add(JocksValue other) {
         assertOtherIsJocksNumber(other);
-        return new JocksNumber(_data + ((JocksNumber)other)._data);
+        return valueOf(_data + ((JocksNumber)other)._data);
     }
 
     @Override
     public JocksValue sub() {
-        return new JocksNumber(-1 * _data);
+        return valueOf(-1 * _data);
     }
 
     @Override
     public JocksValue sub(JocksValue other) {
         assertOtherIsJocksNumber(other);
-        return new JocksNumber(_data - ((JocksNumber)other)._data);
+        return valueOf(_data - ((JocksNumber)other)._data);
     }
 
     @Override
     public JocksValue mul(JocksValue other) {
         assertOtherIsJocksNumber(other);
-        return new JocksNumber(_data * ((JocksNumber)other)._data);
+        return valueOf(_data * ((JocksNumber)other)._data);
     }
 
     @Override
     public JocksValue div(JocksValue other) {
         assertOtherIsJocksNumber(other);
-        return new JocksNumber(_data / ((JocksNumber)other)._data);
+        return valueOf(_data / ((JocksNumber)other)._data);
     }
 
     public double getData() {
@@ -97,5 +119,11 @@ public class JocksNumber extends JocksValue {
         }
     }
 
+    private JocksNumber(double data) {
+        _data = data;
+    }
+
+    private static final JocksNumber[] Cache = new JocksNumber[MAX_CACHED - MIN_CACHED + 1];
+
     private final double _data;
 }
@@ -2,7 +2,7 @@ package com.colossalg.expression;
 
 import com.colossalg.Token;
 
-public class BinaryExpression implements Expression {
+public final class BinaryExpression implements Expression {
 
     public BinaryExpression(
             Token operator,
@@ -1,8 +1,9 @@
 package com.colossalg.expression;
 
 import com.colossalg.Token;
+import com.colossalg.dataTypes.classes.InlineCache;
 
-public class DotExpression implements Expression {
+public final class DotExpression implements Expression {
 
     public DotExpression(Expression lhsExpression, Token rhsIdentifier) {
         _lhsExpression = lhsExpression;
@@ -22,6 +23,11 @@ public class DotExpression implements Expression {
         return _rhsIdentifier;
     }
 
+    public InlineCache getInlineCache() {
+        return _inlineCache;
+    }
+
     private final Expression _lhsExpression;
     private final Token _rhsIdentifier;
+    private final InlineCache _inlineCache = new InlineCache();
 }
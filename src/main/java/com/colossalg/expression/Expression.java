@@ -1,6 +1,17 @@
 package com.colossalg.expression;
 
-public interface Expression {
+// Sealed (and each type of expression is final) so that the Interpreter may dispatch on the exact type.
+public sealed interface Expression permits
+        BinaryExpression,
+        DotExpression,
+        FunInvocation,
+        GroupingExpression,
+        LiteralExpression,
+        LogicalExpression,
+        NewInvocation,
+        UnaryExpression,
+        VarAssignment,
+        VarExpression {
 
     <T> T accept(ExpressionVisitor<T> visitor);
 }
@@ -2,7 +2,7 @@ package com.colossalg.expression;
 
 import java.util.List;
 
-public class FunInvocation implements Expression {
+public final class FunInvocation implements Expression {
 
     public FunInvocation(
             String file,
@@ -1,6 +1,6 @@
 package com.colossalg.expression;
 
-public class GroupingExpression implements Expression {
+public final class GroupingExpression implements Expression {
 
     public GroupingExpression(Expression subExpression) {
         _subExpression = subExpression;
@@ -1,11 +1,28 @@
 package com.colossalg.expression;
 
 import com.colossalg.Token;
+import com.colossalg.dataTypes.JocksValue;
+import com.colossalg.dataTypes.primitives.JocksBool;
+import com.colossalg.dataTypes.primitives.JocksNil;
+import com.colossalg.dataTypes.primitives.JocksNumber;
+import com.colossalg.dataTypes.primitives.JocksString;
 
-public class LiteralExpression implements Expression {
+public final class LiteralExpression implements Expression {
 
     public LiteralExpression(Token token) {
+        this(token, switch (token.getType()) {
+            case STRING -> new JocksString((String)token.getLiteral());
+            case NUMBER -> JocksNumber.valueOf((Double)token.getLiteral());
+            case TRUE -> JocksBool.Truthy;
+            case FALSE -> JocksBool.Falsey;
+            case NIL -> JocksNil.Instance;
+            default -> null;
+        });
+    }
+
+    public LiteralExpression(Token token, JocksValue value) {
         _token = token;
+        _value = value;
     }
 
     @Override
@@ -17,5 +34,13 @@ public class LiteralExpression implements Expression {
         return _token;
     }
 
+    // The value is boxed once up front and shared by every evaluation, which is
+    // safe as values of the primitive types are immutable. Null if the token is
+    // not of a literal type.
+    public JocksValue getValue() {
+        return _value;
+    }
+
     private final Token _token;
+    private final JocksValue _value;
 }
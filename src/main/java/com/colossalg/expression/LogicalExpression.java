@@ -2,7 +2,7 @@ package com.colossalg.expression;
 
 import com.colossalg.Token;
 
-public class LogicalExpression implements Expression {
+public final class LogicalExpression implements Expression {
 
     public LogicalExpression(
             Token operator,
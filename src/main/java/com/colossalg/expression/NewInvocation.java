@@ -1,10 +1,11 @@
 package com.colossalg.expression;
 
 import com.colossalg.Token;
+import com.colossalg.VariableKind;
 
 import java.util.List;
 
-public class NewInvocation implements Expression {
+public final class NewInvocation implements Expression {
 
     public NewInvocation(
             String file,
@@ -23,6 +24,14 @@ public class NewInvocation implements Expression {
         return visitor.visitNewInvocation(this);
     }
 
+    public VariableKind getVariableKind() {
+        return _variableKind;
+    }
+
+    public void setVariableKind(VariableKind variableKind) {
+        _variableKind = variableKind;
+    }
+
     public int getSymbolTableDepth() {
         return _symbolTableDepth;
     }
@@ -31,6 +40,14 @@ public class NewInvocation implements Expression {
         _symbolTableDepth = symbolTableDepth;
     }
 
+    public int getSymbolTableSlot() {
+        return _symbolTableSlot;
+    }
+
+    public void setSymbolTableSlot(int symbolTableSlot) {
+        _symbolTableSlot = symbolTableSlot;
+    }
+
     public String getFile() {
         return _file;
     }
@@ -47,7 +64,9 @@ public class NewInvocation implements Expression {
         return _arguments;
     }
 
+    private VariableKind _variableKind = VariableKind.LOCAL;
     private int _symbolTableDepth = 0;
+    private int _symbolTableSlot = 0;
     private final String _file;
     private final int _line;
     private final Token _identifier;
@@ -2,7 +2,7 @@ package com.colossalg.expression;
 
 import com.colossalg.Token;
 
-public class UnaryExpression implements Expression {
+public final class UnaryExpression implements Expression {
 
     public UnaryExpression(Token operator, Expression subExpression) {
         _operator = operator;
@@ -1,6 +1,6 @@
 package com.colossalg.expression;
 
-public class VarAssignment implements Expression {
+public final class VarAssignment implements Expression {
 
     public VarAssignment(Expression lhsExpression, Expression rhsExpression) {
         _lhsExpression = lhsExpression;
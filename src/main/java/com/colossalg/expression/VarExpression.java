@@ -1,8 +1,9 @@
 package com.colossalg.expression;
 
 import com.colossalg.Token;
+import com.colossalg.VariableKind;
 
-public class VarExpression implements Expression {
+public final class VarExpression implements Expression {
 
     public VarExpression(Token identifier) {
         _identifier = identifier;
@@ -13,6 +14,14 @@ public class VarExpression implements Expression {
         return visitor.visitVarExpression(this);
     }
 
+    public VariableKind getVariableKind() {
+        return _variableKind;
+    }
+
+    public void setVariableKind(VariableKind variableKind) {
+        _variableKind = variableKind;
+    }
+
     public int getSymbolTableDepth() {
         return _symbolTableDepth;
     }
@@ -21,10 +30,20 @@ public class VarExpression implements Expression {
         _symbolTableDepth = symbolTableDepth;
     }
 
+    public int getSymbolTableSlot() {
+        return _symbolTableSlot;
+    }
+
+    public void setSymbolTableSlot(int symbolTableSlot) {
+        _symbolTableSlot = symbolTableSlot;
+    }
+
     public Token getIdentifier() {
         return _identifier;
     }
 
+    private VariableKind _variableKind = VariableKind.LOCAL;
     private int _symbolTableDepth = -1;
+    private int _symbolTableSlot = -1;
     private final Token _identifier;
 }
@@ -0,0 +1,183 @@
+package com.colossalg.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// Writes a class file containing a single class, with methods but no fields or attributes
+// (other than the code of each method).
+//
+// Classes are written at version 49 (Java 5), which is verified by type inference, so
+// the methods needn't carry the stack map frames that later versions require.
+class ClassFileWriter {
+
+    public static final int VERSION = 49;
+
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_FINAL = 0x0010;
+    public static final int ACC_SUPER = 0x0020;
+
+    public ClassFileWriter(String name, String superName) {
+        _thisClass = classRef(name);
+        _superClass = classRef(superName);
+    }
+
+    public CodeBuilder addMethod(int access, String name, String descriptor) {
+        final var code = new CodeBuilder(this, descriptor);
+        _methods.add(new Method(access, utf8(name), utf8(descriptor), code));
+        return code;
+    }
+
+    public byte[] toByteArray() {
+        final var bytes = new ByteArrayOutputStream();
+        try (final var out = new DataOutputStream(bytes)) {
+            final var codeAttributeName = utf8("Code");
+
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(_constantCount);
+            out.write(_constants.toByteArray());
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(_thisClass);
+            out.writeShort(_superClass);
+            out.writeShort(0); // Interfaces
+            out.writeShort(0); // Fields
+            out.writeShort(_methods.size());
+            for (final var method : _methods) {
+                final var code = method.code().getCode();
+                out.writeShort(method.access());
+                out.writeShort(method.name());
+                out.writeShort(method.descriptor());
+                out.writeShort(1);
+                out.writeShort(codeAttributeName);
+                out.writeInt(12 + code.length);
+                out.writeShort(method.code().getMaxStack());
+                out.writeShort(method.code().getMaxLocals());
+                out.writeInt(code.length);
+                out.write(code);
+                out.writeShort(0); // Exception table
+                out.writeShort(0); // Attributes
+            }
+            out.writeShort(0); // Attributes
+        } catch (IOException ex) {
+            throw new IllegalStateException("Couldn't write class file.", ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    public int utf8(String value) {
+        final var key = List.<Object>of(TAG_UTF8, value);
+        var index = _constantIndices.get(key);
+        if (index == null) {
+            index = addConstant(key);
+            try {
+                _constantsOut.writeByte(TAG_UTF8);
+                _constantsOut.writeUTF(value);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Couldn't write constant.", ex);
+            }
+        }
+        return index;
+    }
+
+    public int integer(int value) {
+        final var key = List.<Object>of(TAG_INTEGER, value);
+        var index = _constantIndices.get(key);
+        if (index == null) {
+            index = addConstant(key);
+            writeConstant(TAG_INTEGER, value >>> 16, value & 0xFFFF);
+        }
+        return index;
+    }
+
+    public int classRef(String name) {
+        return indexRef(TAG_CLASS, utf8(name));
+    }
+
+    public int string(String value) {
+        return indexRef(TAG_STRING, utf8(value));
+    }
+
+    public int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(TAG_FIELD_REF, owner, name, descriptor);
+    }
+
+    public int methodRef(String owner, String name, String descriptor) {
+        return memberRef(TAG_METHOD_REF, owner, name, descriptor);
+    }
+
+    public int interfaceMethodRef(String owner, String name, String descriptor) {
+        return memberRef(TAG_INTERFACE_METHOD_REF, owner, name, descriptor);
+    }
+
+    private record Method(int access, int name, int descriptor, CodeBuilder code) {}
+
+    private static final int TAG_UTF8 = 1;
+    private static final int TAG_INTEGER = 3;
+    private static final int TAG_CLASS = 7;
+    private static final int TAG_STRING = 8;
+    private static final int TAG_FIELD_REF = 9;
+    private static final int TAG_METHOD_REF = 10;
+    private static final int TAG_INTERFACE_METHOD_REF = 11;
+    private static final int TAG_NAME_AND_TYPE = 12;
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        final var ownerIndex = classRef(owner);
+        final var nameAndTypeIndex = indexRef(TAG_NAME_AND_TYPE, utf8(name), utf8(descriptor));
+        return indexRef(tag, ownerIndex, nameAndTypeIndex);
+    }
+
+    // Returns the index of a constant which refers to one other constant, adding it if it isn't in the pool.
+    private int indexRef(int tag, int index0) {
+        final var key = List.<Object>of(tag, index0);
+        var index = _constantIndices.get(key);
+        if (index == null) {
+            index = addConstant(key);
+            writeConstant(tag, index0);
+        }
+        return index;
+    }
+
+    // Returns the index of a constant which refers to two other constants, adding it if it isn't in the pool.
+    private int indexRef(int tag, int index0, int index1) {
+        final var key = List.<Object>of(tag, index0, index1);
+        var index = _constantIndices.get(key);
+        if (index == null) {
+            index = addConstant(key);
+            writeConstant(tag, index0, index1);
+        }
+        return index;
+    }
+
+    private int addConstant(List<Object> key) {
+        final var index = _constantCount++;
+        if (index > 0xFFFF) {
+            throw new NotCompilableException("Too many constants.");
+        }
+        _constantIndices.put(key, index);
+        return index;
+    }
+
+    private void writeConstant(int tag, int... shorts) {
+        try {
+            _constantsOut.writeByte(tag);
+            for (final var value : shorts) {
+                _constantsOut.writeShort(value);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Couldn't write constant.", ex);
+        }
+    }
+
+    private final ByteArrayOutputStream _constants = new ByteArrayOutputStream();
+    private final DataOutputStream _constantsOut = new DataOutputStream(_constants);
+    private final HashMap<List<Object>, Integer> _constantIndices = new HashMap<>();
+    private int _constantCount = 1; // The pool is indexed from one.
+    private final List<Method> _methods = new ArrayList<>();
+    private final int _thisClass;
+    private final int _superClass;
+}
@@ -0,0 +1,247 @@
+package com.colossalg.jit;
+
+import java.io.ByteArrayOutputStream;
+
+// Builds the code of a single method, tracking the depth of the operand stack as each
+// instruction is added so that the method's maximum stack size is known once it is built.
+//
+// Only the (small) subset of instructions the JitCompiler emits are supported, and all
+// values are references other than the ints passed as slots and lines.
+class CodeBuilder {
+
+    public static final int MAX_LOCALS = 255;
+    public static final int MAX_CODE_LENGTH = 32767;
+
+    public static final int ACONST_NULL = 0x01;
+    public static final int AALOAD = 0x32;
+    public static final int AASTORE = 0x53;
+    public static final int POP = 0x57;
+    public static final int DUP = 0x59;
+    public static final int IFEQ = 0x99;
+    public static final int IF_ACMPEQ = 0xA5;
+    public static final int IF_ACMPNE = 0xA6;
+    public static final int GOTO = 0xA7;
+    public static final int ARETURN = 0xB0;
+    public static final int RETURN = 0xB1;
+    public static final int ATHROW = 0xBF;
+
+    public CodeBuilder(ClassFileWriter classFile, String descriptor) {
+        _classFile = classFile;
+        _maxLocals = 1 + argumentSlots(descriptor);
+    }
+
+    public byte[] getCode() {
+        return _code.toByteArray();
+    }
+
+    public int getMaxStack() {
+        return _maxStack;
+    }
+
+    public int getMaxLocals() {
+        return _maxLocals;
+    }
+
+    public int newLocal() {
+        if (_maxLocals >= MAX_LOCALS) {
+            throw new NotCompilableException("Too many locals.");
+        }
+        return _maxLocals++;
+    }
+
+    public void aload(int local) {
+        if (local <= 3) {
+            emit(0x2A + local, 1);
+        } else {
+            emit(0x19, 1);
+            _code.write(local);
+        }
+    }
+
+    public void astore(int local) {
+        if (local <= 3) {
+            emit(0x4B + local, -1);
+        } else {
+            emit(0x3A, -1);
+            _code.write(local);
+        }
+    }
+
+    public void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            emit(0x03 + value, 1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            emit(0x10, 1);
+            _code.write(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            emit(0x11, 1);
+            writeShort(value);
+        } else {
+            ldc(_classFile.integer(value));
+        }
+    }
+
+    public void pushString(String value) {
+        ldc(_classFile.string(value));
+    }
+
+    public void getStatic(String owner, String name, String descriptor) {
+        emit(0xB2, 1);
+        writeShort(_classFile.fieldRef(owner, name, descriptor));
+    }
+
+    public void getField(String owner, String name, String descriptor) {
+        emit(0xB4, 0);
+        writeShort(_classFile.fieldRef(owner, name, descriptor));
+    }
+
+    public void invokeStatic(String owner, String name, String descriptor) {
+        emit(0xB8, stackDelta(descriptor, false));
+        writeShort(_classFile.methodRef(owner, name, descriptor));
+    }
+
+    public void invokeVirtual(String owner, String name, String descriptor) {
+        emit(0xB6, stackDelta(descriptor, true));
+        writeShort(_classFile.methodRef(owner, name, descriptor));
+    }
+
+    public void invokeSpecial(String owner, String name, String descriptor) {
+        emit(0xB7, stackDelta(descriptor, true));
+        writeShort(_classFile.methodRef(owner, name, descriptor));
+    }
+
+    public void invokeInterface(String owner, String name, String descriptor) {
+        emit(0xB9, stackDelta(descriptor, true));
+        writeShort(_classFile.interfaceMethodRef(owner, name, descriptor));
+        _code.write(1 + argumentSlots(descriptor));
+        _code.write(0);
+    }
+
+    public void checkCast(String type) {
+        emit(0xC0, 0);
+        writeShort(_classFile.classRef(type));
+    }
+
+    public void newArray(String componentType) {
+        emit(0xBD, 0);
+        writeShort(_classFile.classRef(componentType));
+    }
+
+    // Adds an instruction without operands (e.g. DUP or ARETURN).
+    public void op(int opcode) {
+        final var stackDelta = switch (opcode) {
+            case ACONST_NULL, DUP -> 1;
+            case AALOAD, POP, ARETURN, ATHROW -> -1;
+            case AASTORE -> -3;
+            case RETURN -> 0;
+            default -> throw new IllegalArgumentException("Unsupported opcode " + opcode);
+        };
+        emit(opcode, stackDelta);
+        if (opcode == ARETURN || opcode == RETURN || opcode == ATHROW) {
+            _stackDepth = 0; // Any code which follows is unreachable, or is reached by a jump.
+        }
+    }
+
+    public void jump(int opcode, Label label) {
+        final var stackDelta = switch (opcode) {
+            case IFEQ -> -1;
+            case IF_ACMPEQ, IF_ACMPNE -> -2;
+            case GOTO -> 0;
+            default -> throw new IllegalArgumentException("Unsupported opcode " + opcode);
+        };
+        final var position = _code.size();
+        emit(opcode, stackDelta);
+        label.setStackDepth(_stackDepth);
+        if (label.getIsMarked()) {
+            writeShort(checkOffset(label.getPosition() - position));
+        } else {
+            label.getJumps().add(position);
+            writeShort(0);
+        }
+        if (opcode == GOTO) {
+            _stackDepth = 0;
+        }
+    }
+
+    public void mark(Label label) {
+        label.setPosition(_code.size());
+        if (label.getStackDepth() != -1) {
+            _stackDepth = label.getStackDepth();
+        }
+        label.setStackDepth(_stackDepth);
+        if (!label.getJumps().isEmpty()) {
+            // Patched in place, as the code written so far is only copied out when it's built.
+            final var code = _code.toByteArray();
+            for (final var jump : label.getJumps()) {
+                final var offset = checkOffset(label.getPosition() - jump);
+                code[jump + 1] = (byte)(offset >> 8);
+                code[jump + 2] = (byte)offset;
+            }
+            _code.reset();
+            _code.write(code, 0, code.length);
+            label.getJumps().clear();
+        }
+    }
+
+    private void ldc(int index) {
+        if (index <= 0xFF) {
+            emit(0x12, 1);
+            _code.write(index);
+        } else {
+            emit(0x13, 1);
+            writeShort(index);
+        }
+    }
+
+    private void emit(int opcode, int stackDelta) {
+        if (_code.size() >= MAX_CODE_LENGTH) {
+            throw new NotCompilableException("Method too large.");
+        }
+        _code.write(opcode);
+        _stackDepth += stackDelta;
+        _maxStack = Math.max(_maxStack, _stackDepth);
+    }
+
+    private void writeShort(int value) {
+        _code.write(value >> 8);
+        _code.write(value);
+    }
+
+    private static int checkOffset(int offset) {
+        if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+            throw new NotCompilableException("Jump too far.");
+        }
+        return offset;
+    }
+
+    // The change in the depth of the stack from invoking a method with the descriptor.
+    private static int stackDelta(String descriptor, boolean hasReceiver) {
+        final var returnType = descriptor.charAt(descriptor.indexOf(')') + 1);
+        return (returnType == 'V' ? 0 : 1) - argumentSlots(descriptor) - (hasReceiver ? 1 : 0);
+    }
+
+    // The number of slots taken by the arguments of a method with the descriptor.
+    private static int argumentSlots(String descriptor) {
+        var slots = 0;
+        var i = 1;
+        while (descriptor.charAt(i) != ')') {
+            final var start = i;
+            while (descriptor.charAt(i) == '[') {
+                i++;
+            }
+            if (descriptor.charAt(i) == 'L') {
+                i = descriptor.indexOf(';', i);
+            }
+            final var isWide = i == start && (descriptor.charAt(i) == 'J' || descriptor.charAt(i) == 'D');
+            slots += isWide ? 2 : 1;
+            i++;
+        }
+        return slots;
+    }
+
+    private final ClassFileWriter _classFile;
+    private final ByteArrayOutputStream _code = new ByteArrayOutputStream();
+    private int _stackDepth = 0;
+    private int _maxStack = 0;
+    private int _maxLocals;
+}
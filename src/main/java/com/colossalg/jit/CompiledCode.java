@@ -0,0 +1,47 @@
+package com.colossalg.jit;
+
+import com.colossalg.dataTypes.JocksValue;
+
+// The base of the classes generated by the JitCompiler, each of which runs the body of a single
+// function. The generated class overrides the entry point for the function's number of parameters
+// (or the array based one for more than three), and the others delegate to it as for JocksFunction.
+//
+// Values the code can't embed in its constant pool (e.g. literals and inline caches) are loaded
+// from the constants, by the index the JitCompiler assigned them.
+public abstract class CompiledCode {
+
+    protected CompiledCode(JitRuntime runtime, Object[] constants) {
+        _runtime = runtime;
+        _constants = constants;
+    }
+
+    public JocksValue call(JocksValue[] arguments) {
+        return switch (arguments.length) {
+            case 0 -> call0();
+            case 1 -> call1(arguments[0]);
+            case 2 -> call2(arguments[0], arguments[1]);
+            case 3 -> call3(arguments[0], arguments[1], arguments[2]);
+            default -> throw new IllegalStateException("Compiled code called with unexpected number of arguments.");
+        };
+    }
+
+    public JocksValue call0() {
+        return call(new JocksValue[0]);
+    }
+
+    public JocksValue call1(JocksValue argument0) {
+        return call(new JocksValue[] { argument0 });
+    }
+
+    public JocksValue call2(JocksValue argument0, JocksValue argument1) {
+        return call(new JocksValue[] { argument0, argument1 });
+    }
+
+    public JocksValue call3(JocksValue argument0, JocksValue argument1, JocksValue argument2) {
+        return call(new JocksValue[] { argument0, argument1, argument2 });
+    }
+
+    // Accessed directly by the generated code.
+    protected final JitRuntime _runtime;
+    protected final Object[] _constants;
+}
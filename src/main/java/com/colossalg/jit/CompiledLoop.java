@@ -0,0 +1,24 @@
+package com.colossalg.jit;
+
+import com.colossalg.visitors.SymbolTable;
+
+// The base of the classes generated by the JitCompiler for hot loops at the top level of a program,
+// each of which runs the remaining iterations of a single loop in place of the Interpreter (which
+// is known as on-stack replacement, as the loop is replaced part way through being executed).
+//
+// Values the code can't embed in its constant pool are loaded from the constants, as for CompiledCode.
+public abstract class CompiledLoop {
+
+    protected CompiledLoop(JitRuntime runtime, Object[] constants) {
+        _runtime = runtime;
+        _constants = constants;
+    }
+
+    // Runs the loop from its condition, the symbol table being the Interpreter's current one (i.e.
+    // the loop's own scope for a for statement with one, otherwise the scope enclosing the loop).
+    public abstract void run(SymbolTable symbolTable);
+
+    // Accessed directly by the generated code.
+    protected final JitRuntime _runtime;
+    protected final Object[] _constants;
+}
@@ -0,0 +1,834 @@
+package com.colossalg.jit;
+
+import com.colossalg.TokenType;
+import com.colossalg.VariableKind;
+import com.colossalg.dataTypes.functions.JocksUserLandFunction;
+import com.colossalg.dataTypes.primitives.JocksBool;
+import com.colossalg.dataTypes.primitives.JocksNil;
+import com.colossalg.expression.*;
+import com.colossalg.statement.*;
+import com.colossalg.visitors.Cell;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+// Compiles the body of a hot JocksUserLandFunction to JVM bytecode, within a hidden class (see
+// CompiledCode) which the function then calls in place of interpreting its statements.
+//
+// The function's local variables become JVM locals, and its control flow becomes jumps, while the
+// values themselves remain JocksValues. Everything else is delegated to JitOperations, which has
+// fast paths for numbers and otherwise falls back to the Interpreter through the JitRuntime.
+//
+// Functions using anything which would need the Interpreter's symbol tables or control flow aren't
+// compiled and continue to be interpreted. These are functions with:
+//  - Variables which are captured by closures (cells), or nested function or class declarations.
+//  - Try/catch statements.
+//
+// Tail calls must run in constant stack, as they do when interpreted. A function calling itself jumps
+// back to its start with its parameters reassigned, while a call to any other user land function is
+// prepared to be made by the Interpreter once the compiled code has returned (see JitOperations.tailCall).
+//
+// Hot loops at the top level of a program (which aren't within any function) are compiled in the
+// same way, the Interpreter handing the remaining iterations to the compiled loop part way through
+// (see CompiledLoop). The variables of the scopes within the loop become JVM locals, while those of
+// the enclosing scopes are accessed in the Interpreter's symbol tables, as they outlive the loop.
+//
+// Classes are written at a version which doesn't require stack map frames (see ClassFileWriter),
+// as the code is generated without knowledge of the types of its values anyway.
+public class JitCompiler implements StatementVisitor<Void>, ExpressionVisitor<Void> {
+
+    // Returns null if the function can't be compiled.
+    public static CompiledCode compileFunction(JocksUserLandFunction function, JitRuntime runtime) {
+        final var compiler = new JitCompiler(function, runtime);
+        final byte[] bytes;
+        try {
+            bytes = compiler.generateFunction();
+        } catch (NotCompilableException ex) {
+            return null;
+        }
+        try {
+            return (CompiledCode)compiler.instantiate(bytes);
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            throw new IllegalStateException(
+                    String.format("Compiled code for function '%s' could not be loaded.", function.getName()),
+                    ex);
+        }
+    }
+
+    // Returns null if the loop (a while or for statement) can't be compiled.
+    public static CompiledLoop compileLoop(Statement loop, JitRuntime runtime) {
+        final var compiler = new JitCompiler(null, runtime);
+        final byte[] bytes;
+        try {
+            bytes = compiler.generateLoop(loop);
+        } catch (NotCompilableException ex) {
+            return null;
+        }
+        try {
+            return (CompiledLoop)compiler.instantiate(bytes);
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            throw new IllegalStateException("Compiled code for loop could not be loaded.", ex);
+        }
+    }
+
+    @Override
+    public Void visit(Statement statement) {
+        return statement.accept(this);
+    }
+
+    @Override
+    public Void visitClassDeclaration(ClassDeclaration statement) {
+        throw new NotCompilableException("Class declarations are not supported.");
+    }
+
+    @Override
+    public Void visitFunDeclaration(FunDeclaration statement) {
+        throw new NotCompilableException("Function declarations are not supported.");
+    }
+
+    @Override
+    public Void visitVarDeclaration(VarDeclaration statement) {
+        if (statement.getVariableKind() != VariableKind.LOCAL) {
+            throw new NotCompilableException("Only local variables are supported.");
+        }
+        if (_scopes.isEmpty()) {
+            // Declared in the scope enclosing a loop, which must be left to the Interpreter to report
+            // as it is declared again by each iteration.
+            throw new NotCompilableException("Declarations outside of the compiled scopes are not supported.");
+        }
+        visit(statement.getExpression());
+        _code.astore(getLocal(0, statement.getSymbolTableSlot()));
+        return null;
+    }
+
+    @Override
+    public Void visitIfElseStatement(IfElseStatement statement) {
+        final var elseLabel = new Label();
+        final var endLabel = new Label();
+        compileCondition(statement.getCondition(), "If/else statement condition did not evaluate to type 'bool'.");
+        _code.jump(CodeBuilder.IFEQ, elseLabel);
+        visit(statement.getThenSubStatement());
+        _code.jump(CodeBuilder.GOTO, endLabel);
+        _code.mark(elseLabel);
+        if (statement.getElseSubStatement().isPresent()) {
+            visit(statement.getElseSubStatement().get());
+        }
+        _code.mark(endLabel);
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStatement(WhileStatement statement) {
+        final var conditionLabel = new Label();
+        final var endLabel = new Label();
+        _code.mark(conditionLabel);
+        compileCondition(statement.getCondition(), "While statement condition did not evaluate to type 'bool'.");
+        _code.jump(CodeBuilder.IFEQ, endLabel);
+        visit(statement.getSubStatement());
+        _code.jump(CodeBuilder.GOTO, conditionLabel);
+        _code.mark(endLabel);
+        return null;
+    }
+
+    @Override
+    public Void visitForStatement(ForStatement statement) {
+        if (statement.getHasScope()) {
+            pushScope(statement.getSymbolTableSize());
+        }
+        if (statement.getInitializer().isPresent()) {
+            visit(statement.getInitializer().get());
+        }
+        compileForIterations(statement);
+        if (statement.getHasScope()) {
+            popScope();
+        }
+        return null;
+    }
+
+    // The iterations of a for statement, from its condition, once its initializer has been run.
+    private void compileForIterations(ForStatement statement) {
+        final var conditionLabel = new Label();
+        final var endLabel = new Label();
+        _code.mark(conditionLabel);
+        if (statement.getCondition().isPresent()) {
+            compileCondition(statement.getCondition().get(), "For statement condition did not evaluate to type 'bool'.");
+            _code.jump(CodeBuilder.IFEQ, endLabel);
+        }
+        visit(statement.getSubStatement());
+        if (statement.getIncrement().isPresent()) {
+            visit(statement.getIncrement().get());
+            _code.op(CodeBuilder.POP);
+        }
+        _code.jump(CodeBuilder.GOTO, conditionLabel);
+        _code.mark(endLabel);
+    }
+
+    @Override
+    public Void visitTryCatchStatement(TryCatchStatement statement) {
+        throw new NotCompilableException("Try/catch statements are not supported.");
+    }
+
+    @Override
+    public Void visitThrowStatement(ThrowStatement statement) {
+        loadRuntime();
+        visit(statement.getSubExpression());
+        _code.invokeInterface(RUNTIME, "throwValue", "(" + VALUE_DESCRIPTOR + ")Ljava/lang/RuntimeException;");
+        _code.op(CodeBuilder.ATHROW);
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStatement(BlockStatement statement) {
+        if (statement.getHasScope()) {
+            pushScope(statement.getSymbolTableSize());
+        }
+        for (final var subStatement : statement.getSubStatements()) {
+            visit(subStatement);
+        }
+        if (statement.getHasScope()) {
+            popScope();
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStatement(ReturnStatement statement) {
+        if (_function == null) {
+            throw new NotCompilableException("Return statements are only supported within functions.");
+        }
+        if (statement.getIsTailCall()) {
+            compileTailCall((FunInvocation)statement.getSubExpression().orElseThrow());
+            return null;
+        }
+        if (statement.getSubExpression().isPresent()) {
+            visit(statement.getSubExpression().get());
+        } else {
+            _code.getStatic(NIL, "Instance", "L" + NIL + ";");
+        }
+        _code.op(CodeBuilder.ARETURN);
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStatement(PrintStatement statement) {
+        visit(statement.getSubExpression());
+        _code.invokeStatic(OPERATIONS, "print", "(" + VALUE_DESCRIPTOR + ")V");
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(ExpressionStatement statement) {
+        visit(statement.getSubExpression());
+        _code.op(CodeBuilder.POP);
+        return null;
+    }
+
+    @Override
+    public Void visit(Expression expression) {
+        return expression.accept(this);
+    }
+
+    @Override
+    public Void visitLogicalExpression(LogicalExpression expression) {
+        final var operator = expression.getOperator();
+        final var shortCircuitValue = switch (operator.getType()) {
+            case TokenType.AND -> "Falsey";
+            case TokenType.OR  -> "Truthy";
+            default -> throw new NotCompilableException("Invalid logical operator type.");
+        };
+
+        final var endLabel = new Label();
+        visit(expression.getLftSubExpression());
+        _code.op(CodeBuilder.DUP);
+        _code.getStatic(BOOL, shortCircuitValue, "L" + BOOL + ";");
+        _code.jump(CodeBuilder.IF_ACMPEQ, endLabel);
+        loadRuntime();
+        loadConstant(operator, TOKEN);
+        _code.invokeStatic(OPERATIONS, "checkLogicalLft", "(" + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + TOKEN_DESCRIPTOR + ")V");
+        visit(expression.getRgtSubExpression());
+        loadRuntime();
+        loadConstant(operator, TOKEN);
+        _code.invokeStatic(OPERATIONS, "checkLogicalRgt", "(" + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + TOKEN_DESCRIPTOR + ")" + VALUE_DESCRIPTOR);
+        _code.mark(endLabel);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpression(BinaryExpression expression) {
+        final var operator = expression.getOperator();
+        final var operation = switch (operator.getType()) {
+            case TokenType.EQUAL_EQUAL -> "equal";
+            case TokenType.BANGS_EQUAL -> "notEqual";
+            case TokenType.LESS_THAN -> "lessThan";
+            case TokenType.LESS_THAN_OR_EQUAL -> "lessThanOrEqual";
+            case TokenType.MORE_THAN -> "moreThan";
+            case TokenType.MORE_THAN_OR_EQUAL -> "moreThanOrEqual";
+            case TokenType.ADD -> "add";
+            case TokenType.SUB -> "sub";
+            case TokenType.MUL -> "mul";
+            case TokenType.DIV -> "div";
+            default -> throw new NotCompilableException("Invalid binary operator type.");
+        };
+        visit(expression.getLftSubExpression());
+        visit(expression.getRgtSubExpression());
+        loadRuntime();
+        loadConstant(operator, TOKEN);
+        _code.invokeStatic(
+                OPERATIONS,
+                operation,
+                "(" + VALUE_DESCRIPTOR + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + TOKEN_DESCRIPTOR + ")" + VALUE_DESCRIPTOR);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpression(UnaryExpression expression) {
+        final var operator = expression.getOperator();
+        final var operation = switch (operator.getType()) {
+            case TokenType.BANGS -> "not";
+            case TokenType.ADD -> "plus";
+            case TokenType.SUB -> "negate";
+            default -> throw new NotCompilableException("Invalid unary operator type.");
+        };
+        visit(expression.getSubExpression());
+        loadRuntime();
+        loadConstant(operator, TOKEN);
+        _code.invokeStatic(
+                OPERATIONS,
+                operation,
+                "(" + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + TOKEN_DESCRIPTOR + ")" + VALUE_DESCRIPTOR);
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpression(GroupingExpression expression) {
+        return visit(expression.getSubExpression());
+    }
+
+    @Override
+    public Void visitDotExpression(DotExpression expression) {
+        visit(expression.getLhsExpression());
+        loadConstant(expression, DOT);
+        loadRuntime();
+        _code.invokeStatic(
+                OPERATIONS,
+                "getProperty",
+                "(" + VALUE_DESCRIPTOR + DOT_DESCRIPTOR + RUNTIME_DESCRIPTOR + ")" + VALUE_DESCRIPTOR);
+        return null;
+    }
+
+    @Override
+    public Void visitFunInvocation(FunInvocation expression) {
+        final var arguments = expression.getArguments();
+        final var argumentCount = arguments.size();
+        if (expression.getSubExpression() instanceof DotExpression dotExpression) {
+            // The receiver is null unless a method is being called on an instance.
+            final var lhsLocal = _code.newLocal();
+            final var receiverLocal = _code.newLocal();
+            visit(dotExpression.getLhsExpression());
+            _code.astore(lhsLocal);
+            _code.aload(lhsLocal);
+            loadConstant(dotExpression, DOT);
+            _code.invokeStatic(OPERATIONS, "getMethodReceiver", "(" + VALUE_DESCRIPTOR + DOT_DESCRIPTOR + ")" + VALUE_DESCRIPTOR);
+            _code.astore(receiverLocal);
+            _code.aload(lhsLocal);
+            _code.aload(receiverLocal);
+            loadConstant(dotExpression, DOT);
+            loadRuntime();
+            _code.pushInt(argumentCount);
+            loadSite(expression.getFile(), expression.getLine());
+            _code.invokeStatic(
+                    OPERATIONS,
+                    "checkMethodCallable",
+                    "(" + VALUE_DESCRIPTOR + VALUE_DESCRIPTOR + DOT_DESCRIPTOR + RUNTIME_DESCRIPTOR + "I" + SITE_DESCRIPTOR + ")" + FUNCTION_DESCRIPTOR);
+            _code.aload(receiverLocal);
+            final var variant = loadArguments(arguments, CALL_METHOD_OPERATIONS.length - 2);
+            loadRuntime();
+            loadSite(expression.getFile(), expression.getLine());
+            _code.invokeStatic(OPERATIONS, CALL_METHOD_OPERATIONS[variant], CALL_METHOD_DESCRIPTORS[variant]);
+        } else {
+            visit(expression.getSubExpression());
+            loadRuntime();
+            _code.pushInt(argumentCount);
+            loadSite(expression.getFile(), expression.getLine());
+            _code.invokeStatic(
+                    OPERATIONS,
+                    "checkCallable",
+                    "(" + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + "I" + SITE_DESCRIPTOR + ")" + FUNCTION_DESCRIPTOR);
+            final var variant = loadArguments(arguments, CALL_OPERATIONS.length - 2);
+            loadRuntime();
+            loadSite(expression.getFile(), expression.getLine());
+            _code.invokeStatic(OPERATIONS, CALL_OPERATIONS[variant], CALL_DESCRIPTORS[variant]);
+        }
+        return null;
+    }
+
+    // The callee and arguments are evaluated as for any other call, then if the callee is the function
+    // itself its parameters are reassigned and it jumps back to its start, otherwise the call is made by
+    // JitOperations.tailCall. The receiver is passed as the leading parameter if there is one, which
+    // (as the arity has been checked) is the case if the function has a parameter more than the call
+    // has arguments.
+    private void compileTailCall(FunInvocation expression) {
+        final var arguments = expression.getArguments();
+        final var argumentCount = arguments.size();
+        final var functionLocal = _code.newLocal();
+        final var receiverLocal = _code.newLocal();
+        if (expression.getSubExpression() instanceof DotExpression dotExpression) {
+            final var lhsLocal = _code.newLocal();
+            visit(dotExpression.getLhsExpression());
+            _code.astore(lhsLocal);
+            _code.aload(lhsLocal);
+            loadConstant(dotExpression, DOT);
+            _code.invokeStatic(OPERATIONS, "getMethodReceiver", "(" + VALUE_DESCRIPTOR + DOT_DESCRIPTOR + ")" + VALUE_DESCRIPTOR);
+            _code.astore(receiverLocal);
+            _code.aload(lhsLocal);
+            _code.aload(receiverLocal);
+            loadConstant(dotExpression, DOT);
+            loadRuntime();
+            _code.pushInt(argumentCount);
+            loadSite(expression.getFile(), expression.getLine());
+            _code.invokeStatic(
+                    OPERATIONS,
+                    "checkMethodCallable",
+                    "(" + VALUE_DESCRIPTOR + VALUE_DESCRIPTOR + DOT_DESCRIPTOR + RUNTIME_DESCRIPTOR + "I" + SITE_DESCRIPTOR + ")" + FUNCTION_DESCRIPTOR);
+        } else {
+            _code.op(CodeBuilder.ACONST_NULL);
+            _code.astore(receiverLocal);
+            visit(expression.getSubExpression());
+            loadRuntime();
+            _code.pushInt(argumentCount);
+            loadSite(expression.getFile(), expression.getLine());
+            _code.invokeStatic(
+                    OPERATIONS,
+                    "checkCallable",
+                    "(" + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + "I" + SITE_DESCRIPTOR + ")" + FUNCTION_DESCRIPTOR);
+        }
+        _code.astore(functionLocal);
+        final var argumentLocals = new int[argumentCount];
+        for (int i = 0; i < argumentCount; i++) {
+            argumentLocals[i] = _code.newLocal();
+            visit(arguments.get(i));
+            _code.astore(argumentLocals[i]);
+        }
+
+        final var offset = _function.getArity() - argumentCount;
+        final var hasReceiver = expression.getSubExpression() instanceof DotExpression;
+        if (offset == 0 || (offset == 1 && hasReceiver)) {
+            final var notSelfLabel = new Label();
+            _code.aload(functionLocal);
+            loadConstant(_function, FUNCTION);
+            _code.jump(CodeBuilder.IF_ACMPNE, notSelfLabel);
+            _code.aload(functionLocal);
+            loadRuntime();
+            loadSite(expression.getFile(), expression.getLine());
+            _code.invokeStatic(OPERATIONS, "replaceCallStackEntry", "(" + FUNCTION_DESCRIPTOR + RUNTIME_DESCRIPTOR + SITE_DESCRIPTOR + ")V");
+            final var parameterSlots = _function.getParameterSlots();
+            if (offset == 1) {
+                _code.aload(receiverLocal);
+                _code.astore(_scopes.getFirst()[parameterSlots[0]]);
+            }
+            for (int i = 0; i < argumentCount; i++) {
+                _code.aload(argumentLocals[i]);
+                _code.astore(_scopes.getFirst()[parameterSlots[i + offset]]);
+            }
+            _code.jump(CodeBuilder.GOTO, _startLabel);
+            _code.mark(notSelfLabel);
+        }
+
+        _code.aload(functionLocal);
+        _code.aload(receiverLocal);
+        _code.pushInt(argumentCount);
+        _code.newArray(VALUE);
+        for (int i = 0; i < argumentCount; i++) {
+            _code.op(CodeBuilder.DUP);
+            _code.pushInt(i);
+            _code.aload(argumentLocals[i]);
+            _code.op(CodeBuilder.AASTORE);
+        }
+        loadRuntime();
+        loadSite(expression.getFile(), expression.getLine());
+        _code.invokeStatic(
+                OPERATIONS,
+                "tailCall",
+                "(" + FUNCTION_DESCRIPTOR + VALUE_DESCRIPTOR + "[" + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + SITE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR);
+        _code.op(CodeBuilder.ARETURN);
+    }
+
+    @Override
+    public Void visitNewInvocation(NewInvocation expression) {
+        final var arguments = expression.getArguments();
+        loadVariable(expression.getVariableKind(), expression.getSymbolTableDepth(), expression.getSymbolTableSlot());
+        loadRuntime();
+        loadConstant(expression, NEW);
+        _code.invokeStatic(
+                OPERATIONS,
+                "instantiate",
+                "(" + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + "L" + NEW + ";)" + INSTANCE_DESCRIPTOR);
+        final var variant = loadArguments(arguments, INIT_OPERATIONS.length - 2);
+        loadRuntime();
+        loadSite(expression.getFile(), expression.getLine());
+        _code.invokeStatic(OPERATIONS, INIT_OPERATIONS[variant], INIT_DESCRIPTORS[variant]);
+        return null;
+    }
+
+    @Override
+    public Void visitVarAssignment(VarAssignment expression) {
+        visit(expression.getRhsExpression());
+        if (expression.getLhsExpression() instanceof DotExpression lhsDotExpression) {
+            visit(lhsDotExpression.getLhsExpression());
+            loadConstant(lhsDotExpression, DOT);
+            loadRuntime();
+            _code.invokeStatic(
+                    OPERATIONS,
+                    "assignProperty",
+                    "(" + VALUE_DESCRIPTOR + VALUE_DESCRIPTOR + DOT_DESCRIPTOR + RUNTIME_DESCRIPTOR + ")" + VALUE_DESCRIPTOR);
+        } else if (expression.getLhsExpression() instanceof VarExpression lhsVarExpression) {
+            final var slot = lhsVarExpression.getSymbolTableSlot();
+            switch (lhsVarExpression.getVariableKind()) {
+                case GLOBAL -> {
+                    loadRuntime();
+                    _code.pushInt(slot);
+                    _code.invokeStatic(OPERATIONS, "setGlobal", "(" + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + "I)" + VALUE_DESCRIPTOR);
+                }
+                case LOCAL -> {
+                    final var depth = lhsVarExpression.getSymbolTableDepth();
+                    if (isEnclosingScope(depth)) {
+                        _code.aload(_symbolTableLocal);
+                        _code.pushInt(getEnclosingDepth(depth));
+                        _code.pushInt(slot);
+                        _code.invokeStatic(OPERATIONS, "setLocal", "(" + VALUE_DESCRIPTOR + SYMBOL_TABLE_DESCRIPTOR + "II)" + VALUE_DESCRIPTOR);
+                    } else {
+                        _code.op(CodeBuilder.DUP);
+                        _code.astore(getLocal(depth, slot));
+                    }
+                }
+                case UPVALUE -> {
+                    loadConstant(getUpvalue(slot), CELL);
+                    _code.invokeStatic(OPERATIONS, "setCell", "(" + VALUE_DESCRIPTOR + "L" + CELL + ";)" + VALUE_DESCRIPTOR);
+                }
+                case CELL -> throw new NotCompilableException("Cells are not supported.");
+            }
+        } else {
+            throw new NotCompilableException("Invalid assignment target.");
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitVarExpression(VarExpression expression) {
+        loadVariable(expression.getVariableKind(), expression.getSymbolTableDepth(), expression.getSymbolTableSlot());
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpression(LiteralExpression expression) {
+        final var value = expression.getValue();
+        if (value == null) {
+            // Left to the Interpreter to report.
+            throw new NotCompilableException("Invalid literal.");
+        }
+        if (value == JocksNil.Instance) {
+            _code.getStatic(NIL, "Instance", "L" + NIL + ";");
+        } else if (value == JocksBool.Truthy || value == JocksBool.Falsey) {
+            _code.getStatic(BOOL, value == JocksBool.Truthy ? "Truthy" : "Falsey", "L" + BOOL + ";");
+        } else {
+            loadConstant(value, VALUE);
+        }
+        return null;
+    }
+
+    private static final String VALUE = "com/colossalg/dataTypes/JocksValue";
+    private static final String BOOL = "com/colossalg/dataTypes/primitives/JocksBool";
+    private static final String NIL = "com/colossalg/dataTypes/primitives/JocksNil";
+    private static final String FUNCTION = "com/colossalg/dataTypes/functions/JocksFunction";
+    private static final String INSTANCE = "com/colossalg/dataTypes/classes/JocksInstance";
+    private static final String TOKEN = "com/colossalg/Token";
+    private static final String DOT = "com/colossalg/expression/DotExpression";
+    private static final String NEW = "com/colossalg/expression/NewInvocation";
+    private static final String CELL = "com/colossalg/visitors/Cell";
+    private static final String SYMBOL_TABLE = "com/colossalg/visitors/SymbolTable";
+    private static final String COMPILED_CODE = "com/colossalg/jit/CompiledCode";
+    private static final String COMPILED_LOOP = "com/colossalg/jit/CompiledLoop";
+    private static final String RUNTIME = "com/colossalg/jit/JitRuntime";
+    private static final String OPERATIONS = "com/colossalg/jit/JitOperations";
+
+    private static final String VALUE_DESCRIPTOR = "L" + VALUE + ";";
+    private static final String FUNCTION_DESCRIPTOR = "L" + FUNCTION + ";";
+    private static final String INSTANCE_DESCRIPTOR = "L" + INSTANCE + ";";
+    private static final String TOKEN_DESCRIPTOR = "L" + TOKEN + ";";
+    private static final String DOT_DESCRIPTOR = "L" + DOT + ";";
+    private static final String RUNTIME_DESCRIPTOR = "L" + RUNTIME + ";";
+    private static final String SYMBOL_TABLE_DESCRIPTOR = "L" + SYMBOL_TABLE + ";";
+    private static final String SITE_DESCRIPTOR = "Ljava/lang/String;I"; // The file and line of a call.
+
+    // The operations (and their descriptors) used for calls with each number of arguments, up to the
+    // number passed on the stack, followed by that passing them in an array. These are constants rather
+    // than being built as needed, as the first concatenation of each shape of string is slow to link.
+    private static final String[] ENTRY_POINTS = { "call0", "call1", "call2", "call3", "call" };
+    private static final String[] ENTRY_POINT_DESCRIPTORS = {
+            "()" + VALUE_DESCRIPTOR,
+            "(" + VALUE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR,
+            "(" + VALUE_DESCRIPTOR + VALUE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR,
+            "(" + VALUE_DESCRIPTOR + VALUE_DESCRIPTOR + VALUE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR,
+            "([" + VALUE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR,
+    };
+    private static final String[] CALL_OPERATIONS = { "call0", "call1", "call2", "call3", "call" };
+    private static final String[] CALL_DESCRIPTORS = {
+            "(" + FUNCTION_DESCRIPTOR + RUNTIME_DESCRIPTOR + SITE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR,
+            "(" + FUNCTION_DESCRIPTOR + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + SITE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR,
+            "(" + FUNCTION_DESCRIPTOR + VALUE_DESCRIPTOR + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + SITE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR,
+            "(" + FUNCTION_DESCRIPTOR + VALUE_DESCRIPTOR + VALUE_DESCRIPTOR + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + SITE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR,
+            "(" + FUNCTION_DESCRIPTOR + "[" + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + SITE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR,
+    };
+    private static final String[] CALL_METHOD_OPERATIONS = { "callMethod0", "callMethod1", "callMethod2", "callMethod" };
+    private static final String[] CALL_METHOD_DESCRIPTORS = {
+            "(" + FUNCTION_DESCRIPTOR + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + SITE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR,
+            "(" + FUNCTION_DESCRIPTOR + VALUE_DESCRIPTOR + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + SITE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR,
+            "(" + FUNCTION_DESCRIPTOR + VALUE_DESCRIPTOR + VALUE_DESCRIPTOR + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + SITE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR,
+            "(" + FUNCTION_DESCRIPTOR + VALUE_DESCRIPTOR + "[" + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + SITE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR,
+    };
+    private static final String[] INIT_OPERATIONS = { "init0", "init1", "init2", "init" };
+    private static final String[] INIT_DESCRIPTORS = {
+            "(" + INSTANCE_DESCRIPTOR + RUNTIME_DESCRIPTOR + SITE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR,
+            "(" + INSTANCE_DESCRIPTOR + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + SITE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR,
+            "(" + INSTANCE_DESCRIPTOR + VALUE_DESCRIPTOR + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + SITE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR,
+            "(" + INSTANCE_DESCRIPTOR + "[" + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + SITE_DESCRIPTOR + ")" + VALUE_DESCRIPTOR,
+    };
+
+    private JitCompiler(JocksUserLandFunction function, JitRuntime runtime) {
+        _function = function;
+        _runtime = runtime;
+    }
+
+    private byte[] generateFunction() {
+        final var classFile = createClassFile("com/colossalg/jit/CompiledFunction", COMPILED_CODE);
+
+        // Functions of up to three parameters take them as locals, otherwise they're unpacked from the array.
+        final var arity = _function.getArity();
+        final var isSpecialised = arity < ENTRY_POINTS.length - 1;
+        final var variant = isSpecialised ? arity : ENTRY_POINTS.length - 1;
+        _code = classFile.addMethod(ClassFileWriter.ACC_PUBLIC, ENTRY_POINTS[variant], ENTRY_POINT_DESCRIPTORS[variant]);
+
+        pushScope(_function.getSymbolTableSize());
+        final var parameterSlots = _function.getParameterSlots();
+        final var parameterKinds = _function.getParameterKinds();
+        for (int i = 0; i < arity; i++) {
+            if (parameterKinds[i] != VariableKind.LOCAL) {
+                throw new NotCompilableException("Only local parameters are supported.");
+            }
+            for (int j = 0; j < i; j++) {
+                // Left to the Interpreter to report when the parameters are bound.
+                if (parameterSlots[j] == parameterSlots[i]) {
+                    throw new NotCompilableException("Duplicate parameters are not supported.");
+                }
+            }
+            if (isSpecialised) {
+                _code.aload(1 + i);
+            } else {
+                _code.aload(1);
+                _code.pushInt(i);
+                _code.op(CodeBuilder.AALOAD);
+            }
+            _code.astore(getLocal(0, parameterSlots[i]));
+        }
+
+        loadFields(COMPILED_CODE);
+
+        // Tail calls of the function to itself jump back to here (see compileTailCall).
+        _startLabel = new Label();
+        _code.mark(_startLabel);
+        for (final var statement : _function.getStatements()) {
+            visit(statement);
+        }
+        _code.getStatic(NIL, "Instance", "L" + NIL + ";");
+        _code.op(CodeBuilder.ARETURN);
+
+        return classFile.toByteArray();
+    }
+
+    // The loop is entered once an iteration has been completed, so it resumes from its condition.
+    private byte[] generateLoop(Statement loop) {
+        final var classFile = createClassFile("com/colossalg/jit/CompiledLoopIterations", COMPILED_LOOP);
+        _code = classFile.addMethod(ClassFileWriter.ACC_PUBLIC, "run", "(" + SYMBOL_TABLE_DESCRIPTOR + ")V");
+        _symbolTableLocal = 1;
+        loadFields(COMPILED_LOOP);
+
+        // Tested with instanceof rather than a switch over the types, as its bootstrap is slow to link.
+        if (loop instanceof WhileStatement whileStatement) {
+            visit(whileStatement);
+        } else if (loop instanceof ForStatement forStatement) {
+            // The symbol table is then that of the for statement's scope (if it has one), whose
+            // variables are moved to JVM locals as nothing else may access them once it is replaced.
+            if (forStatement.getHasScope()) {
+                pushScope(forStatement.getSymbolTableSize());
+                _enclosingScopeOffset = 1;
+                for (int slot = 0; slot < forStatement.getSymbolTableSize(); slot++) {
+                    _code.aload(_symbolTableLocal);
+                    _code.pushInt(slot);
+                    _code.invokeVirtual(SYMBOL_TABLE, "getVariable", "(I)" + VALUE_DESCRIPTOR);
+                    _code.astore(getLocal(0, slot));
+                }
+            }
+            compileForIterations(forStatement);
+        } else {
+            throw new NotCompilableException("Only while and for statements are supported.");
+        }
+        _code.op(CodeBuilder.RETURN);
+
+        return classFile.toByteArray();
+    }
+
+    // Both CompiledCode and CompiledLoop are constructed from the runtime and constants.
+    private static ClassFileWriter createClassFile(String name, String superClass) {
+        final var classFile = new ClassFileWriter(name, superClass);
+        final var constructor = classFile.addMethod(
+                ClassFileWriter.ACC_PUBLIC,
+                "<init>",
+                "(" + RUNTIME_DESCRIPTOR + "[Ljava/lang/Object;)V");
+        constructor.aload(0);
+        constructor.aload(1);
+        constructor.aload(2);
+        constructor.invokeSpecial(superClass, "<init>", "(" + RUNTIME_DESCRIPTOR + "[Ljava/lang/Object;)V");
+        constructor.op(CodeBuilder.RETURN);
+        return classFile;
+    }
+
+    private Object instantiate(byte[] bytes) throws ReflectiveOperationException {
+        final var compiledClass = MethodHandles.lookup().defineHiddenClass(bytes, true).lookupClass();
+        return compiledClass
+                .getConstructor(JitRuntime.class, Object[].class)
+                .newInstance(_runtime, _constants.toArray());
+    }
+
+    // The runtime and constants are loaded into locals once, rather than from their fields each time.
+    private void loadFields(String superClass) {
+        _runtimeLocal = _code.newLocal();
+        _code.aload(0);
+        _code.getField(superClass, "_runtime", RUNTIME_DESCRIPTOR);
+        _code.astore(_runtimeLocal);
+        _constantsLocal = _code.newLocal();
+        _code.aload(0);
+        _code.getField(superClass, "_constants", "[Ljava/lang/Object;");
+        _code.astore(_constantsLocal);
+    }
+
+    private void compileCondition(Expression condition, String message) {
+        visit(condition);
+        loadRuntime();
+        _code.pushString(message);
+        _code.invokeStatic(OPERATIONS, "isTruthy", "(" + VALUE_DESCRIPTOR + RUNTIME_DESCRIPTOR + "Ljava/lang/String;)Z");
+    }
+
+    // Loads the arguments onto the stack if there are up to the maximum, otherwise into an array,
+    // returning the variant of the operation (see CALL_OPERATIONS) to call with them.
+    private int loadArguments(List<Expression> arguments, int maxSpecialised) {
+        if (arguments.size() <= maxSpecialised) {
+            for (final var argument : arguments) {
+                visit(argument);
+            }
+            return arguments.size();
+        }
+        _code.pushInt(arguments.size());
+        _code.newArray(VALUE);
+        for (int i = 0; i < arguments.size(); i++) {
+            _code.op(CodeBuilder.DUP);
+            _code.pushInt(i);
+            visit(arguments.get(i));
+            _code.op(CodeBuilder.AASTORE);
+        }
+        return maxSpecialised + 1;
+    }
+
+    private void loadVariable(VariableKind kind, int depth, int slot) {
+        switch (kind) {
+            case GLOBAL -> {
+                loadRuntime();
+                _code.pushInt(slot);
+                _code.invokeInterface(RUNTIME, "getGlobal", "(I)" + VALUE_DESCRIPTOR);
+            }
+            case LOCAL -> {
+                if (isEnclosingScope(depth)) {
+                    _code.aload(_symbolTableLocal);
+                    _code.pushInt(getEnclosingDepth(depth));
+                    _code.pushInt(slot);
+                    _code.invokeStatic(OPERATIONS, "getLocal", "(" + SYMBOL_TABLE_DESCRIPTOR + "II)" + VALUE_DESCRIPTOR);
+                } else {
+                    _code.aload(getLocal(depth, slot));
+                }
+            }
+            case UPVALUE -> {
+                loadConstant(getUpvalue(slot), CELL);
+                _code.invokeVirtual(CELL, "get", "()" + VALUE_DESCRIPTOR);
+            }
+            case CELL -> throw new NotCompilableException("Cells are not supported.");
+        }
+    }
+
+    private void loadRuntime() {
+        _code.aload(_runtimeLocal);
+    }
+
+    private void loadSite(String file, int line) {
+        _code.pushString(file);
+        _code.pushInt(line);
+    }
+
+    private void loadConstant(Object constant, String type) {
+        var index = _constantIndices.get(constant);
+        if (index == null) {
+            index = _constants.size();
+            _constants.add(constant);
+            _constantIndices.put(constant, index);
+        }
+        _code.aload(_constantsLocal);
+        _code.pushInt(index);
+        _code.op(CodeBuilder.AALOAD);
+        _code.checkCast(type);
+    }
+
+    private int getLocal(int depth, int slot) {
+        return _scopes.get(_scopes.size() - 1 - depth)[slot];
+    }
+
+    // Whether the variable is in a scope enclosing a compiled loop, rather than in a JVM local.
+    private boolean isEnclosingScope(int depth) {
+        return depth >= _scopes.size();
+    }
+
+    // The depth of a variable in an enclosing scope, relative to the symbol table the loop was entered with.
+    private int getEnclosingDepth(int depth) {
+        return depth - _scopes.size() + _enclosingScopeOffset;
+    }
+
+    private Cell getUpvalue(int slot) {
+        if (_function == null) {
+            throw new NotCompilableException("Upvalues are only supported within functions.");
+        }
+        return _function.getUpvalues()[slot];
+    }
+
+    private void pushScope(int size) {
+        final var locals = new int[size];
+        for (int i = 0; i < size; i++) {
+            locals[i] = _code.newLocal();
+        }
+        _scopes.add(locals);
+    }
+
+    private void popScope() {
+        _scopes.removeLast();
+    }
+
+    private final JocksUserLandFunction _function; // Null when compiling a loop.
+    private final JitRuntime _runtime;
+    private final List<Object> _constants = new ArrayList<>();
+    private final IdentityHashMap<Object, Integer> _constantIndices = new IdentityHashMap<>();
+    private final List<int[]> _scopes = new ArrayList<>(); // The JVM local of each slot, innermost scope last.
+    private CodeBuilder _code;
+    private int _runtimeLocal;
+    private int _constantsLocal;
+    private int _symbolTableLocal; // The symbol table a loop was entered with.
+    private int _enclosingScopeOffset = 0; // 1 if the outermost scope was entered with the symbol table.
+    private Label _startLabel; // The start of a function's statements, null when compiling a loop.
+}
@@ -0,0 +1,362 @@
+package com.colossalg.jit;
+
+import com.colossalg.Token;
+import com.colossalg.builtin.functions.BoundMethod;
+import com.colossalg.dataTypes.JocksValue;
+import com.colossalg.dataTypes.classes.JocksClass;
+import com.colossalg.dataTypes.classes.JocksInstance;
+import com.colossalg.dataTypes.functions.JocksFunction;
+import com.colossalg.dataTypes.functions.JocksUserLandFunction;
+import com.colossalg.dataTypes.primitives.JocksBool;
+import com.colossalg.dataTypes.primitives.JocksNil;
+import com.colossalg.dataTypes.primitives.JocksNumber;
+import com.colossalg.expression.DotExpression;
+import com.colossalg.expression.NewInvocation;
+import com.colossalg.visitors.Cell;
+import com.colossalg.visitors.SymbolTable;
+
+// The operations called by compiled code, each of which behaves exactly as the Interpreter does
+// when evaluating the corresponding node.
+//
+// Operators on numbers are computed here, where HotSpot may inline them into the compiled code,
+// while anything else falls back to the Interpreter (e.g. operators overloaded by instances).
+public final class JitOperations {
+
+    public static boolean isTruthy(JocksValue condition, JitRuntime runtime, String message) {
+        if (condition == JocksBool.Truthy) {
+            return true;
+        }
+        if (condition == JocksBool.Falsey) {
+            return false;
+        }
+        throw runtime.createException(message);
+    }
+
+    public static void checkLogicalLft(JocksValue lft, JitRuntime runtime, Token operator) {
+        if (!(lft instanceof JocksBool)) {
+            throw runtime.createException(
+                    operator.getFile(),
+                    operator.getLine(),
+                    "Left sub expression of '%s' expression did not evaluate to type 'bool.",
+                    operator.getText());
+        }
+    }
+
+    public static JocksValue checkLogicalRgt(JocksValue rgt, JitRuntime runtime, Token operator) {
+        if (!(rgt instanceof JocksBool)) {
+            throw runtime.createException(
+                    operator.getFile(),
+                    operator.getLine(),
+                    "Right sub expression of '%s' expression did not evaluate to type 'bool.",
+                    operator.getText());
+        }
+        return rgt;
+    }
+
+    public static JocksValue equal(JocksValue l, JocksValue r, JitRuntime runtime, Token operator) {
+        return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                ? JocksBool.fromBoolean(lNumber.getData() == rNumber.getData())
+                : runtime.applyBinaryOperator(operator, l, r);
+    }
+
+    public static JocksValue notEqual(JocksValue l, JocksValue r, JitRuntime runtime, Token operator) {
+        return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                ? JocksBool.fromBoolean(lNumber.getData() != rNumber.getData())
+                : runtime.applyBinaryOperator(operator, l, r);
+    }
+
+    public static JocksValue lessThan(JocksValue l, JocksValue r, JitRuntime runtime, Token operator) {
+        return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                ? JocksBool.fromBoolean(lNumber.getData() < rNumber.getData())
+                : runtime.applyBinaryOperator(operator, l, r);
+    }
+
+    public static JocksValue lessThanOrEqual(JocksValue l, JocksValue r, JitRuntime runtime, Token operator) {
+        return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                ? JocksBool.fromBoolean(lNumber.getData() <= rNumber.getData())
+                : runtime.applyBinaryOperator(operator, l, r);
+    }
+
+    public static JocksValue moreThan(JocksValue l, JocksValue r, JitRuntime runtime, Token operator) {
+        return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                ? JocksBool.fromBoolean(lNumber.getData() > rNumber.getData())
+                : runtime.applyBinaryOperator(operator, l, r);
+    }
+
+    public static JocksValue moreThanOrEqual(JocksValue l, JocksValue r, JitRuntime runtime, Token operator) {
+        return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                ? JocksBool.fromBoolean(lNumber.getData() >= rNumber.getData())
+                : runtime.applyBinaryOperator(operator, l, r);
+    }
+
+    public static JocksValue add(JocksValue l, JocksValue r, JitRuntime runtime, Token operator) {
+        return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                ? JocksNumber.valueOf(lNumber.getData() + rNumber.getData())
+                : runtime.applyBinaryOperator(operator, l, r);
+    }
+
+    public static JocksValue sub(JocksValue l, JocksValue r, JitRuntime runtime, Token operator) {
+        return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                ? JocksNumber.valueOf(lNumber.getData() - rNumber.getData())
+                : runtime.applyBinaryOperator(operator, l, r);
+    }
+
+    public static JocksValue mul(JocksValue l, JocksValue r, JitRuntime runtime, Token operator) {
+        return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                ? JocksNumber.valueOf(lNumber.getData() * rNumber.getData())
+                : runtime.applyBinaryOperator(operator, l, r);
+    }
+
+    public static JocksValue div(JocksValue l, JocksValue r, JitRuntime runtime, Token operator) {
+        return l instanceof JocksNumber lNumber && r instanceof JocksNumber rNumber
+                ? JocksNumber.valueOf(lNumber.getData() / rNumber.getData())
+                : runtime.applyBinaryOperator(operator, l, r);
+    }
+
+    public static JocksValue not(JocksValue value, JitRuntime runtime, Token operator) {
+        if (value == JocksBool.Truthy) {
+            return JocksBool.Falsey;
+        }
+        if (value == JocksBool.Falsey) {
+            return JocksBool.Truthy;
+        }
+        return runtime.applyUnaryOperator(operator, value);
+    }
+
+    public static JocksValue plus(JocksValue value, JitRuntime runtime, Token operator) {
+        return value instanceof JocksNumber
+                ? value
+                : runtime.applyUnaryOperator(operator, value);
+    }
+
+    public static JocksValue negate(JocksValue value, JitRuntime runtime, Token operator) {
+        return value instanceof JocksNumber number
+                ? JocksNumber.valueOf(-1 * number.getData())
+                : runtime.applyUnaryOperator(operator, value);
+    }
+
+    public static JocksValue setGlobal(JocksValue value, JitRuntime runtime, int slot) {
+        runtime.setGlobal(slot, value);
+        return value;
+    }
+
+    public static JocksValue setCell(JocksValue value, Cell cell) {
+        cell.set(value);
+        return value;
+    }
+
+    public static JocksValue getLocal(SymbolTable symbolTable, int depth, int slot) {
+        return symbolTable.getAncestor(depth).getVariable(slot);
+    }
+
+    public static JocksValue setLocal(JocksValue value, SymbolTable symbolTable, int depth, int slot) {
+        symbolTable.getAncestor(depth).setVariable(slot, value);
+        return value;
+    }
+
+    public static JocksValue getProperty(JocksValue lhs, DotExpression expression, JitRuntime runtime) {
+        return runtime.getPropertyOrMethod(expression, lhs);
+    }
+
+    public static JocksValue assignProperty(JocksValue rhs, JocksValue lhs, DotExpression expression, JitRuntime runtime) {
+        runtime.assignProperty(expression, lhs, rhs);
+        return rhs;
+    }
+
+    public static void print(JocksValue value) {
+        System.out.println(value.str());
+    }
+
+    public static JocksFunction checkCallable(JocksValue callee, JitRuntime runtime, int argumentCount, String file, int line) {
+        if (!(callee instanceof JocksFunction function)) {
+            throw runtime.createException(
+                    file,
+                    line,
+                    "Sub expression did not evaluate to a function which can be invoked.");
+        }
+        checkArity(function.getArity(), argumentCount, runtime, file, line);
+        return function;
+    }
+
+    // Returns the instance if the '.' expression finds a method on it, which is then called with the
+    // instance as its leading argument rather than creating a BoundMethod (as the Interpreter does).
+    public static JocksValue getMethodReceiver(JocksValue lhs, DotExpression expression) {
+        if (lhs instanceof JocksInstance instance) {
+            final var inlineCache = expression.getInlineCache();
+            final var index = inlineCache.lookup(instance, expression.getRhsIdentifier().getText());
+            if (index != -1 && inlineCache.getSlot(index) == -1) {
+                return instance;
+            }
+        }
+        return null;
+    }
+
+    // The receiver is that returned by getMethodReceiver.
+    public static JocksFunction checkMethodCallable(
+            JocksValue lhs,
+            JocksValue receiver,
+            DotExpression expression,
+            JitRuntime runtime,
+            int argumentCount,
+            String file,
+            int line
+    ) {
+        if (receiver == null) {
+            return checkCallable(runtime.getPropertyOrMethod(expression, lhs), runtime, argumentCount, file, line);
+        }
+        final var inlineCache = expression.getInlineCache();
+        final var method = inlineCache.getMethod(inlineCache.lookup((JocksInstance)receiver, expression.getRhsIdentifier().getText()));
+        checkArity(method.getArity() - 1, argumentCount, runtime, file, line);
+        return method;
+    }
+
+    public static JocksValue call0(JocksFunction function, JitRuntime runtime, String file, int line) {
+        runtime.pushCallStackEntry(function.getName(), file, line);
+        final var result = function.call0();
+        runtime.popCallStackEntry();
+        return result;
+    }
+
+    public static JocksValue call1(JocksFunction function, JocksValue argument0, JitRuntime runtime, String file, int line) {
+        runtime.pushCallStackEntry(function.getName(), file, line);
+        final var result = function.call1(argument0);
+        runtime.popCallStackEntry();
+        return result;
+    }
+
+    public static JocksValue call2(JocksFunction function, JocksValue argument0, JocksValue argument1, JitRuntime runtime, String file, int line) {
+        runtime.pushCallStackEntry(function.getName(), file, line);
+        final var result = function.call2(argument0, argument1);
+        runtime.popCallStackEntry();
+        return result;
+    }
+
+    public static JocksValue call3(JocksFunction function, JocksValue argument0, JocksValue argument1, JocksValue argument2, JitRuntime runtime, String file, int line) {
+        runtime.pushCallStackEntry(function.getName(), file, line);
+        final var result = function.call3(argument0, argument1, argument2);
+        runtime.popCallStackEntry();
+        return result;
+    }
+
+    public static JocksValue call(JocksFunction function, JocksValue[] arguments, JitRuntime runtime, String file, int line) {
+        runtime.pushCallStackEntry(function.getName(), file, line);
+        final var result = function.call(arguments);
+        runtime.popCallStackEntry();
+        return result;
+    }
+
+    public static JocksValue callMethod0(JocksFunction function, JocksValue receiver, JitRuntime runtime, String file, int line) {
+        return receiver == null
+                ? call0(function, runtime, file, line)
+                : call1(function, receiver, runtime, file, line);
+    }
+
+    public static JocksValue callMethod1(JocksFunction function, JocksValue receiver, JocksValue argument0, JitRuntime runtime, String file, int line) {
+        return receiver == null
+                ? call1(function, argument0, runtime, file, line)
+                : call2(function, receiver, argument0, runtime, file, line);
+    }
+
+    public static JocksValue callMethod2(JocksFunction function, JocksValue receiver, JocksValue argument0, JocksValue argument1, JitRuntime runtime, String file, int line) {
+        return receiver == null
+                ? call2(function, argument0, argument1, runtime, file, line)
+                : call3(function, receiver, argument0, argument1, runtime, file, line);
+    }
+
+    public static JocksValue callMethod(JocksFunction function, JocksValue receiver, JocksValue[] arguments, JitRuntime runtime, String file, int line) {
+        if (receiver == null) {
+            return arguments.length == 3
+                    ? call3(function, arguments[0], arguments[1], arguments[2], runtime, file, line)
+                    : call(function, arguments, runtime, file, line);
+        }
+        return call(function, prependArgument(receiver, arguments), runtime, file, line);
+    }
+
+    // A tail call to a user land function is prepared to be made once the compiled code has returned (nil
+    // being returned meanwhile), as the Interpreter does, so that a chain of them runs in constant stack.
+    // Other functions (e.g. builtins) are called as usual. The receiver is that returned by getMethodReceiver.
+    public static JocksValue tailCall(
+            JocksFunction function,
+            JocksValue receiver,
+            JocksValue[] arguments,
+            JitRuntime runtime,
+            String file,
+            int line
+    ) {
+        if (function instanceof JocksUserLandFunction userLandFunction) {
+            runtime.prepareTailCall(userLandFunction, prependArgument(receiver, arguments), file, line);
+            return JocksNil.Instance;
+        }
+        if (function instanceof BoundMethod boundMethod
+                && boundMethod.getFunction() instanceof JocksUserLandFunction userLandFunction) {
+            runtime.prepareTailCall(userLandFunction, prependArgument(boundMethod.getInstance(), arguments), file, line);
+            return JocksNil.Instance;
+        }
+        return callMethod(function, receiver, arguments, runtime, file, line);
+    }
+
+    // Made by a compiled function calling itself as a tail call, which then jumps back to its start.
+    public static void replaceCallStackEntry(JocksFunction function, JitRuntime runtime, String file, int line) {
+        runtime.popCallStackEntry();
+        runtime.pushCallStackEntry(function.getName(), file, line);
+    }
+
+    // Creates the instance, which is then initialised (once the arguments are evaluated) by init.
+    public static JocksInstance instantiate(JocksValue invokedValue, JitRuntime runtime, NewInvocation expression) {
+        if (!(invokedValue instanceof JocksClass invoked)) {
+            throw runtime.createException(
+                    expression.getFile(),
+                    expression.getLine(),
+                    "The identifier '%s' is not a class from which a new instance can be instantiated.",
+                    expression.getIdentifier().getText());
+        }
+        final var instance = invoked.createInstance();
+        // Leading instance parameter - implicitly passed.
+        checkArity(invoked.getInitMethod().getArity(), expression.getArguments().size() + 1, runtime, expression.getFile(), expression.getLine());
+        return instance;
+    }
+
+    public static JocksValue init0(JocksInstance instance, JitRuntime runtime, String file, int line) {
+        call1(instance.getJClass().getInitMethod(), instance, runtime, file, line);
+        return instance;
+    }
+
+    public static JocksValue init1(JocksInstance instance, JocksValue argument0, JitRuntime runtime, String file, int line) {
+        call2(instance.getJClass().getInitMethod(), instance, argument0, runtime, file, line);
+        return instance;
+    }
+
+    public static JocksValue init2(JocksInstance instance, JocksValue argument0, JocksValue argument1, JitRuntime runtime, String file, int line) {
+        call3(instance.getJClass().getInitMethod(), instance, argument0, argument1, runtime, file, line);
+        return instance;
+    }
+
+    public static JocksValue init(JocksInstance instance, JocksValue[] arguments, JitRuntime runtime, String file, int line) {
+        callMethod(instance.getJClass().getInitMethod(), instance, arguments, runtime, file, line);
+        return instance;
+    }
+
+    private static JocksValue[] prependArgument(JocksValue argument, JocksValue[] arguments) {
+        if (argument == null) {
+            return arguments;
+        }
+        final var argumentsWithArgument = new JocksValue[arguments.length + 1];
+        argumentsWithArgument[0] = argument;
+        System.arraycopy(arguments, 0, argumentsWithArgument, 1, arguments.length);
+        return argumentsWithArgument;
+    }
+
+    private static void checkArity(int funcArity, int exprArity, JitRuntime runtime, String file, int line) {
+        if (funcArity != exprArity) {
+            throw runtime.createException(
+                    file,
+                    line,
+                    "Number of parameters (%d) did not match what was expected (%d).",
+                    funcArity,
+                    exprArity);
+        }
+    }
+
+    private JitOperations() {
+    }
+}
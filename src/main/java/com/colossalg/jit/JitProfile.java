@@ -0,0 +1,228 @@
+package com.colossalg.jit;
+
+import com.colossalg.SourceHash;
+import com.colossalg.statement.*;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+// Records which functions and top level loops of a program were hot enough to be compiled, so that
+// later runs of the same program may compile them as soon as they're first run, rather than each run
+// interpreting them until they become hot again (see Interpreter).
+//
+// Functions are recorded by their declaration and loops by their statement, each identified in the
+// file by its index in the order the nodes are found in the program's (resolved) statements. This is
+// only meaningful for the same statements, so the file is keyed by the hash of the program's source
+// and ignored if the source has since changed.
+//
+// A profile may also be packaged along with the statements in a JAR (see AotCompiler), where there's
+// no source to hash, so it's instead keyed by the hash recorded when the JAR was built.
+//
+// The file is read and written with java.io rather than NIO, as loading the latter would cost more
+// at startup than the profile saves on short-running programs.
+public class JitProfile {
+
+    public JitProfile(List<Statement> statements, String source) {
+        this(SourceHash.of(source), statements);
+    }
+
+    // For statements whose source isn't available, given the hash of the source (see getSourceHash).
+    public static JitProfile withSourceHash(List<Statement> statements, String sourceHash) {
+        return new JitProfile(sourceHash, statements);
+    }
+
+    private JitProfile(String sourceHash, List<Statement> statements) {
+        new Indexer().visitAll(statements);
+        _sourceHash = sourceHash;
+    }
+
+    public String getSourceHash() {
+        return _sourceHash;
+    }
+
+    // Whether nothing has been found to be hot.
+    public boolean isEmpty() {
+        return _hot.isEmpty();
+    }
+
+    public boolean isHot(Statement statement) {
+        final var index = _indices.get(statement);
+        return index != null && _hot.get(index);
+    }
+
+    // The statement should be a function declaration or loop.
+    public void recordHot(Statement statement) {
+        final var index = _indices.get(statement);
+        if (index != null) {
+            _hot.set(index);
+        }
+    }
+
+    // A missing file, or one for a different source, is treated as an empty profile.
+    public void read(String file) throws IOException {
+        if (!new File(file).isFile()) {
+            return;
+        }
+        try (final var reader = new BufferedReader(new FileReader(file))) {
+            read(reader);
+        }
+    }
+
+    // As for read(String), but from the reader (which is left open).
+    public void read(BufferedReader reader) throws IOException {
+        final var lines = new ArrayList<String>();
+        String line = reader.readLine();
+        while (line != null) {
+            lines.add(line);
+            line = reader.readLine();
+        }
+        if (lines.size() < 3
+                || !lines.get(0).equals(HEADER)
+                || !lines.get(1).equals(_sourceHash)
+                || !lines.get(2).equals(Integer.toString(_nodeCount))) {
+            return;
+        }
+        for (final var entry : lines.subList(3, lines.size())) {
+            final int index;
+            try {
+                index = Integer.parseInt(entry);
+            } catch (NumberFormatException ex) {
+                throw new IOException("Invalid profile entry '" + entry + "'.");
+            }
+            if (index < 0 || index >= _nodeCount) {
+                throw new IOException("Invalid profile entry '" + entry + "'.");
+            }
+            _hot.set(index);
+        }
+    }
+
+    public void write(String file) throws IOException {
+        try (final var writer = new BufferedWriter(new FileWriter(file))) {
+            write(writer);
+        }
+    }
+
+    // As for write(String), but to the writer (which is flushed, though left open).
+    public void write(BufferedWriter writer) throws IOException {
+        writer.write(HEADER);
+        writer.newLine();
+        writer.write(_sourceHash);
+        writer.newLine();
+        writer.write(Integer.toString(_nodeCount));
+        writer.newLine();
+        for (int index = _hot.nextSetBit(0); index >= 0; index = _hot.nextSetBit(index + 1)) {
+            writer.write(Integer.toString(index));
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    // Assigns each function declaration and loop its index.
+    private class Indexer implements StatementVisitor<Void> {
+
+        void visitAll(List<? extends Statement> statements) {
+            for (final var statement : statements) {
+                visit(statement);
+            }
+        }
+
+        @Override
+        public Void visit(Statement statement) {
+            return statement.accept(this);
+        }
+
+        @Override
+        public Void visitClassDeclaration(ClassDeclaration statement) {
+            visitAll(statement.getMethods());
+            return null;
+        }
+
+        @Override
+        public Void visitFunDeclaration(FunDeclaration statement) {
+            index(statement);
+            visitAll(statement.getStatements());
+            return null;
+        }
+
+        @Override
+        public Void visitVarDeclaration(VarDeclaration statement) {
+            return null;
+        }
+
+        @Override
+        public Void visitIfElseStatement(IfElseStatement statement) {
+            visit(statement.getThenSubStatement());
+            if (statement.getElseSubStatement().isPresent()) {
+                visit(statement.getElseSubStatement().get());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitWhileStatement(WhileStatement statement) {
+            index(statement);
+            visit(statement.getSubStatement());
+            return null;
+        }
+
+        @Override
+        public Void visitForStatement(ForStatement statement) {
+            index(statement);
+            visit(statement.getSubStatement());
+            return null;
+        }
+
+        @Override
+        public Void visitTryCatchStatement(TryCatchStatement statement) {
+            visit(statement.getTryStatement());
+            visit(statement.getCatchStatement());
+            return null;
+        }
+
+        @Override
+        public Void visitThrowStatement(ThrowStatement statement) {
+            return null;
+        }
+
+        @Override
+        public Void visitBlockStatement(BlockStatement statement) {
+            visitAll(statement.getSubStatements());
+            return null;
+        }
+
+        @Override
+        public Void visitReturnStatement(ReturnStatement statement) {
+            return null;
+        }
+
+        @Override
+        public Void visitPrintStatement(PrintStatement statement) {
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStatement(ExpressionStatement statement) {
+            return null;
+        }
+
+        private void index(Statement statement) {
+            _indices.put(statement, _nodeCount++);
+        }
+    }
+
+    // Incremented whenever the format of the file, or the order in which nodes are indexed, changes.
+    private static final String HEADER = "jocks-profile 1";
+
+    private final IdentityHashMap<Statement, Integer> _indices = new IdentityHashMap<>();
+    private final BitSet _hot = new BitSet();
+    private final String _sourceHash;
+    private int _nodeCount = 0;
+}
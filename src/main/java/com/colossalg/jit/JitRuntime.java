@@ -0,0 +1,38 @@
+package com.colossalg.jit;
+
+import com.colossalg.Token;
+import com.colossalg.dataTypes.JocksValue;
+import com.colossalg.dataTypes.functions.JocksUserLandFunction;
+import com.colossalg.expression.DotExpression;
+
+// The state and behaviour of the Interpreter which compiled code shares, so that compiled
+// and interpreted functions may call each other and report errors identically.
+public interface JitRuntime {
+
+    JocksValue getGlobal(int slot);
+
+    void setGlobal(int slot, JocksValue value);
+
+    JocksValue applyBinaryOperator(Token operator, JocksValue lft, JocksValue rgt);
+
+    JocksValue applyUnaryOperator(Token operator, JocksValue value);
+
+    JocksValue getPropertyOrMethod(DotExpression expression, JocksValue lhs);
+
+    void assignProperty(DotExpression expression, JocksValue lhs, JocksValue rhs);
+
+    void pushCallStackEntry(String name, String file, int line);
+
+    void popCallStackEntry();
+
+    // Prepares the call to be made in place of the calling function, once it has returned (see
+    // Interpreter.makeTailCalls), replacing its call stack entry with the callee's.
+    void prepareTailCall(JocksUserLandFunction function, JocksValue[] arguments, String file, int line);
+
+    RuntimeException createException(String file, int line, String format, Object... args);
+
+    RuntimeException createException(String message);
+
+    // Returns the exception to throw to unwind to the try/catch statement catching the value.
+    RuntimeException throwValue(JocksValue value);
+}
@@ -0,0 +1,37 @@
+package com.colossalg.jit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A position within a method's code which may be jumped to before it has been marked.
+class Label {
+
+    public boolean getIsMarked() {
+        return _position != -1;
+    }
+
+    public int getPosition() {
+        return _position;
+    }
+
+    public void setPosition(int position) {
+        _position = position;
+    }
+
+    public int getStackDepth() {
+        return _stackDepth;
+    }
+
+    public void setStackDepth(int stackDepth) {
+        _stackDepth = stackDepth;
+    }
+
+    // The position of each jump instruction to the label made before it was marked.
+    public List<Integer> getJumps() {
+        return _jumps;
+    }
+
+    private int _position = -1;
+    private int _stackDepth = -1;
+    private final List<Integer> _jumps = new ArrayList<>();
+}
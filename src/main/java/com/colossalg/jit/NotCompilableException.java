@@ -0,0 +1,12 @@
+package com.colossalg.jit;
+
+// Thrown while compiling a function which can't be compiled (e.g. as it has a try/catch statement,
+// or its code would be too large), in which case the function continues to be interpreted.
+class NotCompilableException extends RuntimeException {
+
+    public NotCompilableException(String message) {
+        super(message, null, false, false);
+    }
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,79 @@
+package com.colossalg.launcher;
+
+import com.colossalg.ProgramRunner;
+import com.colossalg.jit.JitProfile;
+import com.colossalg.statement.Statement;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.jar.Manifest;
+
+// The main class of a JAR built by AotCompiler, which runs the program packaged within it.
+//
+// The program's statements were resolved (and optimized) when the JAR was built, so are run as
+// soon as they're read, with the options given when it was built (found in the manifest). If the
+// program was profiled, the functions and loops found to be hot are compiled when first run. The
+// profile isn't updated, as the JAR is read-only.
+public class AotLauncher {
+
+    public static final String PROGRAM_RESOURCE = "program.ast";
+    public static final String PROFILE_RESOURCE = "program.profile";
+
+    public static final String MAX_CALL_DEPTH_ATTRIBUTE = "Jocks-Max-Call-Depth";
+    public static final String STACK_SIZE_ATTRIBUTE = "Jocks-Stack-Size";
+    public static final String JIT_THRESHOLD_ATTRIBUTE = "Jocks-Jit-Threshold";
+    public static final String SOURCE_HASH_ATTRIBUTE = "Jocks-Source-Hash";
+
+    public static void main(String[] args) {
+        if (args.length != 0) {
+            System.out.println("USAGE: java -jar <jar-file-path>");
+            System.out.println("\tThe options the program is run with are those given when the jar was built.");
+            return;
+        }
+
+        final Manifest manifest;
+        final List<Statement> statements;
+        try (final var manifestStream = AotLauncher.class.getResourceAsStream("/META-INF/MANIFEST.MF");
+             final var programStream = AotLauncher.class.getResourceAsStream("/" + PROGRAM_RESOURCE)) {
+            if (manifestStream == null || programStream == null) {
+                System.out.println("ERROR - Couldn't find the program within the jar file.");
+                return;
+            }
+            manifest = new Manifest(manifestStream);
+            statements = AstReader.read(new BufferedInputStream(programStream));
+        } catch (IOException ex) {
+            System.out.println("ERROR - Couldn't read the program within the jar file.");
+            System.out.println(ex.getMessage());
+            return;
+        }
+
+        final var attributes = manifest.getMainAttributes();
+        final var maxCallDepth = Integer.parseInt(attributes.getValue(MAX_CALL_DEPTH_ATTRIBUTE));
+        final var stackSizeMegabytes = Integer.parseInt(attributes.getValue(STACK_SIZE_ATTRIBUTE));
+        final var jitThreshold = Integer.parseInt(attributes.getValue(JIT_THRESHOLD_ATTRIBUTE));
+        final var jitProfile = readJitProfile(statements, attributes.getValue(SOURCE_HASH_ATTRIBUTE));
+        ProgramRunner.runWithStackSize(
+                () -> ProgramRunner.interpret(statements, maxCallDepth, jitThreshold, jitProfile),
+                stackSizeMegabytes);
+    }
+
+    // Returns null if the JAR wasn't built with a profile (or it can't be read).
+    private static JitProfile readJitProfile(List<Statement> statements, String sourceHash) {
+        if (sourceHash == null) {
+            return null;
+        }
+        try (final var profileStream = AotLauncher.class.getResourceAsStream("/" + PROFILE_RESOURCE)) {
+            if (profileStream == null) {
+                return null;
+            }
+            final var jitProfile = JitProfile.withSourceHash(statements, sourceHash);
+            jitProfile.read(new BufferedReader(new InputStreamReader(profileStream)));
+            return jitProfile;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+}
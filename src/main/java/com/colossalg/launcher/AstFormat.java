@@ -0,0 +1,56 @@
+package com.colossalg.launcher;
+
+// The binary format of a resolved AST, as written by AstWriter and read by AstReader.
+//
+// The file starts with MAGIC and VERSION, followed by the number of top level statements and then
+// each statement. A node is written as its tag followed by its fields (including those set by the
+// Resolver) in the order of its constructor, then its setters. Absent nodes are written as NONE.
+//
+// Strings are written once, each subsequent occurrence being written as its index (see AstWriter).
+// Integers (other than MAGIC and VERSION) are written in a variable number of bytes (see AstWriter).
+//
+// VERSION must be incremented whenever the format (or the meaning of any annotation) changes.
+public final class AstFormat {
+
+    public static final int MAGIC = 0x4A4F434B; // "JOCK"
+    public static final int VERSION = 2;
+
+    public static final int NONE = 0;
+
+    // Statements
+    public static final int BLOCK = 1;
+    public static final int CLASS_DECLARATION = 2;
+    public static final int EXPRESSION_STATEMENT = 3;
+    public static final int FOR = 4;
+    public static final int FUN_DECLARATION = 5;
+    public static final int IF_ELSE = 6;
+    public static final int PRINT = 7;
+    public static final int RETURN = 8;
+    public static final int THROW = 9;
+    public static final int TRY_CATCH = 10;
+    public static final int VAR_DECLARATION = 11;
+    public static final int WHILE = 12;
+
+    // Expressions
+    public static final int BINARY = 13;
+    public static final int DOT = 14;
+    public static final int FUN_INVOCATION = 15;
+    public static final int GROUPING = 16;
+    public static final int LITERAL = 17;
+    public static final int LOGICAL = 18;
+    public static final int NEW_INVOCATION = 19;
+    public static final int UNARY = 20;
+    public static final int VAR_ASSIGNMENT = 21;
+    public static final int VAR_EXPRESSION = 22;
+
+    // The literals of tokens.
+    public static final int NO_LITERAL = 0;
+    public static final int NUMBER_LITERAL = 1;
+    public static final int STRING_LITERAL = 2;
+
+    // The kind of a variable which isn't present.
+    public static final int NO_VARIABLE_KIND = -1;
+
+    private AstFormat() {
+    }
+}
@@ -0,0 +1,304 @@
+package com.colossalg.launcher;
+
+import com.colossalg.Token;
+import com.colossalg.TokenType;
+import com.colossalg.VariableKind;
+import com.colossalg.expression.*;
+import com.colossalg.statement.*;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads statements written by AstWriter (see AstFormat), which are ready to be executed without
+// being resolved again as the Resolver's annotations are read along with them.
+public class AstReader {
+
+    public static List<Statement> read(InputStream inputStream) throws IOException {
+        final var in = new DataInputStream(inputStream);
+        if (in.readInt() != AstFormat.MAGIC) {
+            throw new IOException("Not a Jocks AST.");
+        }
+        final var version = in.readInt();
+        if (version != AstFormat.VERSION) {
+            throw new IOException(String.format(
+                    "Jocks AST is of version %d, but version %d is required.",
+                    version, AstFormat.VERSION));
+        }
+        return new AstReader(in).readStatements();
+    }
+
+    private AstReader(DataInputStream in) {
+        _in = in;
+    }
+
+    private List<Statement> readStatements() throws IOException {
+        final var count = readInt();
+        final var statements = new ArrayList<Statement>(count);
+        for (int i = 0; i < count; i++) {
+            statements.add(readStatement());
+        }
+        return statements;
+    }
+
+    private Statement readStatement() throws IOException {
+        return readStatement(readInt());
+    }
+
+    private Statement readOptionalStatement() throws IOException {
+        final var tag = readInt();
+        return tag != AstFormat.NONE
+                ? readStatement(tag)
+                : null;
+    }
+
+    private Statement readStatement(int tag) throws IOException {
+        return switch (tag) {
+            case AstFormat.BLOCK -> {
+                final var statement = new BlockStatement(readStatements());
+                statement.setHasScope(_in.readBoolean());
+                statement.setSymbolTableSize(readInt());
+                yield statement;
+            }
+            case AstFormat.CLASS_DECLARATION -> {
+                final var identifier = readToken();
+                final var superClass = readToken();
+                final var methodCount = readInt();
+                final var methods = new ArrayList<FunDeclaration>(methodCount);
+                for (int i = 0; i < methodCount; i++) {
+                    methods.add(readFunDeclaration(readInt()));
+                }
+                final var statement = new ClassDeclaration(identifier, superClass, methods);
+                statement.setVariableKind(readVariableKind());
+                statement.setSymbolTableSlot(readInt());
+                statement.setSuperClassVariableKind(readVariableKind());
+                statement.setSuperClassSymbolTableDepth(readInt());
+                statement.setSuperClassSymbolTableSlot(readInt());
+                yield statement;
+            }
+            case AstFormat.EXPRESSION_STATEMENT -> new ExpressionStatement(readExpression());
+            case AstFormat.FOR -> {
+                final var initializer = readOptionalStatement();
+                final var condition = readOptionalExpression();
+                final var increment = readOptionalExpression();
+                final var statement = new ForStatement(initializer, condition, increment, readStatement());
+                statement.setHasScope(_in.readBoolean());
+                statement.setSymbolTableSize(readInt());
+                yield statement;
+            }
+            case AstFormat.FUN_DECLARATION -> readFunDeclaration(tag);
+            case AstFormat.IF_ELSE -> {
+                final var condition = readExpression();
+                final var thenSubStatement = readStatement();
+                yield new IfElseStatement(condition, thenSubStatement, readOptionalStatement());
+            }
+            case AstFormat.PRINT -> new PrintStatement(readExpression());
+            case AstFormat.RETURN -> {
+                final var file = readString();
+                final var line = readInt();
+                final var statement = new ReturnStatement(file, line, readOptionalExpression());
+                statement.setIsTailCall(_in.readBoolean());
+                yield statement;
+            }
+            case AstFormat.THROW -> new ThrowStatement(readExpression());
+            case AstFormat.TRY_CATCH -> {
+                final var tryStatement = readStatement();
+                final var catchStatement = readStatement();
+                final var statement = new TryCatchStatement(tryStatement, catchStatement, readToken());
+                statement.setExceptionVariableKind(readVariableKind());
+                yield statement;
+            }
+            case AstFormat.VAR_DECLARATION -> {
+                final var identifier = readToken();
+                final var statement = new VarDeclaration(identifier, readExpression());
+                statement.setVariableKind(readVariableKind());
+                statement.setSymbolTableSlot(readInt());
+                yield statement;
+            }
+            case AstFormat.WHILE -> {
+                final var condition = readExpression();
+                yield new WhileStatement(condition, readStatement());
+            }
+            default -> throw new IOException("Jocks AST has statement of unknown tag " + tag + ".");
+        };
+    }
+
+    private FunDeclaration readFunDeclaration(int tag) throws IOException {
+        if (tag != AstFormat.FUN_DECLARATION) {
+            throw new IOException("Jocks AST has method of unexpected tag " + tag + ".");
+        }
+        final var identifier = readToken();
+        final var parameterCount = readInt();
+        final var parameters = new ArrayList<Token>(parameterCount);
+        for (int i = 0; i < parameterCount; i++) {
+            parameters.add(readToken());
+        }
+        final var statement = new FunDeclaration(identifier, parameters, readStatements());
+        statement.setVariableKind(readVariableKind());
+        statement.setSymbolTableSlot(readInt());
+        statement.setSymbolTableSize(readInt());
+        final var parameterSymbolTableSlots = new int[parameterCount];
+        for (int i = 0; i < parameterCount; i++) {
+            parameterSymbolTableSlots[i] = readInt();
+        }
+        statement.setParameterSymbolTableSlots(parameterSymbolTableSlots);
+        final var parameterVariableKinds = new VariableKind[parameterCount];
+        for (int i = 0; i < parameterCount; i++) {
+            parameterVariableKinds[i] = readVariableKind();
+        }
+        statement.setParameterVariableKinds(parameterVariableKinds);
+        final var captureCount = readInt();
+        final var captures = new ArrayList<Capture>(captureCount);
+        for (int i = 0; i < captureCount; i++) {
+            final var isCell = _in.readBoolean();
+            final var symbolTableDepth = readInt();
+            final var index = readInt();
+            captures.add(isCell
+                    ? Capture.ofCell(symbolTableDepth, index)
+                    : Capture.ofUpvalue(index));
+        }
+        statement.setCaptures(captures);
+        return statement;
+    }
+
+    private List<Expression> readExpressions() throws IOException {
+        final var count = readInt();
+        final var expressions = new ArrayList<Expression>(count);
+        for (int i = 0; i < count; i++) {
+            expressions.add(readExpression());
+        }
+        return expressions;
+    }
+
+    private Expression readExpression() throws IOException {
+        return readExpression(readInt());
+    }
+
+    private Expression readOptionalExpression() throws IOException {
+        final var tag = readInt();
+        return tag != AstFormat.NONE
+                ? readExpression(tag)
+                : null;
+    }
+
+    private Expression readExpression(int tag) throws IOException {
+        return switch (tag) {
+            case AstFormat.BINARY -> {
+                final var operator = readToken();
+                final var lftSubExpression = readExpression();
+                yield new BinaryExpression(operator, lftSubExpression, readExpression());
+            }
+            case AstFormat.DOT -> {
+                final var lhsExpression = readExpression();
+                yield new DotExpression(lhsExpression, readToken());
+            }
+            case AstFormat.FUN_INVOCATION -> {
+                final var file = readString();
+                final var line = readInt();
+                final var subExpression = readExpression();
+                yield new FunInvocation(file, line, subExpression, readExpressions());
+            }
+            case AstFormat.GROUPING -> new GroupingExpression(readExpression());
+            case AstFormat.LITERAL -> new LiteralExpression(readToken());
+            case AstFormat.LOGICAL -> {
+                final var operator = readToken();
+                final var lftSubExpression = readExpression();
+                yield new LogicalExpression(operator, lftSubExpression, readExpression());
+            }
+            case AstFormat.NEW_INVOCATION -> {
+                final var file = readString();
+                final var line = readInt();
+                final var identifier = readToken();
+                final var expression = new NewInvocation(file, line, identifier, readExpressions());
+                expression.setVariableKind(readVariableKind());
+                expression.setSymbolTableDepth(readInt());
+                expression.setSymbolTableSlot(readInt());
+                yield expression;
+            }
+            case AstFormat.UNARY -> {
+                final var operator = readToken();
+                yield new UnaryExpression(operator, readExpression());
+            }
+            case AstFormat.VAR_ASSIGNMENT -> {
+                final var lhsExpression = readExpression();
+                yield new VarAssignment(lhsExpression, readExpression());
+            }
+            case AstFormat.VAR_EXPRESSION -> {
+                final var expression = new VarExpression(readToken());
+                expression.setVariableKind(readVariableKind());
+                expression.setSymbolTableDepth(readInt());
+                expression.setSymbolTableSlot(readInt());
+                yield expression;
+            }
+            default -> throw new IOException("Jocks AST has expression of unknown tag " + tag + ".");
+        };
+    }
+
+    private Token readToken() throws IOException {
+        if (!_in.readBoolean()) {
+            return null;
+        }
+        final var type = readEnum(TOKEN_TYPES, "token type", readInt());
+        final var literalTag = readInt();
+        final Object literal = switch (literalTag) {
+            case AstFormat.NO_LITERAL -> null;
+            case AstFormat.NUMBER_LITERAL -> _in.readDouble();
+            case AstFormat.STRING_LITERAL -> readString();
+            default -> throw new IOException("Jocks AST has literal of unknown tag " + literalTag + ".");
+        };
+        final var text = readString();
+        final var file = readString();
+        return new Token(type, literal, text, file, readInt());
+    }
+
+    private VariableKind readVariableKind() throws IOException {
+        final var ordinal = readInt();
+        return ordinal != AstFormat.NO_VARIABLE_KIND
+                ? readEnum(VARIABLE_KINDS, "variable kind", ordinal)
+                : null;
+    }
+
+    private static <T> T readEnum(T[] values, String name, int ordinal) throws IOException {
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IOException("Jocks AST has " + name + " of unknown ordinal " + ordinal + ".");
+        }
+        return values[ordinal];
+    }
+
+    private String readString() throws IOException {
+        final var index = readInt();
+        if (index < _strings.size()) {
+            return _strings.get(index);
+        }
+        if (index != _strings.size()) {
+            throw new IOException("Jocks AST has string of unknown index " + index + ".");
+        }
+        final var bytes = new byte[readInt()];
+        _in.readFully(bytes);
+        final var string = new String(bytes, StandardCharsets.UTF_8);
+        _strings.add(string);
+        return string;
+    }
+
+    // See AstWriter.writeInt.
+    private int readInt() throws IOException {
+        var value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final var b = _in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Jocks AST has integer of more than 5 bytes.");
+    }
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+    private static final VariableKind[] VARIABLE_KINDS = VariableKind.values();
+
+    private final DataInputStream _in;
+    private final ArrayList<String> _strings = new ArrayList<>();
+}
@@ -2,7 +2,7 @@ package com.colossalg.statement;
 
 import java.util.List;
 
-public class BlockStatement implements Statement {
+public final class BlockStatement implements Statement {
 
     public BlockStatement(List<Statement> subStatements) {
         _subStatements = subStatements;
@@ -13,9 +13,29 @@ public class BlockStatement implements Statement {
         return visitor.visitBlockStatement(this);
     }
 
+    // Whether any variables are declared directly within the statement, if not then
+    // the statement doesn't require a symbol table of its own.
+    public boolean getHasScope() {
+        return _hasScope;
+    }
+
+    public void setHasScope(boolean hasScope) {
+        _hasScope = hasScope;
+    }
+
+    public int getSymbolTableSize() {
+        return _symbolTableSize;
+    }
+
+    public void setSymbolTableSize(int symbolTableSize) {
+        _symbolTableSize = symbolTableSize;
+    }
+
     public List<Statement> getSubStatements() {
         return _subStatements;
     }
 
+    private boolean _hasScope = true;
+    private int _symbolTableSize = 0;
     private final List<Statement> _subStatements;
 }
@@ -0,0 +1,38 @@
+package com.colossalg.statement;
+
+// Describes how a function captures one of its upvalues when it is declared, which is
+// either a cell in the symbol tables in which it is declared, or one of the upvalues of
+// the enclosing function.
+public class Capture {
+
+    public static Capture ofCell(int symbolTableDepth, int symbolTableSlot) {
+        return new Capture(true, symbolTableDepth, symbolTableSlot);
+    }
+
+    public static Capture ofUpvalue(int upvalueIndex) {
+        return new Capture(false, -1, upvalueIndex);
+    }
+
+    public boolean getIsCell() {
+        return _isCell;
+    }
+
+    public int getSymbolTableDepth() {
+        return _symbolTableDepth;
+    }
+
+    // The symbol table slot of a cell, or the index of an upvalue.
+    public int getIndex() {
+        return _index;
+    }
+
+    private Capture(boolean isCell, int symbolTableDepth, int index) {
+        _isCell = isCell;
+        _symbolTableDepth = symbolTableDepth;
+        _index = index;
+    }
+
+    private final boolean _isCell;
+    private final int _symbolTableDepth;
+    private final int _index;
+}
@@ -1,11 +1,12 @@
 package com.colossalg.statement;
 
 import com.colossalg.Token;
+import com.colossalg.VariableKind;
 
 import java.util.List;
 import java.util.Optional;
 
-public class ClassDeclaration implements Statement {
+public final class ClassDeclaration implements Statement {
 
     public ClassDeclaration(
             Token identifier,
@@ -22,6 +23,46 @@ public class ClassDeclaration implements Statement {
         return visitor.visitClassDeclaration(this);
     }
 
+    public VariableKind getVariableKind() {
+        return _variableKind;
+    }
+
+    public void setVariableKind(VariableKind variableKind) {
+        _variableKind = variableKind;
+    }
+
+    public int getSymbolTableSlot() {
+        return _symbolTableSlot;
+    }
+
+    public void setSymbolTableSlot(int symbolTableSlot) {
+        _symbolTableSlot = symbolTableSlot;
+    }
+
+    public VariableKind getSuperClassVariableKind() {
+        return _superClassVariableKind;
+    }
+
+    public void setSuperClassVariableKind(VariableKind superClassVariableKind) {
+        _superClassVariableKind = superClassVariableKind;
+    }
+
+    public int getSuperClassSymbolTableDepth() {
+        return _superClassSymbolTableDepth;
+    }
+
+    public void setSuperClassSymbolTableDepth(int superClassSymbolTableDepth) {
+        _superClassSymbolTableDepth = superClassSymbolTableDepth;
+    }
+
+    public int getSuperClassSymbolTableSlot() {
+        return _superClassSymbolTableSlot;
+    }
+
+    public void setSuperClassSymbolTableSlot(int superClassSymbolTableSlot) {
+        _superClassSymbolTableSlot = superClassSymbolTableSlot;
+    }
+
     public Token getIdentifier() {
         return _identifier;
     }
@@ -34,6 +75,11 @@ public class ClassDeclaration implements Statement {
         return _methods;
     }
 
+    private VariableKind _variableKind = VariableKind.LOCAL;
+    private int _symbolTableSlot = -1;
+    private VariableKind _superClassVariableKind = VariableKind.LOCAL;
+    private int _superClassSymbolTableDepth = -1;
+    private int _superClassSymbolTableSlot = -1;
     private final Token _identifier;
     private final Token _superClass;
     private final List<FunDeclaration> _methods;
@@ -2,7 +2,7 @@ package com.colossalg.statement;
 
 import com.colossalg.expression.Expression;
 
-public class ExpressionStatement implements Statement {
+public final class ExpressionStatement implements Statement {
 
     public ExpressionStatement(Expression subExpression) {
         _subExpression = subExpression;
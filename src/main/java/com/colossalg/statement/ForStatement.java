@@ -4,7 +4,7 @@ import com.colossalg.expression.Expression;
 
 import java.util.Optional;
 
-public class ForStatement implements Statement {
+public final class ForStatement implements Statement {
 
     public ForStatement(
             Statement initializer,
@@ -23,6 +23,24 @@ public class ForStatement implements Statement {
         return visitor.visitForStatement(this);
     }
 
+    // Whether any variables are declared directly within the statement, if not then
+    // the statement doesn't require a symbol table of its own.
+    public boolean getHasScope() {
+        return _hasScope;
+    }
+
+    public void setHasScope(boolean hasScope) {
+        _hasScope = hasScope;
+    }
+
+    public int getSymbolTableSize() {
+        return _symbolTableSize;
+    }
+
+    public void setSymbolTableSize(int symbolTableSize) {
+        _symbolTableSize = symbolTableSize;
+    }
+
     public Optional<Statement> getInitializer() {
         return Optional.ofNullable(_initializer);
     }
@@ -39,6 +57,8 @@ public class ForStatement implements Statement {
         return _subStatement;
     }
 
+    private boolean _hasScope = true;
+    private int _symbolTableSize = 0;
     private final Statement _initializer;
     private final Expression _condition;
     private final Expression _increment;
@@ -1,10 +1,11 @@
 package com.colossalg.statement;
 
 import com.colossalg.Token;
+import com.colossalg.VariableKind;
 
 import java.util.List;
 
-public class FunDeclaration implements Statement {
+public final class FunDeclaration implements Statement {
 
     public FunDeclaration(
             Token identifier,
@@ -21,6 +22,54 @@ public class FunDeclaration implements Statement {
         return visitor.visitFunDeclaration(this);
     }
 
+    public VariableKind getVariableKind() {
+        return _variableKind;
+    }
+
+    public void setVariableKind(VariableKind variableKind) {
+        _variableKind = variableKind;
+    }
+
+    public int getSymbolTableSlot() {
+        return _symbolTableSlot;
+    }
+
+    public void setSymbolTableSlot(int symbolTableSlot) {
+        _symbolTableSlot = symbolTableSlot;
+    }
+
+    public int getSymbolTableSize() {
+        return _symbolTableSize;
+    }
+
+    public void setSymbolTableSize(int symbolTableSize) {
+        _symbolTableSize = symbolTableSize;
+    }
+
+    public int[] getParameterSymbolTableSlots() {
+        return _parameterSymbolTableSlots;
+    }
+
+    public void setParameterSymbolTableSlots(int[] parameterSymbolTableSlots) {
+        _parameterSymbolTableSlots = parameterSymbolTableSlots;
+    }
+
+    public VariableKind[] getParameterVariableKinds() {
+        return _parameterVariableKinds;
+    }
+
+    public void setParameterVariableKinds(VariableKind[] parameterVariableKinds) {
+        _parameterVariableKinds = parameterVariableKinds;
+    }
+
+    public List<Capture> getCaptures() {
+        return _captures;
+    }
+
+    public void setCaptures(List<Capture> captures) {
+        _captures = captures;
+    }
+
     public Token getIdentifier() {
         return _identifier;
     }
@@ -33,6 +82,12 @@ public class FunDeclaration implements Statement {
         return _statements;
     }
 
+    private VariableKind _variableKind = VariableKind.LOCAL;
+    private int _symbolTableSlot = -1;
+    private int _symbolTableSize = 0;
+    private int[] _parameterSymbolTableSlots = null;
+    private VariableKind[] _parameterVariableKinds = null;
+    private List<Capture> _captures = List.of();
     private final Token _identifier;
     private final List<Token> _parameters;
     private final List<Statement> _statements;
@@ -4,7 +4,7 @@ import com.colossalg.expression.Expression;
 
 import java.util.Optional;
 
-public class IfElseStatement implements Statement {
+public final class IfElseStatement implements Statement {
 
     public IfElseStatement(
             Expression condition,
@@ -2,7 +2,7 @@ package com.colossalg.statement;
 
 import com.colossalg.expression.Expression;
 
-public class PrintStatement implements Statement {
+public final class PrintStatement implements Statement {
 
     public PrintStatement(Expression subExpression) {
         _subExpression = subExpression;
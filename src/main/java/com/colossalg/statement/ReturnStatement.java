@@ -4,7 +4,7 @@ import com.colossalg.expression.Expression;
 
 import java.util.Optional;
 
-public class ReturnStatement implements Statement {
+public final class ReturnStatement implements Statement {
 
     public ReturnStatement(
             String file,
@@ -21,6 +21,16 @@ public class ReturnStatement implements Statement {
         return visitor.visitReturnStatement(this);
     }
 
+    // Whether the statement returns the result of a call which may be made in place of the
+    // calling function, i.e. it is within a function and isn't within a try statement.
+    public boolean getIsTailCall() {
+        return _isTailCall;
+    }
+
+    public void setIsTailCall(boolean isTailCall) {
+        _isTailCall = isTailCall;
+    }
+
     public String getFile() {
         return _file;
     }
@@ -33,6 +43,7 @@ public class ReturnStatement implements Statement {
         return Optional.ofNullable(_subExpression);
     }
 
+    private boolean _isTailCall = false;
     private final String _file;
     private final int _line;
     private final Expression _subExpression;
@@ -1,6 +1,19 @@
 package com.colossalg.statement;
 
-public interface Statement {
+// Sealed (and each type of statement is final) so that the Interpreter may dispatch on the exact type.
+public sealed interface Statement permits
+        BlockStatement,
+        ClassDeclaration,
+        ExpressionStatement,
+        ForStatement,
+        FunDeclaration,
+        IfElseStatement,
+        PrintStatement,
+        ReturnStatement,
+        ThrowStatement,
+        TryCatchStatement,
+        VarDeclaration,
+        WhileStatement {
 
     <T> T accept(StatementVisitor<T> visitor);
 }
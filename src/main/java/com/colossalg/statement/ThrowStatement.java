@@ -2,7 +2,7 @@ package com.colossalg.statement;
 
 import com.colossalg.expression.Expression;
 
-public class ThrowStatement implements Statement {
+public final class ThrowStatement implements Statement {
 
     public ThrowStatement(Expression subExpression) {
         _subExpression = subExpression;
@@ -1,8 +1,9 @@
 package com.colossalg.statement;
 
 import com.colossalg.Token;
+import com.colossalg.VariableKind;
 
-public class TryCatchStatement implements Statement {
+public final class TryCatchStatement implements Statement {
 
     public TryCatchStatement(
             Statement tryStatement,
@@ -19,6 +20,14 @@ public class TryCatchStatement implements Statement {
         return visitor.visitTryCatchStatement(this);
     }
 
+    public VariableKind getExceptionVariableKind() {
+        return _exceptionVariableKind;
+    }
+
+    public void setExceptionVariableKind(VariableKind exceptionVariableKind) {
+        _exceptionVariableKind = exceptionVariableKind;
+    }
+
     public Statement getTryStatement() {
         return _tryStatement;
     }
@@ -31,6 +40,7 @@ public class TryCatchStatement implements Statement {
         return _exceptionIdentifier;
     }
 
+    private VariableKind _exceptionVariableKind = VariableKind.LOCAL;
     private final Statement _tryStatement;
     private final Statement _catchStatement;
     private final Token _exceptionIdentifier;
@@ -1,9 +1,10 @@
 package com.colossalg.statement;
 
 import com.colossalg.Token;
+import com.colossalg.VariableKind;
 import com.colossalg.expression.Expression;
 
-public class VarDeclaration implements Statement {
+public final class VarDeclaration implements Statement {
 
     public VarDeclaration(Token identifier, Expression expression) {
         _identifier = identifier;
@@ -15,6 +16,22 @@ public class VarDeclaration implements Statement {
         return visitor.visitVarDeclaration(this);
     }
 
+    public VariableKind getVariableKind() {
+        return _variableKind;
+    }
+
+    public void setVariableKind(VariableKind variableKind) {
+        _variableKind = variableKind;
+    }
+
+    public int getSymbolTableSlot() {
+        return _symbolTableSlot;
+    }
+
+    public void setSymbolTableSlot(int symbolTableSlot) {
+        _symbolTableSlot = symbolTableSlot;
+    }
+
     public Token getIdentifier() {
         return _identifier;
     }
@@ -23,6 +40,8 @@ public class VarDeclaration implements Statement {
         return _expression;
     }
 
+    private VariableKind _variableKind = VariableKind.LOCAL;
+    private int _symbolTableSlot = -1;
     private final Token _identifier;
     private final Expression _expression;
 }
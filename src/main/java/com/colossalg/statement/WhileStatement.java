@@ -2,7 +2,7 @@ package com.colossalg.statement;
 
 import com.colossalg.expression.Expression;
 
-public class WhileStatement implements Statement {
+public final class WhileStatement implements Statement {
 
     public WhileStatement(Expression condition, Statement subStatement) {
         _condition = condition;
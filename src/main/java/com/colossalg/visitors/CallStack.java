@@ -0,0 +1,61 @@
+package com.colossalg.visitors;
+
+import java.util.Arrays;
+
+// The call stack is only ever read when an exception is created, so entries are
+// kept as the raw pieces of information making them up (in parallel arrays so as
+// to avoid an allocation per call), and are only formatted when rendered.
+public class CallStack {
+
+    public static final int DEFAULT_MAX_SIZE = 100_000;
+
+    public int size() {
+        return _size;
+    }
+
+    public void push(String name, String file, int line) {
+        push(null, name, file, line);
+    }
+
+    // Used for operator overloads, which are identified by both their class and method.
+    public void push(String classIdentifier, String name, String file, int line) {
+        if (_size == _names.length) {
+            final var capacity = _size * 2;
+            _classIdentifiers = Arrays.copyOf(_classIdentifiers, capacity);
+            _names = Arrays.copyOf(_names, capacity);
+            _files = Arrays.copyOf(_files, capacity);
+            _lines = Arrays.copyOf(_lines, capacity);
+        }
+        _classIdentifiers[_size] = classIdentifier;
+        _names[_size] = name;
+        _files[_size] = file;
+        _lines[_size] = line;
+        _size++;
+    }
+
+    public void pop() {
+        truncate(_size - 1);
+    }
+
+    public void truncate(int size) {
+        while (_size > size) {
+            _size--;
+            _classIdentifiers[_size] = null;
+            _names[_size] = null;
+            _files[_size] = null;
+        }
+    }
+
+    public String getEntryInfo(int index) {
+        final var name = _classIdentifiers[index] == null
+                ? _names[index]
+                : _classIdentifiers[index] + "." + _names[index];
+        return String.format("%s at %s:%d", name, _files[index], _lines[index]);
+    }
+
+    private String[] _classIdentifiers = new String[16];
+    private String[] _names = new String[16];
+    private String[] _files = new String[16];
+    private int[] _lines = new int[16];
+    private int _size = 0;
+}
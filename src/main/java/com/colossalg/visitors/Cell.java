@@ -0,0 +1,22 @@
+package com.colossalg.visitors;
+
+import com.colossalg.dataTypes.JocksValue;
+
+// A variable which is captured by a closure, shared between the symbol table in which
+// it is declared and the upvalues of each closure capturing it.
+public class Cell {
+
+    public Cell(JocksValue value) {
+        _value = value;
+    }
+
+    public JocksValue get() {
+        return _value;
+    }
+
+    public void set(JocksValue value) {
+        _value = value;
+    }
+
+    private JocksValue _value;
+}
@@ -1,13 +1,12 @@
 package com.colossalg.visitors;
 
-import java.util.List;
-
-import java.util.function.Supplier;
-
 public class ExceptionFactory {
 
-    public ExceptionFactory(Supplier<List<String>> getCallStackEntryInfo) {
-        _getCallStackEntryInfo = getCallStackEntryInfo;
+    // Only the outermost and innermost entries of deep call stacks are rendered (e.g. for runaway recursion).
+    public static final int MAX_RENDERED_CALL_STACK_ENTRIES = 20;
+
+    public ExceptionFactory(CallStack callStack) {
+        _callStack = callStack;
     }
 
     public RuntimeException createExceptionWithFileAndLine(
@@ -32,14 +31,20 @@ public class ExceptionFactory {
     private String getCallStackEntryInfoString() {
         final var stringBuilder = new StringBuilder();
         stringBuilder.append("\tCall stack:\n");
-        for (final var info : _getCallStackEntryInfo.get()) {
+        final var size = _callStack.size();
+        final var half = MAX_RENDERED_CALL_STACK_ENTRIES / 2;
+        for (int i = 0; i < size; i++) {
+            if (size > MAX_RENDERED_CALL_STACK_ENTRIES && i == half) {
+                stringBuilder.append(String.format("\t\t... (%d entries omitted) ...\n", size - 2 * half));
+                i = size - half;
+            }
             stringBuilder.append('\t');
             stringBuilder.append('\t');
-            stringBuilder.append(info);
+            stringBuilder.append(_callStack.getEntryInfo(i));
             stringBuilder.append('\n');
         }
         return stringBuilder.toString();
     }
 
-    private final Supplier<List<String>> _getCallStackEntryInfo;
+    private final CallStack _callStack;
 }
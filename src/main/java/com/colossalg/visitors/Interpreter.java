@@ -2,58 +2,109 @@ package com.colossalg.visitors;
 
 import com.colossalg.Token;
 import com.colossalg.TokenType;
+import com.colossalg.VariableKind;
+import com.colossalg.builtin.Builtins;
 import com.colossalg.builtin.functions.*;
-import com.colossalg.builtin.functions.maths.*;
 import com.colossalg.dataTypes.*;
 import com.colossalg.dataTypes.classes.*;
 import com.colossalg.dataTypes.functions.*;
 import com.colossalg.dataTypes.primitives.*;
 import com.colossalg.expression.*;
+import com.colossalg.jit.CompiledCode;
+import com.colossalg.jit.CompiledLoop;
+import com.colossalg.jit.JitCompiler;
+import com.colossalg.jit.JitProfile;
+import com.colossalg.jit.JitRuntime;
 import com.colossalg.statement.*;
 
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.function.Supplier;
 
 public class Interpreter implements StatementVisitor<Void>, ExpressionVisitor<JocksValue> {
 
+    // The number of calls to (and loop iterations within) a function after which it is compiled,
+    // or zero for functions never to be compiled (see JocksUserLandFunction). Loops at the top level
+    // are similarly compiled once they have iterated this many times (see CompiledLoop).
+    public static final int DEFAULT_JIT_THRESHOLD = 1000;
+
     public Interpreter() {
-        // Type checking
-        _symbolTable.createVariable("is_nil", new IsType<>("is_nil", JocksNil.class));
-        _symbolTable.createVariable("is_bool", new IsType<>("is_bool", JocksBool.class));
-        _symbolTable.createVariable("is_number", new IsType<>("is_number", JocksNumber.class));
-        _symbolTable.createVariable("is_string", new IsType<>("is_string", JocksString.class));
-        _symbolTable.createVariable("is_instance", new IsType<>("is_instance", JocksInstance.class));
-        _symbolTable.createVariable("is_function", new IsType<>("is_function", JocksFunction.class));
-        _symbolTable.createVariable("is_class", new IsType<>("is_class", JocksClass.class));
+        this(CallStack.DEFAULT_MAX_SIZE);
+    }
 
-        // Maths
-        _symbolTable.createVariable("abs", new Abs());
-        _symbolTable.createVariable("floor", new Floor());
-        _symbolTable.createVariable("pow", new Pow());
+    public Interpreter(int maxCallDepth) {
+        this(maxCallDepth, DEFAULT_JIT_THRESHOLD);
+    }
 
-        // Strings
-        _symbolTable.createVariable("to_string", new ToString());
+    public Interpreter(int maxCallDepth, int jitThreshold) {
+        _maxCallDepth = maxCallDepth;
+        _jitThreshold = jitThreshold;
 
-        // Global Object class which all other classes are descendants of.
-        _symbolTable.createVariable(
-                "Object",
-                new JocksClass("Object", null, new HashMap<>()));
+        var slot = 0;
+        for (final var builtin : Builtins.ALL) {
+            _globals.createVariable(slot++, builtin.name(), builtin.create());
+        }
+    }
+
+    public void interpret(List<Statement> statements) {
+        try {
+            visitAll(statements);
+        } catch (ThrowSignal signal) {
+            _isThrowing = true;
+        }
     }
 
     public void visitAll(List<Statement> statements) {
         for (final var statement : statements) {
             visit(statement);
-            if (_isReturning || _isThrowing) {
-                break;
-            }
         }
     }
 
     @Override
     public Void visit(Statement statement) {
-        return statement.accept(this);
+        // Dispatched on the node's type here rather than through accept, so that each visit method
+        // is called directly (and may be inlined) rather than from a call site seeing every type of
+        // node. The node types are final, so each test is a single comparison of the node's class,
+        // which is cheaper than a switch over the types (as its bootstrap tests each case in turn).
+        // Ordered roughly by how frequently each type of node is executed. Any type of node added
+        // must be added here too, which the compiler doesn't check (so is caught at runtime below).
+        if (statement instanceof ExpressionStatement expressionStatement) {
+            return visitExpressionStatement(expressionStatement);
+        }
+        if (statement instanceof VarDeclaration varDeclaration) {
+            return visitVarDeclaration(varDeclaration);
+        }
+        if (statement instanceof IfElseStatement ifElseStatement) {
+            return visitIfElseStatement(ifElseStatement);
+        }
+        if (statement instanceof ReturnStatement returnStatement) {
+            return visitReturnStatement(returnStatement);
+        }
+        if (statement instanceof BlockStatement blockStatement) {
+            return visitBlockStatement(blockStatement);
+        }
+        if (statement instanceof WhileStatement whileStatement) {
+            return visitWhileStatement(whileStatement);
+        }
+        if (statement instanceof ForStatement forStatement) {
+            return visitForStatement(forStatement);
+        }
+        if (statement instanceof PrintStatement printStatement) {
+            return visitPrintStatement(printStatement);
+        }
+        if (statement instanceof TryCatchStatement tryCatchStatement) {
+            return visitTryCatchStatement(tryCatchStatement);
+        }
+        if (statement instanceof ThrowStatement throwStatement) {
+            return visitThrowStatement(throwStatement);
+        }
+        if (statement instanceof FunDeclaration funDeclaration) {
+            return visitFunDeclaration(funDeclaration);
+        }
+        if (statement instanceof ClassDeclaration classDeclaration) {
+            return visitClassDeclaration(classDeclaration);
+        }
+        throw new IllegalStateException("Unknown statement type '" + statement.getClass().getSimpleName() + "'.");
     }
 
     @Override
@@ -61,17 +112,28 @@ public class Interpreter implements StatementVisitor<Void>, ExpressionVisitor<Jo
         final var superClassIdentifier = statement.getSuperClass().isPresent()
                 ? statement.getSuperClass().get().getText()
                 : "Object";
-        final var superClass = JocksValue.cast(_symbolTable.getVariable(superClassIdentifier), JocksClass.class)
-                .orElseThrow(() -> _exceptionFactory.createExceptionWithFileAndLine(
-                        statement.getIdentifier().getFile(),
-                        statement.getIdentifier().getLine(),
-                        "The identifier '%s' is not a class and can not be derived from.",
-                        superClassIdentifier));
-
-        pushSymbolTable();
-        _symbolTable.createVariable(
-                "super",
-                _symbolTable.getVariable(superClass.getIdentifier()));
+        final var superClassValue = getVariable(
+                statement.getSuperClassVariableKind(),
+                statement.getSuperClassSymbolTableDepth(),
+                statement.getSuperClassSymbolTableSlot());
+        if (!(superClassValue instanceof JocksClass superClass)) {
+            throw _exceptionFactory.createExceptionWithFileAndLine(
+                    statement.getIdentifier().getFile(),
+                    statement.getIdentifier().getLine(),
+                    "The identifier '%s' is not a class and can not be derived from.",
+                    superClassIdentifier);
+        }
+
+        // The class is created before its methods so that they may capture it.
+        final var identifier = statement.getIdentifier().getText();
+        createVariable(
+                statement.getVariableKind(),
+                statement.getSymbolTableSlot(),
+                identifier,
+                JocksNil.Instance);
+
+        pushSymbolTable(1);
+        _symbolTable.createCell(0, "super", superClass);
 
         final var methods = new HashMap<String, JocksFunction>();
         for (final var methodDeclaration : statement.getMethods()) {
@@ -85,9 +147,10 @@ public class Interpreter implements StatementVisitor<Void>, ExpressionVisitor<Jo
 
         popSymbolTable();
 
-        final var identifier = statement.getIdentifier().getText();
-        _symbolTable.createVariable(
-                identifier,
+        setVariable(
+                statement.getVariableKind(),
+                0,
+                statement.getSymbolTableSlot(),
                 new JocksClass(identifier, superClass, methods));
 
         return null;
@@ -95,8 +158,16 @@ public class Interpreter implements StatementVisitor<Void>, ExpressionVisitor<Jo
 
     @Override
     public Void visitFunDeclaration(FunDeclaration statement) {
-        _symbolTable.createVariable(
+        // The function is created before being assigned so that it may capture itself.
+        createVariable(
+                statement.getVariableKind(),
+                statement.getSymbolTableSlot(),
                 statement.getIdentifier().getText(),
+                JocksNil.Instance);
+        setVariable(
+                statement.getVariableKind(),
+                0,
+                statement.getSymbolTableSlot(),
                 funDeclarationToJocksFunction(
                         statement.getIdentifier().getText(),
                         statement));
@@ -106,7 +177,9 @@ public class Interpreter implements StatementVisitor<Void>, ExpressionVisitor<Jo
 
     @Override
     public Void visitVarDeclaration(VarDeclaration statement) {
-        _symbolTable.createVariable(
+        createVariable(
+                statement.getVariableKind(),
+                statement.getSymbolTableSlot(),
                 statement.getIdentifier().getText(),
                 visit(statement.getExpression()));
 
@@ -115,14 +188,7 @@ public class Interpreter implements StatementVisitor<Void>, ExpressionVisitor<Jo
 
     @Override
     public Void visitIfElseStatement(IfElseStatement statement) {
-        final var conditionResultRaw = visit(statement.getCondition());
-        if (_isThrowing) {
-            return null;
-        }
-        final var conditionResultCast = JocksValue.cast(conditionResultRaw, JocksBool.class)
-                .orElseThrow(() -> _exceptionFactory.createExceptionWithoutFileOrLine(
-                        "If/else statement condition did not evaluate to type 'bool'."));
-        if (conditionResultCast == JocksBool.Truthy) {
+        if (isTruthy(visit(statement.getCondition()), "If/else statement condition did not evaluate to type 'bool'.")) {
             visit(statement.getThenSubStatement());
         } else if (statement.getElseSubStatement().isPresent()) {
             visit(statement.getElseSubStatement().get());
@@ -133,21 +199,12 @@ public class Interpreter implements StatementVisitor<Void>, ExpressionVisitor<Jo
 
     @Override
     public Void visitWhileStatement(WhileStatement statement) {
-        // Helper lambda to evaluate condition, checking that type is JocksBool, etc.
-        final Supplier<JocksBool> evaluateCondition = () -> {
-            final var conditionResult = visit(statement.getCondition());
-            if (_isThrowing) {
-                return JocksBool.Falsey;
-            }
-            return JocksValue.cast(conditionResult, JocksBool.class)
-                    .orElseThrow(() -> _exceptionFactory.createExceptionWithoutFileOrLine(
-                            "While statement condition did not evaluate to type 'bool'."));
-        };
-
-        while (evaluateCondition.get() == JocksBool.Truthy) {
+        var iterationCount = 0;
+        while (isTruthy(visit(statement.getCondition()), "While statement condition did not evaluate to type 'bool'.")) {
             visit(statement.getSubStatement());
-            if (_isReturning) break;
-            if (_isThrowing)  break;
+            if (recordLoopIteration(statement, ++iterationCount)) {
+                break;
+            }
         }
 
         return null;
@@ -155,100 +212,103 @@ public class Interpreter implements StatementVisitor<Void>, ExpressionVisitor<Jo
 
     @Override
     public Void visitForStatement(ForStatement statement) {
-        // Helper lambda to evaluate condition, checking that type is JocksBool, etc.
-        final Supplier<JocksBool> evaluateCondition = () -> {
-            final var condition = statement.getCondition();
-            if (condition.isEmpty()) {
-                return JocksBool.Truthy;
-            }
-            final var conditionResult = visit(condition.get());
-            if (_isThrowing) {
-                return JocksBool.Falsey;
-            }
-            return JocksValue.cast(conditionResult, JocksBool.class)
-                    .orElseThrow(() -> _exceptionFactory.createExceptionWithoutFileOrLine(
-                            "For statement condition did not evaluate to type 'bool'."));
-        };
+        // Unwrapped once rather than per iteration.
+        final var initializer = statement.getInitializer().orElse(null);
+        final var condition = statement.getCondition().orElse(null);
+        final var increment = statement.getIncrement().orElse(null);
 
-        pushSymbolTable();
-        if (statement.getInitializer().isPresent()) {
-            visit(statement.getInitializer().get());
+        if (statement.getHasScope()) {
+            pushSymbolTable(statement.getSymbolTableSize());
+        }
+        if (initializer != null) {
+            visit(initializer);
         }
-        while (!_isThrowing && evaluateCondition.get() == JocksBool.Truthy) {
+        var iterationCount = 0;
+        while (condition == null || isTruthy(visit(condition), "For statement condition did not evaluate to type 'bool'.")) {
             visit(statement.getSubStatement());
-            if (_isReturning) break;
-            if (_isThrowing)  break;
-            if (statement.getIncrement().isPresent()) {
-                visit(statement.getIncrement().get());
+            if (increment != null) {
+                visit(increment);
+            }
+            if (recordLoopIteration(statement, ++iterationCount)) {
+                break;
             }
         }
-        popSymbolTable();
+        if (statement.getHasScope()) {
+            popSymbolTable();
+        }
 
         return null;
     }
 
     @Override
     public Void visitTryCatchStatement(TryCatchStatement statement) {
-        visit(statement.getTryStatement());
-
-        if (_isThrowing) {
-            pushSymbolTable();
-            _symbolTable.createVariable(statement.getExceptionIdentifier().getText(), _thrownValue);
-            _thrownValue = JocksNil.Instance;
-            _isThrowing  = false;
-            visit(statement.getCatchStatement());
-            popSymbolTable();
+        // The value may be thrown from within any number of nested scopes and calls, which are
+        // all exited on catching it.
+        final var symbolTable = _symbolTable;
+        final var upvalues = _upvalues;
+        final var currentFunction = _currentFunction;
+        final var callStackSize = _callStack.size();
+        try {
+            visit(statement.getTryStatement());
+            return null;
+        } catch (ThrowSignal signal) {
+            _symbolTable = symbolTable;
+            _upvalues = upvalues;
+            _currentFunction = currentFunction;
+            _callStack.truncate(callStackSize);
         }
 
+        final var thrownValue = _thrownValue;
+        _thrownValue = JocksNil.Instance;
+        pushSymbolTable(1);
+        createVariable(
+                statement.getExceptionVariableKind(),
+                0,
+                statement.getExceptionIdentifier().getText(),
+                thrownValue);
+        visit(statement.getCatchStatement());
+        popSymbolTable();
+
         return null;
     }
 
     @Override
     public Void visitThrowStatement(ThrowStatement statement) {
-        final var thrownValue = visit(statement.getSubExpression());
-        // It's possible that the sub-expression might throw itself.
-        // In that case, the existing thrown value takes priority.
-        if (_isThrowing) {
-            return null;
-        }
-
-        _thrownValue = thrownValue;
-        _isThrowing  = true;
-
-        return null;
+        _thrownValue = visit(statement.getSubExpression());
+        throw ThrowSignal.Instance;
     }
 
     @Override
     public Void visitBlockStatement(BlockStatement statement) {
-        pushSymbolTable();
-        visitAll(statement.getSubStatements());
-        popSymbolTable();
+        if (statement.getHasScope()) {
+            pushSymbolTable(statement.getSymbolTableSize());
+            visitAll(statement.getSubStatements());
+            popSymbolTable();
+        } else {
+            visitAll(statement.getSubStatements());
+        }
 
         return null;
     }
 
     @Override
     public Void visitReturnStatement(ReturnStatement statement) {
-        final var returnValue = statement.getSubExpression().isPresent()
-                ? visit(statement.getSubExpression().get())
-                : JocksNil.Instance;
-        if (_isThrowing) {
-            return null;
+        final JocksValue returnValue;
+        if (statement.getIsTailCall()) {
+            returnValue = invoke((FunInvocation)statement.getSubExpression().orElseThrow(), true);
+        } else {
+            returnValue = statement.getSubExpression().isPresent()
+                    ? visit(statement.getSubExpression().get())
+                    : JocksNil.Instance;
         }
 
         _returnValue = returnValue;
-        _isReturning = true;
-
-        return null;
+        throw ReturnSignal.Instance;
     }
 
     @Override
     public Void visitPrintStatement(PrintStatement statement) {
         final var subExpressionResult = visit(statement.getSubExpression());
-        if (_isThrowing) {
-            return null;
-        }
-
         System.out.println(subExpressionResult.str());
 
         return null;
@@ -262,7 +322,38 @@ public class Interpreter implements StatementVisitor<Void>, ExpressionVisitor<Jo
 
     @Override
     public JocksValue visit(Expression expression) {
-        return expression.accept(this);
+        // Dispatched as for statements (see above).
+        if (expression instanceof VarExpression varExpression) {
+            return visitVarExpression(varExpression);
+        }
+        if (expression instanceof LiteralExpression literalExpression) {
+            return visitLiteralExpression(literalExpression);
+        }
+        if (expression instanceof BinaryExpression binaryExpression) {
+            return visitBinaryExpression(binaryExpression);
+        }
+        if (expression instanceof FunInvocation funInvocation) {
+            return visitFunInvocation(funInvocation);
+        }
+        if (expression instanceof DotExpression dotExpression) {
+            return visitDotExpression(dotExpression);
+        }
+        if (expression instanceof VarAssignment varAssignment) {
+            return visitVarAssignment(varAssignment);
+        }
+        if (expression instanceof LogicalExpression logicalExpression) {
+            return visitLogicalExpression(logicalExpression);
+        }
+        if (expression instanceof UnaryExpression unaryExpression) {
+            return visitUnaryExpression(unaryExpression);
+        }
+        if (expression instanceof GroupingExpression groupingExpression) {
+            return visitGroupingExpression(groupingExpression);
+        }
+        if (expression instanceof NewInvocation newInvocation) {
+            return visitNewInvocation(newInvocation);
+        }
+        throw new IllegalStateException("Unknown expression type '" + expression.getClass().getSimpleName() + "'.");
     }
 
     @Override
@@ -278,53 +369,51 @@ public class Interpreter implements StatementVisitor<Void>, ExpressionVisitor<Jo
         };
 
         final var lftSubExpressionResult = visit(expression.getLftSubExpression());
-        if (_isThrowing) {
-            return JocksNil.Instance;
-        }
-        final var lftSubExpressionResultCast = JocksValue.cast(lftSubExpressionResult, JocksBool.class)
-                .orElseThrow(() -> _exceptionFactory.createExceptionWithFileAndLine(
-                        operator.getFile(),
-                        operator.getLine(),
-                        "Left sub expression of '%s' expression did not evaluate to type 'bool.",
-                        expression.getOperator().getText()));
-
-        if (lftSubExpressionResultCast == shortCircuitValue) {
+        if (lftSubExpressionResult == shortCircuitValue) {
             return lftSubExpressionResult;
         }
+        if (!(lftSubExpressionResult instanceof JocksBool)) {
+            throw _exceptionFactory.createExceptionWithFileAndLine(
+                    operator.getFile(),
+                    operator.getLine(),
+                    "Left sub expression of '%s' expression did not evaluate to type 'bool.",
+                    expression.getOperator().getText());
+        }
 
         final var rgtSubExpressionResult = visit(expression.getRgtSubExpression());
-        if (_isThrowing) {
-            return JocksNil.Instance;
+        if (!(rgtSubExpressionResult instanceof JocksBool)) {
+            throw _exceptionFactory.createExceptionWithFileAndLine(
+                    operator.getFile(),
+                    operator.getLine(),
+                    "Right sub expression of '%s' expression did not evaluate to type 'bool.",
+                    expression.getOperator().getText());
         }
-        return JocksValue.cast(rgtSubExpressionResult, JocksBool.class)
-                .orElseThrow(() -> _exceptionFactory.createExceptionWithFileAndLine(
-                        operator.getFile(),
-                        operator.getLine(),
-                        "Right sub expression of '%s' expression did not evaluate to type 'bool.",
-                        expression.getOperator().getText()));
+        return rgtSubExpressionResult;
     }
 
     @Override
     public JocksValue visitBinaryExpression(BinaryExpression expression) {
-        final var operator = expression.getOperator();
         final var lftSubExpressionResult = visit(expression.getLftSubExpression());
-        if (_isThrowing) {
-            return JocksNil.Instance;
-        }
         final var rgtSubExpressionResult = visit(expression.getRgtSubExpression());
-        if (_isThrowing) {
-            return JocksNil.Instance;
-        }
+        return applyBinaryOperator(expression.getOperator(), lftSubExpressionResult, rgtSubExpressionResult);
+    }
+
+    @Override
+    public JocksValue visitUnaryExpression(UnaryExpression expression) {
+        final var subExpressionResult = visit(expression.getSubExpression());
+        return applyUnaryOperator(expression.getOperator(), subExpressionResult);
+    }
+
+    private JocksValue applyBinaryOperator(Token operator, JocksValue lftSubExpressionResult, JocksValue rgtSubExpressionResult) {
         try {
             // If a user defined operator overload is being called, then update the call stack
             // entry info list so any errors triggered within will have good diagnostics
             // messages for debugging.
             if (lftSubExpressionResult instanceof JocksInstance instance) {
-                final var methodName = String.format(
-                        "%s.%s",
+                pushCallStackEntryInfo(
                         instance.getJClass().getIdentifier(),
-                        JocksInstance.binaryOperatorTypeToMethodString(operator.getType()));
-                pushCallStackEntryInfo(methodName, operator.getFile(), operator.getLine());
+                        JocksInstance.binaryOperatorTypeToMethodString(operator.getType()),
+                        operator.getFile(), operator.getLine());
             }
             final var result = switch (operator.getType()) {
                 case TokenType.EQUAL_EQUAL -> lftSubExpressionResult.equal(rgtSubExpressionResult);
@@ -345,32 +434,23 @@ public class Interpreter implements StatementVisitor<Void>, ExpressionVisitor<Jo
             if (lftSubExpressionResult instanceof JocksInstance) {
                 popCallStackEntryInfo();
             }
-            return _isThrowing
-                    ? JocksNil.Instance
-                    : result;
+            return result;
         } catch (UnsupportedOperationException ex) {
             // Add localization and re-throw.
             throw _exceptionFactory.createExceptionWithFileAndLine(operator.getFile(), operator.getLine(), ex.getMessage());
         }
     }
 
-    @Override
-    public JocksValue visitUnaryExpression(UnaryExpression expression) {
-        final var operator = expression.getOperator();
-        final var subExpressionResult = visit(expression.getSubExpression());
-        if (_isThrowing) {
-            return JocksNil.Instance;
-        }
+    private JocksValue applyUnaryOperator(Token operator, JocksValue subExpressionResult) {
         try {
             // If a user defined operator overload is being called, then update the call stack
             // entry info list so any errors triggered within will have good diagnostics
             // messages for debugging.
             if (subExpressionResult instanceof JocksInstance instance) {
-                final var methodName = String.format(
-                        "%s.%s",
+                pushCallStackEntryInfo(
                         instance.getJClass().getIdentifier(),
-                        JocksInstance.unaryOperatorTypeToMethodString(operator.getType()));
-                pushCallStackEntryInfo(methodName, operator.getFile(), operator.getLine());
+                        JocksInstance.unaryOperatorTypeToMethodString(operator.getType()),
+                        operator.getFile(), operator.getLine());
             }
             final var result = switch (operator.getType()) {
                 case TokenType.BANGS -> subExpressionResult.not();
@@ -384,9 +464,7 @@ public class Interpreter implements StatementVisitor<Void>, ExpressionVisitor<Jo
             if (subExpressionResult instanceof JocksInstance) {
                 popCallStackEntryInfo();
             }
-            return _isThrowing
-                    ? JocksNil.Instance
-                    : result;
+            return result;
         } catch (UnsupportedOperationException ex) {
             // Add localization and re-throw.
             throw _exceptionFactory.createExceptionWithFileAndLine(operator.getFile(), operator.getLine(), ex.getMessage());
@@ -401,54 +479,48 @@ public class Interpreter implements StatementVisitor<Void>, ExpressionVisitor<Jo
     @Override
     public JocksValue visitDotExpression(DotExpression expression) {
         final var lhsExpressionResult = visit(expression.getLhsExpression());
-        final var rhsIdentifier = expression.getRhsIdentifier();
-
-        if (_isThrowing) {
-            return JocksNil.Instance;
-        }
-
-        if ((lhsExpressionResult instanceof JocksInstance instance)) {
-            // Return the property if it exists, otherwise return the method if it exists.
-            return instance
-                    .getProperty(rhsIdentifier.getText())
-                    .or(() -> instance.getMethod(rhsIdentifier.getText()))
-                    .orElseThrow(() -> _exceptionFactory.createExceptionWithFileAndLine(
-                            rhsIdentifier.getFile(),
-                            rhsIdentifier.getLine(),
-                            "Couldn't find property or method '" + rhsIdentifier.getText() + "' on instance."));
-        }
-
-        if ((lhsExpressionResult instanceof JocksClass jClass)) {
-            // Return the method if it exists.
-            return jClass.getMethodRecursive(rhsIdentifier.getText())
-                    .orElseThrow(() -> _exceptionFactory.createExceptionWithFileAndLine(
-                            rhsIdentifier.getFile(),
-                            rhsIdentifier.getLine(),
-                            "Couldn't find method '%s' on class '%s'.",
-                            rhsIdentifier.getText(),
-                            jClass.getIdentifier()));
-        }
 
-        throw _exceptionFactory.createExceptionWithFileAndLine(
-                rhsIdentifier.getFile(),
-                rhsIdentifier.getLine(),
-                "Left sub expression of '.' expression did not evaluate to an instance or class.");
+        return getPropertyOrMethod(expression, lhsExpressionResult);
     }
 
     @Override
     public JocksValue visitFunInvocation(FunInvocation expression) {
-        final var subExpressionResult = visit(expression.getSubExpression());
-        if (_isThrowing) {
-            return JocksNil.Instance;
+        return invoke(expression, false);
+    }
+
+    // A tail call to a user land function isn't made here, instead it is prepared to be made
+    // by executeUserLandFunction once the calling function has returned (see prepareTailCall).
+    private JocksValue invoke(FunInvocation expression, boolean isTailCall) {
+        // A method called directly on an instance is passed the instance as its leading
+        // argument, rather than creating a BoundMethod only to discard it after the call.
+        JocksInstance receiver = null;
+        JocksValue subExpressionResult;
+        if (expression.getSubExpression() instanceof DotExpression dotExpression) {
+            final var lhsResult = visit(dotExpression.getLhsExpression());
+            final var inlineCache = dotExpression.getInlineCache();
+            final var index = lhsResult instanceof JocksInstance instance
+                    ? inlineCache.lookup(instance, dotExpression.getRhsIdentifier().getText())
+                    : -1;
+            if (index != -1 && inlineCache.getSlot(index) == -1) {
+                receiver = (JocksInstance)lhsResult;
+                subExpressionResult = inlineCache.getMethod(index);
+            } else {
+                subExpressionResult = getPropertyOrMethod(dotExpression, lhsResult);
+            }
+        } else {
+            subExpressionResult = visit(expression.getSubExpression());
         }
 
-        final var invoked = JocksValue.cast(subExpressionResult, JocksFunction.class)
-                .orElseThrow(() -> _exceptionFactory.createExceptionWithFileAndLine(
-                        expression.getFile(),
-                        expression.getLine(),
-                        "Sub expression did not evaluate to a function which can be invoked."));
+        if (!(subExpressionResult instanceof JocksFunction invoked)) {
+            throw _exceptionFactory.createExceptionWithFileAndLine(
+                    expression.getFile(),
+                    expression.getLine(),
+                    "Sub expression did not evaluate to a function which can be invoked.");
+        }
 
-        final var funcArity = invoked.getArity();
+        final var funcArity = receiver == null
+                ? invoked.getArity()
+                : invoked.getArity() - 1;
         final var exprArity = expression.getArguments().size();
         if (funcArity != exprArity) {
             throw _exceptionFactory.createExceptionWithFileAndLine(
@@ -459,39 +531,45 @@ public class Interpreter implements StatementVisitor<Void>, ExpressionVisitor<Jo
                     exprArity);
         }
 
-        final var argumentResults = new ArrayList<JocksValue>();
-        for (final var argumentExpression : expression.getArguments()) {
-            argumentResults.add(visit(argumentExpression));
-            if (_isThrowing) {
+        if (isTailCall) {
+            if (invoked instanceof JocksUserLandFunction function) {
+                prepareTailCall(function, receiver, expression.getArguments(), expression.getFile(), expression.getLine());
+                return JocksNil.Instance;
+            }
+            if (invoked instanceof BoundMethod boundMethod
+                    && boundMethod.getFunction() instanceof JocksUserLandFunction function) {
+                prepareTailCall(function, boundMethod.getInstance(), expression.getArguments(), expression.getFile(), expression.getLine());
                 return JocksNil.Instance;
             }
         }
 
-        pushCallStackEntryInfo(invoked.getName(), expression.getFile(), expression.getLine());
-        final var result = invoked.call(argumentResults);
-        popCallStackEntryInfo();
+        final var result = callFunction(
+                invoked,
+                receiver,
+                expression.getArguments(),
+                expression.getFile(),
+                expression.getLine());
 
-        return _isThrowing
-                ? JocksNil.Instance
-                : result;
+        return result;
     }
 
     @Override
     public JocksValue visitNewInvocation(NewInvocation expression) {
-        final var invoked = JocksValue.cast(
-                _symbolTable
-                        .getAncestor(expression.getSymbolTableDepth())
-                        .getVariable(expression.getIdentifier().getText()),
-                JocksClass.class)
-                .orElseThrow(() -> _exceptionFactory.createExceptionWithFileAndLine(
-                        expression.getFile(),
-                        expression.getLine(),
-                        "The identifier '%s' is not a class from which a new instance can be instantiated.",
-                        expression.getIdentifier().getText()));
+        final var invokedValue = getVariable(
+                expression.getVariableKind(),
+                expression.getSymbolTableDepth(),
+                expression.getSymbolTableSlot());
+        if (!(invokedValue instanceof JocksClass invoked)) {
+            throw _exceptionFactory.createExceptionWithFileAndLine(
+                    expression.getFile(),
+                    expression.getLine(),
+                    "The identifier '%s' is not a class from which a new instance can be instantiated.",
+                    expression.getIdentifier().getText());
+        }
 
         final var instance = invoked.createInstance();
 
-        final var initMethod = invoked.getMethod("__init__").orElseThrow();
+        final var initMethod = invoked.getInitMethod();
         final var initArity  = initMethod.getArity();
         final var exprArity  = expression.getArguments().size() + 1; // Leading instance parameter - implicitly passed.
         if (initArity != exprArity) {
@@ -503,131 +581,484 @@ public class Interpreter implements StatementVisitor<Void>, ExpressionVisitor<Jo
                     exprArity);
         }
 
-        final var argumentResults = new ArrayList<JocksValue>();
-        argumentResults.add(instance);
-        for (final var argumentExpression : expression.getArguments()) {
-            argumentResults.add(visit(argumentExpression));
-            if (_isThrowing) {
-                return JocksNil.Instance;
-            }
-        }
+        callFunction(
+                initMethod,
+                instance,
+                expression.getArguments(),
+                expression.getFile(),
+                expression.getLine());
 
-        pushCallStackEntryInfo(initMethod.getName(), expression.getFile(), expression.getLine());
-        initMethod.call(argumentResults);
-        popCallStackEntryInfo();
-
-        return _isThrowing
-                ? JocksNil.Instance
-                : instance;
+        return instance;
     }
 
     @Override
     public JocksValue visitVarAssignment(VarAssignment expression) {
         final var rhsResult = visit(expression.getRhsExpression());
-        if (_isThrowing) {
-            return JocksNil.Instance;
-        }
         if (expression.getLhsExpression() instanceof DotExpression lhsDotExpression) {
             final var lhsResult = visit(lhsDotExpression.getLhsExpression());
-            if (_isThrowing) {
-                return JocksNil.Instance;
-            }
-            final var instance = JocksValue.cast(lhsResult, JocksInstance.class)
-                    .orElseThrow(() -> _exceptionFactory.createExceptionWithFileAndLine(
-                            lhsDotExpression.getRhsIdentifier().getFile(),
-                            lhsDotExpression.getRhsIdentifier().getLine(),
-                            "The left sub expression did not evaluate to an instance during '.' assignment expression."));
-            final var property = lhsDotExpression.getRhsIdentifier().getText();
-            instance.setProperty(property, rhsResult);
+            assignProperty(lhsDotExpression, lhsResult, rhsResult);
         } else if (expression.getLhsExpression() instanceof VarExpression lhsVarExpression) {
-            _symbolTable
-                    .getAncestor(lhsVarExpression.getSymbolTableDepth())
-                    .setVariable(lhsVarExpression.getIdentifier().getText(), rhsResult);
+            setVariable(
+                    lhsVarExpression.getVariableKind(),
+                    lhsVarExpression.getSymbolTableDepth(),
+                    lhsVarExpression.getSymbolTableSlot(),
+                    rhsResult);
         }
 
         return rhsResult;
     }
 
+    private void assignProperty(DotExpression expression, JocksValue lhsResult, JocksValue rhsResult) {
+        if (!(lhsResult instanceof JocksInstance instance)) {
+            throw _exceptionFactory.createExceptionWithFileAndLine(
+                    expression.getRhsIdentifier().getFile(),
+                    expression.getRhsIdentifier().getLine(),
+                    "The left sub expression did not evaluate to an instance during '.' assignment expression.");
+        }
+        final var property = expression.getRhsIdentifier().getText();
+        expression.getInlineCache().assign(instance, property, rhsResult);
+    }
+
     @Override
     public JocksValue visitVarExpression(VarExpression expression) {
-        return _symbolTable
-                .getAncestor(expression.getSymbolTableDepth())
-                .getVariable(expression.getIdentifier().getText());
+        return getVariable(
+                expression.getVariableKind(),
+                expression.getSymbolTableDepth(),
+                expression.getSymbolTableSlot());
     }
 
     @Override
     public JocksValue visitLiteralExpression(LiteralExpression expression) {
-        final var literalToken = expression.getToken();
-        return switch (literalToken.getType()) {
-            case TokenType.STRING -> new JocksString((String)expression.getToken().getLiteral());
-            case TokenType.NUMBER -> new JocksNumber((Double)expression.getToken().getLiteral());
-            case TokenType.TRUE  -> JocksBool.Truthy;
-            case TokenType.FALSE -> JocksBool.Falsey;
-            case TokenType.NIL -> JocksNil.Instance;
-            default -> throw _exceptionFactory.createExceptionWithFileAndLine(
+        final var value = expression.getValue();
+        if (value == null) {
+            final var literalToken = expression.getToken();
+            throw _exceptionFactory.createExceptionWithFileAndLine(
                     literalToken.getFile(),
                     literalToken.getLine(),
                     "Invalid literal type '" + literalToken.getType().name() + "'.");
-        };
+        }
+        return value;
     }
 
-    public JocksValue executeUserLandFunction(JocksUserLandFunction function, List<JocksValue> arguments) {
+    public SymbolTable createSymbolTable(JocksUserLandFunction function) {
+        return new SymbolTable(null, function.getSymbolTableSize(), _exceptionFactory);
+    }
+
+    // The symbol table should be created by createSymbolTable with the function's parameters bound.
+    public JocksValue executeUserLandFunction(JocksUserLandFunction function, SymbolTable newSymbolTable) {
         final var oldSymbolTable = _symbolTable;
-        @SuppressWarnings("UnnecessaryLocalVariable") // I prefer the consistency afforded below by this.
-        final var newSymbolTable = new SymbolTable(function.getSymbolTable(), _exceptionFactory);
+        final var oldUpvalues = _upvalues;
+        final var oldFunction = _currentFunction;
 
         _symbolTable = newSymbolTable;
-        _returnValue = JocksNil.Instance;
-        _isReturning = false;
+        _upvalues = function.getUpvalues();
+        _currentFunction = function;
 
-        for (int i = 0; i < function.getParameters().size(); i++) {
-            _symbolTable.createVariable(function.getParameters().get(i), arguments.get(i));
+        // If a value is thrown it is left to the catching try/catch statement to restore the state.
+        final var result = executeStatements(function.getStatements());
+
+        _symbolTable = oldSymbolTable;
+        _upvalues = oldUpvalues;
+        _currentFunction = oldFunction;
+
+        return makeTailCalls(result);
+    }
+
+    // Tail calls are made once the function preparing them has returned (see prepareTailCall), by
+    // whatever called it, so that a chain of them runs in constant stack. Returns the result of the
+    // last, or the given result of the function if it didn't make a tail call. As with any other call,
+    // the callee counts towards being compiled, and is run by its compiled code once it has been
+    // (which may itself prepare a tail call, made by the next iteration).
+    public JocksValue makeTailCalls(JocksValue result) {
+        if (_tailCallFunction == null) {
+            return result;
         }
 
-        visitAll(function.getStatements());
-        final var result = _returnValue;
+        final var oldSymbolTable = _symbolTable;
+        final var oldUpvalues = _upvalues;
+        final var oldFunction = _currentFunction;
+
+        while (_tailCallFunction != null) {
+            final var tailCallFunction = _tailCallFunction;
+            final var arguments = _tailCallArguments;
+            _tailCallFunction = null;
+            _tailCallArguments = null;
+
+            if (tailCallFunction.isCompiled()) {
+                result = tailCallFunction.getCompiledCode().call(arguments);
+            } else {
+                _symbolTable = createSymbolTable(tailCallFunction);
+                for (int i = 0; i < arguments.length; i++) {
+                    tailCallFunction.bindParameter(_symbolTable, i, arguments[i]);
+                }
+                _upvalues = tailCallFunction.getUpvalues();
+                _currentFunction = tailCallFunction;
+
+                result = executeStatements(tailCallFunction.getStatements());
+            }
+        }
 
         _symbolTable = oldSymbolTable;
-        _returnValue = JocksNil.Instance;
-        _isReturning = false;
+        _upvalues = oldUpvalues;
+        _currentFunction = oldFunction;
 
         return result;
     }
 
+    // Whether the program terminated with an uncaught thrown value.
     public boolean getIsThrowing() {
         return _isThrowing;
     }
 
-    private void pushCallStackEntryInfo(String name, String line, int file) {
-        _callStackEntryInfo.addLast(String.format("%s at %s:%d", name, line, file));
+    public int getJitThreshold() {
+        return _jitThreshold;
+    }
+
+    // Functions and loops found to be hot by a previous run (those in the profile) are compiled as soon
+    // as they're first run, and those compiled by this run are recorded in the profile.
+    public void setJitProfile(JitProfile jitProfile) {
+        _jitProfile = jitProfile;
+    }
+
+    // Whether the function declaration or loop was found to be hot by a previous run.
+    public boolean isProfiledAsHot(Statement statement) {
+        return _jitThreshold != 0 && _jitProfile != null && _jitProfile.isHot(statement);
+    }
+
+    // Returns null if the function can't be compiled, in which case it should continue to be interpreted.
+    public CompiledCode compile(JocksUserLandFunction function) {
+        final var compiledCode = JitCompiler.compileFunction(function, _jitRuntime);
+        if (compiledCode != null && _jitProfile != null) {
+            _jitProfile.recordHot(function.getDeclaration());
+        }
+        return compiledCode;
+    }
+
+    private JocksValue executeStatements(List<Statement> statements) {
+        try {
+            visitAll(statements);
+            return JocksNil.Instance;
+        } catch (ReturnSignal signal) {
+            final var returnValue = _returnValue;
+            _returnValue = JocksNil.Instance;
+            return returnValue;
+        }
+    }
+
+    // Evaluates the arguments and calls the function, through the entry point specialised for
+    // the number of arguments where possible. The leading argument is the instance for methods
+    // and should otherwise be null.
+    private JocksValue callFunction(
+            JocksFunction function,
+            JocksValue leadingArgument,
+            List<Expression> argumentExpressions,
+            String file,
+            int line
+    ) {
+        final var offset = leadingArgument == null ? 0 : 1;
+        final var argumentCount = argumentExpressions.size() + offset;
+        final var arguments = argumentCount > 3
+                ? new JocksValue[argumentCount]
+                : null;
+        var argument0 = leadingArgument;
+        JocksValue argument1 = null;
+        JocksValue argument2 = null;
+        for (int i = 0; i < argumentExpressions.size(); i++) {
+            final var argument = visit(argumentExpressions.get(i));
+            switch (i + offset) {
+                case 0 -> argument0 = argument;
+                case 1 -> argument1 = argument;
+                case 2 -> argument2 = argument;
+                default -> arguments[i + offset] = argument;
+            }
+        }
+
+        pushCallStackEntryInfo(function.getName(), file, line);
+        final var result = switch (argumentCount) {
+            case 0 -> function.call0();
+            case 1 -> function.call1(argument0);
+            case 2 -> function.call2(argument0, argument1);
+            case 3 -> function.call3(argument0, argument1, argument2);
+            default -> {
+                arguments[0] = argument0;
+                arguments[1] = argument1;
+                arguments[2] = argument2;
+                yield function.call(arguments);
+            }
+        };
+        popCallStackEntryInfo();
+
+        return result;
+    }
+
+    // Evaluates the arguments, ready for the call to be made in place of the calling function.
+    private void prepareTailCall(
+            JocksUserLandFunction function,
+            JocksValue leadingArgument,
+            List<Expression> argumentExpressions,
+            String file,
+            int line
+    ) {
+        final var offset = leadingArgument == null ? 0 : 1;
+        final var arguments = new JocksValue[argumentExpressions.size() + offset];
+        if (leadingArgument != null) {
+            arguments[0] = leadingArgument;
+        }
+        for (int i = 0; i < argumentExpressions.size(); i++) {
+            arguments[i + offset] = visit(argumentExpressions.get(i));
+        }
+        prepareTailCall(function, arguments, file, line);
+    }
+
+    // The caller's call stack entry is replaced by the callee's.
+    private void prepareTailCall(JocksUserLandFunction function, JocksValue[] arguments, String file, int line) {
+        popCallStackEntryInfo();
+        pushCallStackEntryInfo(function.getName(), file, line);
+        _tailCallFunction = function;
+        _tailCallArguments = arguments;
+    }
+
+    // Iterations of loops within functions count towards compiling the function. Loops at the top level
+    // are instead compiled themselves, once they have iterated as many times as the JIT threshold in a
+    // single execution (or once if profiled as hot), and the remaining iterations are run by the compiled
+    // loop (in which case true is returned). Loops which can't be compiled continue to be interpreted.
+    private boolean recordLoopIteration(Statement loop, int iterationCount) {
+        if (_currentFunction != null) {
+            _currentFunction.recordLoopIteration();
+            return false;
+        }
+        if (iterationCount != _jitThreshold && (iterationCount != 1 || !isProfiledAsHot(loop))) {
+            return false;
+        }
+        final CompiledLoop compiledLoop;
+        if (_compiledLoops.containsKey(loop)) {
+            compiledLoop = _compiledLoops.get(loop);
+        } else {
+            compiledLoop = JitCompiler.compileLoop(loop, _jitRuntime);
+            _compiledLoops.put(loop, compiledLoop);
+            if (compiledLoop != null && _jitProfile != null) {
+                _jitProfile.recordHot(loop);
+            }
+        }
+        if (compiledLoop == null) {
+            return false;
+        }
+        compiledLoop.run(_symbolTable);
+        return true;
+    }
+
+    // Conditions are checked by identity as there is only one instance of each bool, with the
+    // exception only created (on the cold path) if the condition isn't a bool.
+    private boolean isTruthy(JocksValue condition, String message) {
+        if (condition == JocksBool.Truthy) {
+            return true;
+        }
+        if (condition == JocksBool.Falsey) {
+            return false;
+        }
+        throw _exceptionFactory.createExceptionWithoutFileOrLine(message);
+    }
+
+    private void pushCallStackEntryInfo(String name, String file, int line) {
+        checkCallDepth(file, line);
+        _callStack.push(name, file, line);
+    }
+
+    private void pushCallStackEntryInfo(String classIdentifier, String methodName, String file, int line) {
+        checkCallDepth(file, line);
+        _callStack.push(classIdentifier, methodName, file, line);
+    }
+
+    private void checkCallDepth(String file, int line) {
+        if (_callStack.size() >= _maxCallDepth) {
+            throw _exceptionFactory.createExceptionWithFileAndLine(
+                    file,
+                    line,
+                    "Maximum call depth (%d) exceeded.",
+                    _maxCallDepth);
+        }
     }
 
     private void popCallStackEntryInfo() {
-        _callStackEntryInfo.removeLast();
+        _callStack.pop();
+    }
+
+    private JocksValue getPropertyOrMethod(DotExpression expression, JocksValue lhsExpressionResult) {
+        final var rhsIdentifier = expression.getRhsIdentifier();
+        final var inlineCache = expression.getInlineCache();
+
+        if ((lhsExpressionResult instanceof JocksInstance instance)) {
+            // Return the property if it exists, otherwise return the method if it exists.
+            final var index = inlineCache.lookup(instance, rhsIdentifier.getText());
+            if (index == -1) {
+                throw _exceptionFactory.createExceptionWithFileAndLine(
+                        rhsIdentifier.getFile(),
+                        rhsIdentifier.getLine(),
+                        "Couldn't find property or method '" + rhsIdentifier.getText() + "' on instance.");
+            }
+            final var slot = inlineCache.getSlot(index);
+            return slot != -1
+                    ? instance.getPropertyAt(slot)
+                    : new BoundMethod(instance, inlineCache.getMethod(index));
+        }
+
+        if ((lhsExpressionResult instanceof JocksClass jClass)) {
+            // Return the method if it exists.
+            final var index = inlineCache.lookup(jClass, rhsIdentifier.getText());
+            if (index == -1) {
+                throw _exceptionFactory.createExceptionWithFileAndLine(
+                        rhsIdentifier.getFile(),
+                        rhsIdentifier.getLine(),
+                        "Couldn't find method '%s' on class '%s'.",
+                        rhsIdentifier.getText(),
+                        jClass.getIdentifier());
+            }
+            return inlineCache.getMethod(index);
+        }
+
+        throw _exceptionFactory.createExceptionWithFileAndLine(
+                rhsIdentifier.getFile(),
+                rhsIdentifier.getLine(),
+                "Left sub expression of '.' expression did not evaluate to an instance or class.");
     }
 
     private JocksFunction funDeclarationToJocksFunction(String functionName, FunDeclaration statement) {
+        final var captures = statement.getCaptures();
+        final var upvalues = new Cell[captures.size()];
+        for (int i = 0; i < upvalues.length; i++) {
+            final var capture = captures.get(i);
+            upvalues[i] = capture.getIsCell()
+                    ? _symbolTable.getAncestor(capture.getSymbolTableDepth()).getCell(capture.getIndex())
+                    : _upvalues[capture.getIndex()];
+        }
+
         return new JocksUserLandFunction(
                 functionName,
                 statement.getParameters().stream().map(Token::getText).toList(),
+                statement.getParameterSymbolTableSlots(),
+                statement.getParameterVariableKinds(),
                 statement.getStatements(),
-                _symbolTable,
+                statement.getSymbolTableSize(),
+                upvalues,
+                statement,
                 this);
     }
 
-    private void pushSymbolTable() {
-        _symbolTable = new SymbolTable(_symbolTable, _exceptionFactory);
+    private JocksValue getVariable(VariableKind kind, int depth, int slot) {
+        return switch (kind) {
+            case GLOBAL -> _globals.getVariable(slot);
+            case LOCAL -> _symbolTable.getAncestor(depth).getVariable(slot);
+            case CELL -> _symbolTable.getAncestor(depth).getCell(slot).get();
+            case UPVALUE -> _upvalues[slot].get();
+        };
+    }
+
+    private void setVariable(VariableKind kind, int depth, int slot, JocksValue value) {
+        switch (kind) {
+            case GLOBAL -> _globals.setVariable(slot, value);
+            case LOCAL -> _symbolTable.getAncestor(depth).setVariable(slot, value);
+            case CELL -> _symbolTable.getAncestor(depth).getCell(slot).set(value);
+            case UPVALUE -> _upvalues[slot].set(value);
+        }
+    }
+
+    // Variables are always created in the current scope, so are never upvalues.
+    private void createVariable(VariableKind kind, int slot, String identifier, JocksValue value) {
+        switch (kind) {
+            case GLOBAL -> _globals.createVariable(slot, identifier, value);
+            case LOCAL -> _symbolTable.createVariable(slot, identifier, value);
+            case CELL -> _symbolTable.createCell(slot, identifier, value);
+            case UPVALUE -> throw new IllegalStateException("Can not create a variable as an upvalue.");
+        }
+    }
+
+    // The Interpreter's state and behaviour which compiled code shares.
+    private class Runtime implements JitRuntime {
+
+        @Override
+        public JocksValue getGlobal(int slot) {
+            return _globals.getVariable(slot);
+        }
+
+        @Override
+        public void setGlobal(int slot, JocksValue value) {
+            _globals.setVariable(slot, value);
+        }
+
+        @Override
+        public JocksValue applyBinaryOperator(Token operator, JocksValue lft, JocksValue rgt) {
+            return Interpreter.this.applyBinaryOperator(operator, lft, rgt);
+        }
+
+        @Override
+        public JocksValue applyUnaryOperator(Token operator, JocksValue value) {
+            return Interpreter.this.applyUnaryOperator(operator, value);
+        }
+
+        @Override
+        public JocksValue getPropertyOrMethod(DotExpression expression, JocksValue lhs) {
+            return Interpreter.this.getPropertyOrMethod(expression, lhs);
+        }
+
+        @Override
+        public void assignProperty(DotExpression expression, JocksValue lhs, JocksValue rhs) {
+            Interpreter.this.assignProperty(expression, lhs, rhs);
+        }
+
+        @Override
+        public void pushCallStackEntry(String name, String file, int line) {
+            pushCallStackEntryInfo(name, file, line);
+        }
+
+        @Override
+        public void popCallStackEntry() {
+            popCallStackEntryInfo();
+        }
+
+        @Override
+        public void prepareTailCall(JocksUserLandFunction function, JocksValue[] arguments, String file, int line) {
+            Interpreter.this.prepareTailCall(function, arguments, file, line);
+        }
+
+        @Override
+        public RuntimeException createException(String file, int line, String format, Object... args) {
+            return _exceptionFactory.createExceptionWithFileAndLine(file, line, format, args);
+        }
+
+        @Override
+        public RuntimeException createException(String message) {
+            return _exceptionFactory.createExceptionWithoutFileOrLine(message);
+        }
+
+        @Override
+        public RuntimeException throwValue(JocksValue value) {
+            _thrownValue = value;
+            return ThrowSignal.Instance;
+        }
+    }
+
+    private void pushSymbolTable(int size) {
+        _symbolTable = new SymbolTable(_symbolTable, size, _exceptionFactory);
     }
 
     private void popSymbolTable() {
         _symbolTable = _symbolTable.getParent();
     }
 
-    private final List<String> _callStackEntryInfo = new ArrayList<>();
-    private final ExceptionFactory _exceptionFactory = new ExceptionFactory(() -> _callStackEntryInfo);
-    private SymbolTable _symbolTable = new SymbolTable(null, _exceptionFactory);
+    private final int _maxCallDepth;
+    private final int _jitThreshold;
+    private final JitRuntime _jitRuntime = new Runtime();
+    private final IdentityHashMap<Statement, CompiledLoop> _compiledLoops = new IdentityHashMap<>(); // Null if not compilable.
+    private JitProfile _jitProfile = null;
+    private final CallStack _callStack = new CallStack();
+    private final ExceptionFactory _exceptionFactory = new ExceptionFactory(_callStack);
+    private final SymbolTable _globals = new SymbolTable(null, 0, _exceptionFactory);
+    private SymbolTable _symbolTable = _globals;
+    private Cell[] _upvalues = null; // The upvalues of the function currently being executed.
+    private JocksUserLandFunction _currentFunction = null; // Null at the top level.
+    private JocksUserLandFunction _tailCallFunction = null;
+    private JocksValue[] _tailCallArguments = null;
     private JocksValue _returnValue = JocksNil.Instance;
-    private boolean _isReturning = false;
     private JocksValue _thrownValue = JocksNil.Instance;
     private boolean _isThrowing = false;
 }
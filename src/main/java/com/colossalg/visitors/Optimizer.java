@@ -0,0 +1,339 @@
+package com.colossalg.visitors;
+
+import com.colossalg.Token;
+import com.colossalg.TokenType;
+import com.colossalg.dataTypes.JocksValue;
+import com.colossalg.dataTypes.primitives.JocksBool;
+import com.colossalg.dataTypes.primitives.JocksNil;
+import com.colossalg.dataTypes.primitives.JocksNumber;
+import com.colossalg.dataTypes.primitives.JocksString;
+import com.colossalg.expression.*;
+import com.colossalg.statement.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Rewrites the AST before it is executed:
+//  - Unary, binary and logical expressions on literals are folded into a single literal.
+//  - Branches of if statements and loops whose conditions are literals that can never run are removed.
+//  - Expression statements which are just literals are removed.
+//
+// An expression is only folded if evaluating it can't fail, anything which would fail
+// (e.g. adding a number to a string) is left for the Interpreter to report at runtime.
+//
+// The statements returned are built from new nodes (other than literals, which hold no state
+// from resolving), so must be resolved again before they're executed. The Resolver should
+// first be run over the original statements so that errors within removed code are reported.
+public class Optimizer implements StatementVisitor<Statement>, ExpressionVisitor<Expression> {
+
+    public List<Statement> visitAll(List<Statement> statements) {
+        final var optimizedStatements = new ArrayList<Statement>();
+        for (final var statement : statements) {
+            final var optimizedStatement = visit(statement);
+            if (optimizedStatement != null) {
+                optimizedStatements.add(optimizedStatement);
+            }
+        }
+        return optimizedStatements;
+    }
+
+    @Override
+    public Statement visit(Statement statement) {
+        return statement.accept(this);
+    }
+
+    @Override
+    public Statement visitClassDeclaration(ClassDeclaration statement) {
+        final var methods = new ArrayList<FunDeclaration>();
+        for (final var method : statement.getMethods()) {
+            methods.add((FunDeclaration)visit(method));
+        }
+        return new ClassDeclaration(
+                statement.getIdentifier(),
+                statement.getSuperClass().orElse(null),
+                methods);
+    }
+
+    @Override
+    public Statement visitFunDeclaration(FunDeclaration statement) {
+        return new FunDeclaration(
+                statement.getIdentifier(),
+                statement.getParameters(),
+                visitAll(statement.getStatements()));
+    }
+
+    @Override
+    public Statement visitVarDeclaration(VarDeclaration statement) {
+        return new VarDeclaration(
+                statement.getIdentifier(),
+                visit(statement.getExpression()));
+    }
+
+    @Override
+    public Statement visitIfElseStatement(IfElseStatement statement) {
+        final var condition = visit(statement.getCondition());
+        final var thenSubStatement = visit(statement.getThenSubStatement());
+        final var elseSubStatement = statement.getElseSubStatement().isPresent()
+                ? visit(statement.getElseSubStatement().get())
+                : null;
+
+        if (isLiteral(condition, JocksBool.Truthy)) {
+            return thenSubStatement;
+        }
+        if (isLiteral(condition, JocksBool.Falsey)) {
+            return elseSubStatement;
+        }
+        return new IfElseStatement(
+                condition,
+                orEmptyBlock(thenSubStatement),
+                elseSubStatement);
+    }
+
+    @Override
+    public Statement visitWhileStatement(WhileStatement statement) {
+        final var condition = visit(statement.getCondition());
+        if (isLiteral(condition, JocksBool.Falsey)) {
+            return null;
+        }
+        return new WhileStatement(
+                condition,
+                orEmptyBlock(visit(statement.getSubStatement())));
+    }
+
+    @Override
+    public Statement visitForStatement(ForStatement statement) {
+        final var initializer = statement.getInitializer().isPresent()
+                ? visit(statement.getInitializer().get())
+                : null;
+        final var condition = statement.getCondition().isPresent()
+                ? visit(statement.getCondition().get())
+                : null;
+        if (isLiteral(condition, JocksBool.Falsey)) {
+            // The initializer still runs once, within a scope of its own as it would have in the loop.
+            return initializer != null
+                    ? new BlockStatement(List.of(initializer))
+                    : null;
+        }
+        return new ForStatement(
+                initializer,
+                condition,
+                statement.getIncrement().isPresent()
+                        ? visit(statement.getIncrement().get())
+                        : null,
+                orEmptyBlock(visit(statement.getSubStatement())));
+    }
+
+    @Override
+    public Statement visitTryCatchStatement(TryCatchStatement statement) {
+        return new TryCatchStatement(
+                orEmptyBlock(visit(statement.getTryStatement())),
+                orEmptyBlock(visit(statement.getCatchStatement())),
+                statement.getExceptionIdentifier());
+    }
+
+    @Override
+    public Statement visitThrowStatement(ThrowStatement statement) {
+        return new ThrowStatement(visit(statement.getSubExpression()));
+    }
+
+    @Override
+    public Statement visitBlockStatement(BlockStatement statement) {
+        return new BlockStatement(visitAll(statement.getSubStatements()));
+    }
+
+    @Override
+    public Statement visitReturnStatement(ReturnStatement statement) {
+        return new ReturnStatement(
+                statement.getFile(),
+                statement.getLine(),
+                statement.getSubExpression().isPresent()
+                        ? visit(statement.getSubExpression().get())
+                        : null);
+    }
+
+    @Override
+    public Statement visitPrintStatement(PrintStatement statement) {
+        return new PrintStatement(visit(statement.getSubExpression()));
+    }
+
+    @Override
+    public Statement visitExpressionStatement(ExpressionStatement statement) {
+        final var subExpression = visit(statement.getSubExpression());
+        return subExpression instanceof LiteralExpression
+                ? null
+                : new ExpressionStatement(subExpression);
+    }
+
+    @Override
+    public Expression visit(Expression expression) {
+        return expression.accept(this);
+    }
+
+    @Override
+    public Expression visitLogicalExpression(LogicalExpression expression) {
+        final var operator = expression.getOperator();
+        final var lftSubExpression = visit(expression.getLftSubExpression());
+        final var rgtSubExpression = visit(expression.getRgtSubExpression());
+
+        final var shortCircuitValue = switch (operator.getType()) {
+            case TokenType.AND -> JocksBool.Falsey;
+            case TokenType.OR  -> JocksBool.Truthy;
+            default -> null;
+        };
+        if (shortCircuitValue != null && lftSubExpression instanceof LiteralExpression lftLiteral) {
+            // The right sub expression is either never evaluated, or is the result (if it is a bool).
+            if (lftLiteral.getValue() == shortCircuitValue) {
+                return lftLiteral;
+            }
+            if (lftLiteral.getValue() instanceof JocksBool
+                    && rgtSubExpression instanceof LiteralExpression rgtLiteral
+                    && rgtLiteral.getValue() instanceof JocksBool) {
+                return rgtLiteral;
+            }
+        }
+        return new LogicalExpression(operator, lftSubExpression, rgtSubExpression);
+    }
+
+    @Override
+    public Expression visitBinaryExpression(BinaryExpression expression) {
+        final var operator = expression.getOperator();
+        final var lftSubExpression = visit(expression.getLftSubExpression());
+        final var rgtSubExpression = visit(expression.getRgtSubExpression());
+
+        if (lftSubExpression instanceof LiteralExpression lftLiteral
+                && rgtSubExpression instanceof LiteralExpression rgtLiteral
+                && lftLiteral.getValue() != null
+                && rgtLiteral.getValue() != null) {
+            final var lft = lftLiteral.getValue();
+            final var rgt = rgtLiteral.getValue();
+            try {
+                final var result = switch (operator.getType()) {
+                    case TokenType.EQUAL_EQUAL -> lft.equal(rgt);
+                    case TokenType.BANGS_EQUAL -> lft.notEqual(rgt);
+                    case TokenType.LESS_THAN -> lft.lessThan(rgt);
+                    case TokenType.LESS_THAN_OR_EQUAL -> lft.lessThanOrEqual(rgt);
+                    case TokenType.MORE_THAN -> lft.moreThan(rgt);
+                    case TokenType.MORE_THAN_OR_EQUAL -> lft.moreThanOrEqual(rgt);
+                    case TokenType.ADD -> lft.add(rgt);
+                    case TokenType.SUB -> lft.sub(rgt);
+                    case TokenType.MUL -> lft.mul(rgt);
+                    case TokenType.DIV -> lft.div(rgt);
+                    default -> null;
+                };
+                if (result != null) {
+                    return createLiteralExpression(result, operator);
+                }
+            } catch (UnsupportedOperationException ex) {
+                // Not folded, the error is reported when the expression is evaluated.
+            }
+        }
+        return new BinaryExpression(operator, lftSubExpression, rgtSubExpression);
+    }
+
+    @Override
+    public Expression visitUnaryExpression(UnaryExpression expression) {
+        final var operator = expression.getOperator();
+        final var subExpression = visit(expression.getSubExpression());
+
+        if (subExpression instanceof LiteralExpression literal && literal.getValue() != null) {
+            final var value = literal.getValue();
+            try {
+                final var result = switch (operator.getType()) {
+                    case TokenType.BANGS -> value.not();
+                    case TokenType.ADD -> value.add();
+                    case TokenType.SUB -> value.sub();
+                    default -> null;
+                };
+                if (result != null) {
+                    return createLiteralExpression(result, operator);
+                }
+            } catch (UnsupportedOperationException ex) {
+                // Not folded, the error is reported when the expression is evaluated.
+            }
+        }
+        return new UnaryExpression(operator, subExpression);
+    }
+
+    @Override
+    public Expression visitGroupingExpression(GroupingExpression expression) {
+        final var subExpression = visit(expression.getSubExpression());
+        return subExpression instanceof LiteralExpression
+                ? subExpression
+                : new GroupingExpression(subExpression);
+    }
+
+    @Override
+    public Expression visitDotExpression(DotExpression expression) {
+        return new DotExpression(
+                visit(expression.getLhsExpression()),
+                expression.getRhsIdentifier());
+    }
+
+    @Override
+    public Expression visitFunInvocation(FunInvocation expression) {
+        return new FunInvocation(
+                expression.getFile(),
+                expression.getLine(),
+                visit(expression.getSubExpression()),
+                visitArguments(expression.getArguments()));
+    }
+
+    @Override
+    public Expression visitNewInvocation(NewInvocation expression) {
+        return new NewInvocation(
+                expression.getFile(),
+                expression.getLine(),
+                expression.getIdentifier(),
+                visitArguments(expression.getArguments()));
+    }
+
+    @Override
+    public Expression visitVarAssignment(VarAssignment expression) {
+        return new VarAssignment(
+                visit(expression.getLhsExpression()),
+                visit(expression.getRhsExpression()));
+    }
+
+    @Override
+    public Expression visitVarExpression(VarExpression expression) {
+        return new VarExpression(expression.getIdentifier());
+    }
+
+    @Override
+    public Expression visitLiteralExpression(LiteralExpression expression) {
+        return expression;
+    }
+
+    private List<Expression> visitArguments(List<Expression> arguments) {
+        final var optimizedArguments = new ArrayList<Expression>();
+        for (final var argument : arguments) {
+            optimizedArguments.add(visit(argument));
+        }
+        return optimizedArguments;
+    }
+
+    private static boolean isLiteral(Expression expression, JocksValue value) {
+        return expression instanceof LiteralExpression literal && literal.getValue() == value;
+    }
+
+    // Statements which are required (e.g. the body of a loop) are replaced by an empty block when removed.
+    private static Statement orEmptyBlock(Statement statement) {
+        return statement != null
+                ? statement
+                : new BlockStatement(List.of());
+    }
+
+    // The token is only used for the VM's line information, so is attributed to the folded operator.
+    private static LiteralExpression createLiteralExpression(JocksValue value, Token operator) {
+        final var token = switch (value) {
+            case JocksNumber number -> new Token(TokenType.NUMBER, number.getData(), number.str(), operator.getFile(), operator.getLine());
+            case JocksString string -> new Token(TokenType.STRING, string.str(), string.str(), operator.getFile(), operator.getLine());
+            case JocksBool bool -> bool == JocksBool.Truthy
+                    ? new Token(TokenType.TRUE, null, "true", operator.getFile(), operator.getLine())
+                    : new Token(TokenType.FALSE, null, "false", operator.getFile(), operator.getLine());
+            case JocksNil ignored -> new Token(TokenType.NIL, null, "nil", operator.getFile(), operator.getLine());
+            default -> throw new IllegalStateException("Folded value of unexpected type " + value.getClass().getName());
+        };
+        return new LiteralExpression(token, value);
+    }
+}
@@ -3,39 +3,61 @@ package com.colossalg.visitors;
 import com.colossalg.ErrorReporter;
 import com.colossalg.JocksError;
 import com.colossalg.Token;
+import com.colossalg.TokenType;
+import com.colossalg.VariableKind;
+import com.colossalg.builtin.Builtins;
 import com.colossalg.expression.*;
 import com.colossalg.statement.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Stack;
+import java.util.function.Consumer;
 
 public class Resolver implements StatementVisitor<Void>, ExpressionVisitor<Void> {
 
-    public Resolver(ErrorReporter errorReporter) {
-        _errorReporter = errorReporter;
+    private static class Variable {
 
-        begScope(); // Global scope
+        Variable(int slot) {
+            _slot = slot;
+        }
 
-        // Type checking
-        declareAndDefine("is_nil");
-        declareAndDefine("is_bool");
-        declareAndDefine("is_number");
-        declareAndDefine("is_string");
-        declareAndDefine("is_instance");
-        declareAndDefine("is_function");
-        declareAndDefine("is_class");
+        private final int _slot;
+        private boolean _isDefined = false;
+        private boolean _isCaptured = false;
+        // Whether a variable is captured isn't known until the end of its scope, at which point
+        // the declarations of, and references to, it from within its function are updated.
+        private final List<Consumer<VariableKind>> _kindSetters = new ArrayList<>();
+    }
+
+    private static class Scope {
 
-        // Maths
-        declareAndDefine("abs");
-        declareAndDefine("floor");
-        declareAndDefine("pow");
+        private final HashMap<String, Variable> _variables = new HashMap<>();
+        private int _size = 0;
+    }
 
-        // Strings
-        declareAndDefine("to_string");
+    private static class Function {
 
-        // Global Object class which all other classes are descendants of.
-        declareAndDefine("Object");
+        Function(int scopeIndex) {
+            _scopeIndex = scopeIndex;
+        }
+
+        private final int _scopeIndex; // The index of the function's outermost scope.
+        private final List<Capture> _captures = new ArrayList<>();
+    }
+
+    private record Resolution(VariableKind kind, int depth, int slot) {}
+
+    public Resolver(ErrorReporter errorReporter) {
+        _errorReporter = errorReporter;
+
+        begScope(); // Global scope
+        _functions.push(new Function(1)); // Top level code outside the global scope (e.g. blocks)
+
+        for (final var builtin : Builtins.ALL) {
+            declareAndDefine(builtin.name(), (kind) -> {});
+        }
     }
 
     public void visitAll(List<Statement> statements) {
@@ -51,17 +73,23 @@ public class Resolver implements StatementVisitor<Void>, ExpressionVisitor<Void>
 
     @Override
     public Void visitClassDeclaration(ClassDeclaration statement) {
-        declareAndDefine(statement.getIdentifier());
-
-        if (statement.getSuperClass().isPresent()) {
-            // We don't care about the return as the super class must be in the
-            // global scope like all classes, but this method will throw if the
-            // token is not found.
-            getIdentifierSymbolTableDepth(statement.getSuperClass().get());
-        }
-
+        // The super class is resolved before the class is declared, as the class
+        // doesn't exist (and so can't be derived from) until after its declaration.
+        final var superClass = statement.getSuperClass().isPresent()
+                ? statement.getSuperClass().get()
+                : new Token(TokenType.IDENTIFIER, null, "Object", statement.getIdentifier().getFile(), statement.getIdentifier().getLine());
+        final var superClassResolution = resolve(superClass, statement::setSuperClassVariableKind);
+        statement.setSuperClassVariableKind(superClassResolution.kind());
+        statement.setSuperClassSymbolTableDepth(superClassResolution.depth());
+        statement.setSuperClassSymbolTableSlot(superClassResolution.slot());
+
+        statement.setSymbolTableSlot(
+                declareAndDefine(statement.getIdentifier(), statement::setVariableKind));
+
+        // The scope holding 'super' has no code of its own, so it is only ever referenced
+        // from within methods and the Interpreter always creates it as a cell.
         begScope();
-        declareAndDefine("super");
+        declareAndDefine("super", (kind) -> {});
 
         for (final var method : statement.getMethods()) {
             visitFunDeclarationBody(method);
@@ -74,7 +102,8 @@ public class Resolver implements StatementVisitor<Void>, ExpressionVisitor<Void>
 
     @Override
     public Void visitFunDeclaration(FunDeclaration statement) {
-        declareAndDefine(statement.getIdentifier());
+        statement.setSymbolTableSlot(
+                declareAndDefine(statement.getIdentifier(), statement::setVariableKind));
         visitFunDeclarationBody(statement);
 
         return null;
@@ -82,7 +111,8 @@ public class Resolver implements StatementVisitor<Void>, ExpressionVisitor<Void>
 
     @Override
     public Void visitVarDeclaration(VarDeclaration statement) {
-        declare(statement.getIdentifier());
+        statement.setSymbolTableSlot(
+                declare(statement.getIdentifier(), statement::setVariableKind));
         visit(statement.getExpression());
         define(statement.getIdentifier());
 
@@ -108,21 +138,31 @@ public class Resolver implements StatementVisitor<Void>, ExpressionVisitor<Void>
 
     @Override
     public Void visitForStatement(ForStatement statement) {
-        begScope();
+        final var hasScope = statement.getInitializer().isPresent()
+                && isDeclaration(statement.getInitializer().get());
+        statement.setHasScope(hasScope);
+
+        if (hasScope) {
+            begScope();
+        }
         visitIfNotNull(statement.getInitializer().orElse(null));
         visitIfNotNull(statement.getCondition().orElse(null));
         visitIfNotNull(statement.getIncrement().orElse(null));
         visit(statement.getSubStatement());
-        endScope();
+        if (hasScope) {
+            statement.setSymbolTableSize(endScope());
+        }
 
         return null;
     }
 
     @Override
     public Void visitTryCatchStatement(TryCatchStatement statement) {
+        _tryDepth++;
         visit(statement.getTryStatement());
+        _tryDepth--;
         begScope();
-        declareAndDefine(statement.getExceptionIdentifier());
+        declareAndDefine(statement.getExceptionIdentifier(), statement::setExceptionVariableKind);
         visit(statement.getCatchStatement());
         endScope();
 
@@ -138,11 +178,18 @@ public class Resolver implements StatementVisitor<Void>, ExpressionVisitor<Void>
 
     @Override
     public Void visitBlockStatement(BlockStatement statement) {
-        begScope();
+        final var hasScope = statement.getSubStatements().stream().anyMatch(Resolver::isDeclaration);
+        statement.setHasScope(hasScope);
+
+        if (hasScope) {
+            begScope();
+        }
         for (final var subStatement : statement.getSubStatements()) {
             visit(subStatement);
         }
-        endScope();
+        if (hasScope) {
+            statement.setSymbolTableSize(endScope());
+        }
 
         return null;
     }
@@ -158,6 +205,11 @@ public class Resolver implements StatementVisitor<Void>, ExpressionVisitor<Void>
                             "Return statements are only allowed from within a function or method."));
         }
         visitIfNotNull(statement.getSubExpression().orElse(null));
+        // A call made within a try statement must return to it in case it throws.
+        statement.setIsTailCall(
+                _isWithinFun
+                        && _tryDepth == 0
+                        && statement.getSubExpression().orElse(null) instanceof FunInvocation);
 
         return null;
     }
@@ -230,8 +282,10 @@ public class Resolver implements StatementVisitor<Void>, ExpressionVisitor<Void>
 
     @Override
     public Void visitNewInvocation(NewInvocation expression) {
-        expression.setSymbolTableDepth(
-                getIdentifierSymbolTableDepth(expression.getIdentifier()));
+        final var resolution = resolve(expression.getIdentifier(), expression::setVariableKind);
+        expression.setVariableKind(resolution.kind());
+        expression.setSymbolTableDepth(resolution.depth());
+        expression.setSymbolTableSlot(resolution.slot());
 
         for (final var argument : expression.getArguments()) {
             visit(argument);
@@ -250,8 +304,10 @@ public class Resolver implements StatementVisitor<Void>, ExpressionVisitor<Void>
 
     @Override
     public Void visitVarExpression(VarExpression expression) {
-        expression.setSymbolTableDepth(
-                getIdentifierSymbolTableDepth(expression.getIdentifier()));
+        final var resolution = resolve(expression.getIdentifier(), expression::setVariableKind);
+        expression.setVariableKind(resolution.kind());
+        expression.setSymbolTableDepth(resolution.depth());
+        expression.setSymbolTableSlot(resolution.slot());
 
         return null;
     }
@@ -263,20 +319,34 @@ public class Resolver implements StatementVisitor<Void>, ExpressionVisitor<Void>
 
     private void visitFunDeclarationBody(FunDeclaration statement) {
         begScope();
+        final var function = new Function(_scopes.size() - 1);
+        _functions.push(function);
 
         final var oldIsWithinFun = _isWithinFun;
+        final var oldTryDepth = _tryDepth;
         _isWithinFun = true;
-
-        for (final var parameter : statement.getParameters()) {
-            declareAndDefine(parameter);
+        _tryDepth = 0;
+
+        // Parameters declared more than once share a slot, as with any other variable.
+        final var parameters = statement.getParameters();
+        final var parameterSlots = new int[parameters.size()];
+        final var parameterKinds = new VariableKind[parameters.size()];
+        for (int i = 0; i < parameters.size(); i++) {
+            final var index = i;
+            parameterSlots[i] = declareAndDefine(parameters.get(i), (kind) -> parameterKinds[index] = kind);
         }
+        statement.setParameterSymbolTableSlots(parameterSlots);
+        statement.setParameterVariableKinds(parameterKinds);
         for (final var subStatement : statement.getStatements()) {
             visit(subStatement);
         }
 
         _isWithinFun = oldIsWithinFun;
+        _tryDepth = oldTryDepth;
 
-        endScope();
+        statement.setSymbolTableSize(endScope());
+        statement.setCaptures(function._captures);
+        _functions.pop();
     }
 
     private void visitIfNotNull(Statement statement) {
@@ -291,20 +361,50 @@ public class Resolver implements StatementVisitor<Void>, ExpressionVisitor<Void>
         }
     }
 
+    private static boolean isDeclaration(Statement statement) {
+        return statement instanceof VarDeclaration
+                || statement instanceof FunDeclaration
+                || statement instanceof ClassDeclaration;
+    }
+
     private void begScope() {
-        _scopes.push(new HashMap<>());
+        _scopes.push(new Scope());
     }
 
-    private void endScope() {
-        _scopes.pop();
+    private int endScope() {
+        final var scope = _scopes.pop();
+        for (final var variable : scope._variables.values()) {
+            if (variable._isCaptured) {
+                for (final var kindSetter : variable._kindSetters) {
+                    kindSetter.accept(VariableKind.CELL);
+                }
+            }
+        }
+        return scope._size;
     }
 
-    private void declare(Token token) {
-        declare(token.getText());
+    private int declare(Token token, Consumer<VariableKind> kindSetter) {
+        return declare(token.getText(), kindSetter);
     }
 
-    private void declare(String identifier) {
-        _scopes.peek().put(identifier, false);
+    private int declare(String identifier, Consumer<VariableKind> kindSetter) {
+        // Re-declaring a variable within a scope re-uses its slot, the interpreter
+        // then reports the error when the variable is created a second time.
+        final var scope = _scopes.peek();
+        var variable = scope._variables.get(identifier);
+        if (variable != null) {
+            variable._isDefined = false;
+        } else {
+            variable = new Variable(scope._size++);
+            scope._variables.put(identifier, variable);
+        }
+        if (_scopes.size() == 1) {
+            kindSetter.accept(VariableKind.GLOBAL);
+        } else {
+            kindSetter.accept(VariableKind.LOCAL);
+            variable._kindSetters.add(kindSetter);
+        }
+        return variable._slot;
     }
 
     private void define(Token token) {
@@ -312,32 +412,43 @@ public class Resolver implements StatementVisitor<Void>, ExpressionVisitor<Void>
     }
 
     private void define(String identifier) {
-        _scopes.peek().put(identifier, true);
+        _scopes.peek()._variables.get(identifier)._isDefined = true;
     }
 
-    private void declareAndDefine(Token token) {
-        declareAndDefine(token.getText());
+    private int declareAndDefine(Token token, Consumer<VariableKind> kindSetter) {
+        return declareAndDefine(token.getText(), kindSetter);
     }
 
-    private void declareAndDefine(String identifier) {
-        declare(identifier);
+    private int declareAndDefine(String identifier, Consumer<VariableKind> kindSetter) {
+        final var slot = declare(identifier, kindSetter);
         define(identifier);
+        return slot;
     }
 
-    private int getIdentifierSymbolTableDepth(Token token) {
-        for (int i = 0; i < _scopes.size(); i++) {
-            final var scope = _scopes.get(_scopes.size() - 1 - i);
-            if (scope.containsKey(token.getText())) {
-                if (!scope.get(token.getText())) {
-                    _errorReporter.report(
-                            new JocksError(
-                                    "Resolver",
-                                    token.getFile(),
-                                    token.getLine(),
-                                    "Attempting to reference undefined variable + '" + token.getText() + "'."));
-                }
-                return i;
+    private Resolution resolve(Token token, Consumer<VariableKind> kindSetter) {
+        for (int i = _scopes.size() - 1; i >= 0; i--) {
+            final var variable = _scopes.get(i)._variables.get(token.getText());
+            if (variable == null) {
+                continue;
+            }
+            if (!variable._isDefined) {
+                _errorReporter.report(
+                        new JocksError(
+                                "Resolver",
+                                token.getFile(),
+                                token.getLine(),
+                                "Attempting to reference undefined variable + '" + token.getText() + "'."));
             }
+
+            if (i == 0) {
+                return new Resolution(VariableKind.GLOBAL, -1, variable._slot);
+            }
+            if (i >= _functions.peek()._scopeIndex) {
+                variable._kindSetters.add(kindSetter);
+                return new Resolution(VariableKind.LOCAL, _scopes.size() - 1 - i, variable._slot);
+            }
+            variable._isCaptured = true;
+            return new Resolution(VariableKind.UPVALUE, -1, capture(_functions.size() - 1, i, variable));
         }
 
         _errorReporter.report(
@@ -346,10 +457,34 @@ public class Resolver implements StatementVisitor<Void>, ExpressionVisitor<Void>
                         token.getFile(),
                         token.getLine(),
                         "Attempting to reference undeclared variable + '" + token.getText() + "'."));
-        return -1;
+        return new Resolution(VariableKind.LOCAL, -1, -1);
+    }
+
+    // Returns the index of the upvalue through which the function captures the variable from the
+    // given scope, adding the captures needed to it and to any functions between the two.
+    private int capture(int functionIndex, int scopeIndex, Variable variable) {
+        final var function = _functions.get(functionIndex);
+        final var enclosingFunction = _functions.get(functionIndex - 1);
+        final var capture = scopeIndex >= enclosingFunction._scopeIndex
+                ? Capture.ofCell(function._scopeIndex - 1 - scopeIndex, variable._slot)
+                : Capture.ofUpvalue(capture(functionIndex - 1, scopeIndex, variable));
+
+        final var captures = function._captures;
+        for (int i = 0; i < captures.size(); i++) {
+            final var existing = captures.get(i);
+            if (existing.getIsCell() == capture.getIsCell()
+                    && existing.getSymbolTableDepth() == capture.getSymbolTableDepth()
+                    && existing.getIndex() == capture.getIndex()) {
+                return i;
+            }
+        }
+        captures.add(capture);
+        return captures.size() - 1;
     }
 
     private final ErrorReporter _errorReporter;
     private boolean _isWithinFun = false;
-    private final Stack<HashMap<String, Boolean>> _scopes = new Stack<>();
+    private int _tryDepth = 0; // The number of try statements enclosing the current statement within its function.
+    private final Stack<Scope> _scopes = new Stack<>();
+    private final Stack<Function> _functions = new Stack<>();
 }
@@ -0,0 +1,15 @@
+package com.colossalg.visitors;
+
+// Unwinds the Java stack from a return statement to the call of the function containing it.
+// The value returned is held by the Interpreter, so a single instance (without a stack trace,
+// which would never be used) is thrown for every return.
+final class ReturnSignal extends RuntimeException {
+
+    static final ReturnSignal Instance = new ReturnSignal();
+
+    private ReturnSignal() {
+        super(null, null, false, false);
+    }
+
+    private static final long serialVersionUID = 1L;
+}
@@ -2,12 +2,18 @@ package com.colossalg.visitors;
 
 import com.colossalg.dataTypes.JocksValue;
 
-import java.util.HashMap;
+import java.util.Arrays;
 
+// Variables are stored by the slot the Resolver assigned to their declaration,
+// so identifiers are only needed to produce error messages.
+//
+// Variables which are captured by closures are instead stored in cells, so that
+// the closures may share them without keeping the whole symbol table alive.
 public class SymbolTable {
 
-    public SymbolTable(SymbolTable parent, ExceptionFactory exceptionFactory) {
+    public SymbolTable(SymbolTable parent, int size, ExceptionFactory exceptionFactory) {
         _parent = parent;
+        _variables = new JocksValue[size];
         _exceptionFactory = exceptionFactory;
     }
 
@@ -16,44 +22,53 @@ public class SymbolTable {
     }
 
     public SymbolTable getAncestor(int depth) {
-        return depth > 0
-                ? _parent.getAncestor(depth - 1)
-                : this;
+        var ancestor = this;
+        for (int i = 0; i < depth; i++) {
+            ancestor = ancestor._parent;
+        }
+        return ancestor;
     }
 
-    public void createVariable(String identifier, JocksValue value) {
-        if (_variables.containsKey(identifier)) {
+    public void createVariable(int slot, String identifier, JocksValue value) {
+        if (slot >= _variables.length) {
+            // Only the global symbol table should need to grow, as its size isn't
+            // known until the whole program has been resolved.
+            _variables = Arrays.copyOf(_variables, Math.max(slot + 1, _variables.length * 2));
+        }
+        if (_variables[slot] != null) {
             throw _exceptionFactory.createExceptionWithoutFileOrLine(
                     "Attempting to create variable '" + identifier + "' which already exists in scope");
         }
-        _variables.put(identifier, value);
-    }
-
-    public JocksValue getVariable(String identifier) {
-        if (!_variables.containsKey(identifier)) {
-            if (_parent == null) {
-                throw _exceptionFactory.createExceptionWithoutFileOrLine(
-                        "Attempting to get variable '" + identifier + "' which doesn't exist");
-            }
-            return _parent.getVariable(identifier);
-        } else {
-            return _variables.get(identifier);
-        }
+        _variables[slot] = value;
     }
 
-    public void setVariable(String identifier, JocksValue value) {
-        if (!_variables.containsKey(identifier)) {
-            if (_parent == null) {
-                throw _exceptionFactory.createExceptionWithoutFileOrLine(
-                        "Attempting to set variable '" + identifier + "' which doesn't exist");
-            }
-            _parent.setVariable(identifier, value);
-        } else {
-            _variables.put(identifier, value);
+    public Cell createCell(int slot, String identifier, JocksValue value) {
+        if (_cells == null) {
+            _cells = new Cell[_variables.length];
+        }
+        if (_cells[slot] != null) {
+            throw _exceptionFactory.createExceptionWithoutFileOrLine(
+                    "Attempting to create variable '" + identifier + "' which already exists in scope");
         }
+        final var cell = new Cell(value);
+        _cells[slot] = cell;
+        return cell;
+    }
+
+    public Cell getCell(int slot) {
+        return _cells[slot];
+    }
+
+    public JocksValue getVariable(int slot) {
+        return _variables[slot];
+    }
+
+    public void setVariable(int slot, JocksValue value) {
+        _variables[slot] = value;
     }
 
     private final SymbolTable _parent;
     private final ExceptionFactory _exceptionFactory;
-    private final HashMap<String, JocksValue> _variables = new HashMap<>();
+    private JocksValue[] _variables;
+    private Cell[] _cells = null;
 }
@@ -0,0 +1,15 @@
+package com.colossalg.visitors;
+
+// Unwinds the Java stack from a throw statement to the try/catch statement catching the value.
+// The value thrown is held by the Interpreter, so a single instance (without a stack trace,
+// which would never be used) is thrown for every throw.
+final class ThrowSignal extends RuntimeException {
+
+    static final ThrowSignal Instance = new ThrowSignal();
+
+    private ThrowSignal() {
+        super(null, null, false, false);
+    }
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,754 @@
+package com.colossalg.vm;
+
+import com.colossalg.ErrorReporter;
+import com.colossalg.JocksError;
+import com.colossalg.Token;
+import com.colossalg.TokenType;
+import com.colossalg.expression.*;
+import com.colossalg.statement.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// Compiles a resolved program into bytecode for the VirtualMachine.
+//
+// Variables are assigned storage statically:
+//  - Those declared in the global scope are stored in the global array, by index.
+//  - Those declared in any other scope are stored in stack slots relative to their function's frame.
+//  - Those captured by an inner function are accessed through upvalues.
+public class BytecodeCompiler implements StatementVisitor<Void>, ExpressionVisitor<Void> {
+
+    private static class Local {
+
+        Local(String identifier, int scopeDepth) {
+            _identifier = identifier;
+            _scopeDepth = scopeDepth;
+        }
+
+        private final String _identifier;
+        private final int _scopeDepth;
+        private boolean _isCaptured = false;
+    }
+
+    private static class UpvalueDescriptor {
+
+        UpvalueDescriptor(boolean isLocal, int index) {
+            _isLocal = isLocal;
+            _index = index;
+        }
+
+        private final boolean _isLocal;
+        private final int _index;
+    }
+
+    private static class FunctionState {
+
+        FunctionState(FunctionState enclosing, FunctionPrototype prototype) {
+            _enclosing = enclosing;
+            _prototype = prototype;
+        }
+
+        private final FunctionState _enclosing;
+        private final FunctionPrototype _prototype;
+        private final List<Local> _locals = new ArrayList<>();
+        private final List<UpvalueDescriptor> _upvalues = new ArrayList<>();
+        private int _scopeDepth = 0;
+        private int _stackSize = 0;
+        private int _maxStackSize = 0;
+    }
+
+    public BytecodeCompiler(ErrorReporter errorReporter, String file, List<String> globals) {
+        _errorReporter = errorReporter;
+        _file = file;
+        for (final var global : globals) {
+            _globals.put(global, _globals.size());
+        }
+    }
+
+    public FunctionPrototype compile(List<Statement> statements) {
+        _function = new FunctionState(null, new FunctionPrototype("script", 0, new Chunk(_file)));
+        for (final var statement : statements) {
+            visit(statement);
+        }
+        emitOp(OpCode.NIL, 0, +1);
+        emitOp(OpCode.RETURN, 0, -1);
+        return endFunction();
+    }
+
+    public int getGlobalCount() {
+        return _globals.size();
+    }
+
+    @Override
+    public Void visit(Statement statement) {
+        return statement.accept(this);
+    }
+
+    @Override
+    public Void visitClassDeclaration(ClassDeclaration statement) {
+        final var identifier = statement.getIdentifier();
+        final var line = identifier.getLine();
+
+        // The class is declared before its methods are compiled so that they may refer to it.
+        // A local declaration reserves its slot up front and is assigned once the class exists,
+        // though it is only named after the super class is resolved, as in the Resolver.
+        final var isGlobal = isGlobalScope();
+        var slot = -1;
+        if (isGlobal) {
+            slot = declareGlobal(identifier.getText(), line);
+        } else {
+            emitOp(OpCode.NIL, line, +1);
+        }
+
+        final var superClassIdentifier = statement.getSuperClass().isPresent()
+                ? statement.getSuperClass().get().getText()
+                : "Object";
+        emitGetVariable(superClassIdentifier, line);
+        if (!isGlobal) {
+            slot = declareLocal(identifier);
+        }
+        emitOp(OpCode.CHECK_SUPERCLASS, line, 0);
+        emitShort(addConstant(superClassIdentifier), line);
+
+        // The super class is held in a scope enclosing the methods as the variable 'super'.
+        begScope();
+        addLocal("super");
+
+        for (final var method : statement.getMethods()) {
+            compileFunction(identifier.getText() + "." + method.getIdentifier().getText(), method);
+        }
+
+        final var methods = statement.getMethods();
+        emitOp(OpCode.CLASS, line, 1 - methods.size());
+        emitShort(addConstant(identifier.getText()), line);
+        emitByte(methods.size(), line);
+        for (final var method : methods) {
+            emitShort(addConstant(method.getIdentifier().getText()), line);
+        }
+
+        if (isGlobal) {
+            emitDefineGlobal(slot, line);
+        } else {
+            emitOp(OpCode.SET_LOCAL, line, 0);
+            emitByte(slot, line);
+            emitOp(OpCode.POP, line, -1);
+        }
+
+        endScope(line);
+
+        return null;
+    }
+
+    @Override
+    public Void visitFunDeclaration(FunDeclaration statement) {
+        final var identifier = statement.getIdentifier();
+        // Declared before the body is compiled to allow recursion.
+        if (isGlobalScope()) {
+            final var global = declareGlobal(identifier.getText(), identifier.getLine());
+            compileFunction(identifier.getText(), statement);
+            emitDefineGlobal(global, identifier.getLine());
+        } else {
+            declareLocal(identifier);
+            compileFunction(identifier.getText(), statement);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visitVarDeclaration(VarDeclaration statement) {
+        final var identifier = statement.getIdentifier();
+        visit(statement.getExpression());
+        if (isGlobalScope()) {
+            final var line = identifier.getLine();
+            emitDefineGlobal(declareGlobal(identifier.getText(), line), line);
+        } else {
+            declareLocal(identifier);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visitIfElseStatement(IfElseStatement statement) {
+        visit(statement.getCondition());
+        final var thenJump = emitConditionalJump("If/else statement condition did not evaluate to type 'bool'.");
+        visit(statement.getThenSubStatement());
+        if (statement.getElseSubStatement().isPresent()) {
+            final var elseJump = emitJump(OpCode.JUMP, 0);
+            patchJump(thenJump);
+            visit(statement.getElseSubStatement().get());
+            patchJump(elseJump);
+        } else {
+            patchJump(thenJump);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visitWhileStatement(WhileStatement statement) {
+        final var loopStart = currentChunk().getSize();
+        visit(statement.getCondition());
+        final var exitJump = emitConditionalJump("While statement condition did not evaluate to type 'bool'.");
+        visit(statement.getSubStatement());
+        emitLoop(loopStart);
+        patchJump(exitJump);
+
+        return null;
+    }
+
+    @Override
+    public Void visitForStatement(ForStatement statement) {
+        begScope();
+        if (statement.getInitializer().isPresent()) {
+            visit(statement.getInitializer().get());
+        }
+        final var loopStart = currentChunk().getSize();
+        var exitJump = -1;
+        if (statement.getCondition().isPresent()) {
+            visit(statement.getCondition().get());
+            exitJump = emitConditionalJump("For statement condition did not evaluate to type 'bool'.");
+        }
+        visit(statement.getSubStatement());
+        if (statement.getIncrement().isPresent()) {
+            visit(statement.getIncrement().get());
+            emitOp(OpCode.POP, 0, -1);
+        }
+        emitLoop(loopStart);
+        if (exitJump != -1) {
+            patchJump(exitJump);
+        }
+        endScope(0);
+
+        return null;
+    }
+
+    @Override
+    public Void visitTryCatchStatement(TryCatchStatement statement) {
+        final var handlerJump = emitJump(OpCode.TRY_BEGIN, 0);
+        visit(statement.getTryStatement());
+        emitOp(OpCode.TRY_END, 0, 0);
+        final var endJump = emitJump(OpCode.JUMP, 0);
+
+        // The virtual machine pushes the thrown value before jumping to the handler,
+        // this becomes the value of the exception variable scoped to the catch statement.
+        patchJump(handlerJump);
+        begScope();
+        adjustStackSize(+1);
+        addLocal(statement.getExceptionIdentifier().getText());
+        visit(statement.getCatchStatement());
+        endScope(statement.getExceptionIdentifier().getLine());
+        patchJump(endJump);
+
+        return null;
+    }
+
+    @Override
+    public Void visitThrowStatement(ThrowStatement statement) {
+        visit(statement.getSubExpression());
+        emitOp(OpCode.THROW, 0, -1);
+
+        return null;
+    }
+
+    @Override
+    public Void visitBlockStatement(BlockStatement statement) {
+        begScope();
+        for (final var subStatement : statement.getSubStatements()) {
+            visit(subStatement);
+        }
+        endScope(0);
+
+        return null;
+    }
+
+    @Override
+    public Void visitReturnStatement(ReturnStatement statement) {
+        if (statement.getIsTailCall()) {
+            emitTailCall((FunInvocation)statement.getSubExpression().get());
+        } else if (statement.getSubExpression().isPresent()) {
+            visit(statement.getSubExpression().get());
+        } else {
+            emitOp(OpCode.NIL, statement.getLine(), +1);
+        }
+        emitOp(OpCode.RETURN, statement.getLine(), -1);
+
+        return null;
+    }
+
+    @Override
+    public Void visitPrintStatement(PrintStatement statement) {
+        visit(statement.getSubExpression());
+        emitOp(OpCode.PRINT, 0, -1);
+
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(ExpressionStatement statement) {
+        visit(statement.getSubExpression());
+        emitOp(OpCode.POP, 0, -1);
+
+        return null;
+    }
+
+    @Override
+    public Void visit(Expression expression) {
+        return expression.accept(this);
+    }
+
+    @Override
+    public Void visitLogicalExpression(LogicalExpression expression) {
+        final var operator = expression.getOperator();
+        visit(expression.getLftSubExpression());
+        final var shortCircuitJump = emitJump(
+                operator.getType() == TokenType.AND
+                        ? OpCode.JUMP_IF_FALSE_OR_POP
+                        : OpCode.JUMP_IF_TRUE_OR_POP,
+                operator.getLine());
+        adjustStackSize(-1);
+        visit(expression.getRgtSubExpression());
+        emitOp(OpCode.CHECK_LOGICAL_RGT, operator.getLine(), 0);
+        emitShort(addConstant(operator.getText()), operator.getLine());
+        patchJump(shortCircuitJump);
+
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryExpression(BinaryExpression expression) {
+        final var operator = expression.getOperator();
+        visit(expression.getLftSubExpression());
+        visit(expression.getRgtSubExpression());
+        final var opCode = switch (operator.getType()) {
+            case TokenType.EQUAL_EQUAL -> OpCode.EQUAL;
+            case TokenType.BANGS_EQUAL -> OpCode.NOT_EQUAL;
+            case TokenType.LESS_THAN -> OpCode.LESS_THAN;
+            case TokenType.LESS_THAN_OR_EQUAL -> OpCode.LESS_THAN_OR_EQUAL;
+            case TokenType.MORE_THAN -> OpCode.MORE_THAN;
+            case TokenType.MORE_THAN_OR_EQUAL -> OpCode.MORE_THAN_OR_EQUAL;
+            case TokenType.ADD -> OpCode.ADD;
+            case TokenType.SUB -> OpCode.SUB;
+            case TokenType.MUL -> OpCode.MUL;
+            case TokenType.DIV -> OpCode.DIV;
+            default -> {
+                reportError(operator, "Invalid binary operator type '" + operator.getType().name() + "'.");
+                yield OpCode.ADD;
+            }
+        };
+        emitOp(opCode, operator.getLine(), -1);
+
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryExpression(UnaryExpression expression) {
+        final var operator = expression.getOperator();
+        visit(expression.getSubExpression());
+        final var opCode = switch (operator.getType()) {
+            case TokenType.BANGS -> OpCode.NOT;
+            case TokenType.ADD -> OpCode.UNARY_ADD;
+            case TokenType.SUB -> OpCode.UNARY_SUB;
+            default -> {
+                reportError(operator, "Invalid unary operator type '" + operator.getType().name() + "'.");
+                yield OpCode.NOT;
+            }
+        };
+        emitOp(opCode, operator.getLine(), 0);
+
+        return null;
+    }
+
+    @Override
+    public Void visitGroupingExpression(GroupingExpression expression) {
+        visit(expression.getSubExpression());
+
+        return null;
+    }
+
+    @Override
+    public Void visitDotExpression(DotExpression expression) {
+        final var rhsIdentifier = expression.getRhsIdentifier();
+        visit(expression.getLhsExpression());
+        emitOp(OpCode.GET_PROPERTY, rhsIdentifier.getLine(), 0);
+        emitShort(addConstant(rhsIdentifier.getText()), rhsIdentifier.getLine());
+
+        return null;
+    }
+
+    @Override
+    public Void visitFunInvocation(FunInvocation expression) {
+        final var arguments = expression.getArguments();
+        checkArgumentCount(arguments.size(), expression.getLine());
+
+        // Method invocations are fused into a single instruction which avoids binding the method.
+        // The name operand carries the line of the '.' expression, for error reporting.
+        if (expression.getSubExpression() instanceof DotExpression dotExpression) {
+            final var rhsIdentifier = dotExpression.getRhsIdentifier();
+            visit(dotExpression.getLhsExpression());
+            for (final var argument : arguments) {
+                visit(argument);
+            }
+            emitOp(OpCode.INVOKE, expression.getLine(), -arguments.size());
+            emitShort(addConstant(rhsIdentifier.getText()), rhsIdentifier.getLine());
+            emitByte(arguments.size(), expression.getLine());
+            return null;
+        }
+
+        visit(expression.getSubExpression());
+        for (final var argument : arguments) {
+            visit(argument);
+        }
+        emitOp(OpCode.CALL, expression.getLine(), -arguments.size());
+        emitByte(arguments.size(), expression.getLine());
+
+        return null;
+    }
+
+    // Unlike other calls, those to methods aren't fused into INVOKE, so that TAIL_CALL need only
+    // handle a callee (here a bound method) and its arguments. TAIL_CALL is followed by RETURN,
+    // which returns the result of any call that isn't made in place of the caller.
+    private void emitTailCall(FunInvocation expression) {
+        final var arguments = expression.getArguments();
+        checkArgumentCount(arguments.size(), expression.getLine());
+
+        visit(expression.getSubExpression());
+        for (final var argument : arguments) {
+            visit(argument);
+        }
+        emitOp(OpCode.TAIL_CALL, expression.getLine(), -arguments.size());
+        emitByte(arguments.size(), expression.getLine());
+    }
+
+    @Override
+    public Void visitNewInvocation(NewInvocation expression) {
+        final var arguments = expression.getArguments();
+        checkArgumentCount(arguments.size(), expression.getLine());
+
+        emitGetVariable(expression.getIdentifier().getText(), expression.getLine());
+        for (final var argument : arguments) {
+            visit(argument);
+        }
+        emitOp(OpCode.NEW, expression.getLine(), -arguments.size());
+        emitShort(addConstant(expression.getIdentifier().getText()), expression.getLine());
+        emitByte(arguments.size(), expression.getLine());
+
+        return null;
+    }
+
+    @Override
+    public Void visitVarAssignment(VarAssignment expression) {
+        visit(expression.getRhsExpression());
+        if (expression.getLhsExpression() instanceof DotExpression lhsDotExpression) {
+            final var rhsIdentifier = lhsDotExpression.getRhsIdentifier();
+            visit(lhsDotExpression.getLhsExpression());
+            emitOp(OpCode.SET_PROPERTY, rhsIdentifier.getLine(), -1);
+            emitShort(addConstant(rhsIdentifier.getText()), rhsIdentifier.getLine());
+        } else if (expression.getLhsExpression() instanceof VarExpression lhsVarExpression) {
+            emitSetVariable(lhsVarExpression.getIdentifier());
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visitVarExpression(VarExpression expression) {
+        final var identifier = expression.getIdentifier();
+        emitGetVariable(identifier.getText(), identifier.getLine());
+
+        return null;
+    }
+
+    @Override
+    public Void visitLiteralExpression(LiteralExpression expression) {
+        final var literalToken = expression.getToken();
+        final var line = literalToken.getLine();
+        switch (literalToken.getType()) {
+            case TokenType.STRING, TokenType.NUMBER -> emitConstant(expression.getValue(), line);
+            case TokenType.TRUE  -> emitOp(OpCode.TRUE, line, +1);
+            case TokenType.FALSE -> emitOp(OpCode.FALSE, line, +1);
+            case TokenType.NIL -> emitOp(OpCode.NIL, line, +1);
+            default -> reportError(literalToken, "Invalid literal type '" + literalToken.getType().name() + "'.");
+        }
+
+        return null;
+    }
+
+    private void compileFunction(String name, FunDeclaration statement) {
+        final var identifier = statement.getIdentifier();
+        final var prototype = new FunctionPrototype(name, statement.getParameters().size(), new Chunk(_file));
+        _function = new FunctionState(_function, prototype);
+        begScope();
+
+        for (final var parameter : statement.getParameters()) {
+            adjustStackSize(+1);
+            declareLocal(parameter);
+        }
+        for (final var subStatement : statement.getStatements()) {
+            visit(subStatement);
+        }
+        emitOp(OpCode.NIL, identifier.getLine(), +1);
+        emitOp(OpCode.RETURN, identifier.getLine(), -1);
+
+        // No need to end the scope, returning discards the frame (closing any captured variables).
+        final var upvalues = _function._upvalues;
+        endFunction();
+
+        emitOp(OpCode.CLOSURE, identifier.getLine(), +1);
+        emitShort(addConstant(prototype), identifier.getLine());
+        for (final var upvalue : upvalues) {
+            emitByte(upvalue._isLocal ? 1 : 0, identifier.getLine());
+            emitByte(upvalue._index, identifier.getLine());
+        }
+    }
+
+    private FunctionPrototype endFunction() {
+        final var prototype = _function._prototype;
+        prototype.setUpvalueCount(_function._upvalues.size());
+        prototype.setMaxStackSize(_function._maxStackSize);
+        _function = _function._enclosing;
+        return prototype;
+    }
+
+    private boolean isGlobalScope() {
+        return _function._enclosing == null && _function._scopeDepth == 0;
+    }
+
+    private void begScope() {
+        _function._scopeDepth++;
+    }
+
+    private void endScope(int line) {
+        _function._scopeDepth--;
+        final var locals = _function._locals;
+        while (!locals.isEmpty() && locals.getLast()._scopeDepth > _function._scopeDepth) {
+            emitOp(locals.getLast()._isCaptured ? OpCode.CLOSE_UPVALUE : OpCode.POP, line, -1);
+            locals.removeLast();
+        }
+    }
+
+    private int declareLocal(Token identifier) {
+        // Mirrors the interpreter, where re-declaring a variable within a scope is a runtime error.
+        for (int i = _function._locals.size() - 1; i >= 0; i--) {
+            final var local = _function._locals.get(i);
+            if (local._scopeDepth < _function._scopeDepth) {
+                break;
+            }
+            if (local._identifier.equals(identifier.getText())) {
+                emitError("Attempting to create variable '" + identifier.getText() + "' which already exists in scope");
+                break;
+            }
+        }
+        return addLocal(identifier.getText());
+    }
+
+    private int addLocal(String identifier) {
+        if (_function._locals.size() == MAX_U8) {
+            reportError(_file, 0, "Too many local variables in function '" + _function._prototype.getName() + "'.");
+        }
+        _function._locals.add(new Local(identifier, _function._scopeDepth));
+        return _function._locals.size() - 1;
+    }
+
+    private int resolveLocal(FunctionState function, String identifier) {
+        for (int i = function._locals.size() - 1; i >= 0; i--) {
+            if (function._locals.get(i)._identifier.equals(identifier)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int resolveUpvalue(FunctionState function, String identifier) {
+        final var enclosing = function._enclosing;
+        if (enclosing == null) {
+            return -1;
+        }
+
+        final var local = resolveLocal(enclosing, identifier);
+        if (local != -1) {
+            enclosing._locals.get(local)._isCaptured = true;
+            return addUpvalue(function, true, local);
+        }
+
+        final var upvalue = resolveUpvalue(enclosing, identifier);
+        if (upvalue != -1) {
+            return addUpvalue(function, false, upvalue);
+        }
+
+        return -1;
+    }
+
+    private int addUpvalue(FunctionState function, boolean isLocal, int index) {
+        final var upvalues = function._upvalues;
+        for (int i = 0; i < upvalues.size(); i++) {
+            final var upvalue = upvalues.get(i);
+            if (upvalue._isLocal == isLocal && upvalue._index == index) {
+                return i;
+            }
+        }
+        if (upvalues.size() == MAX_U8) {
+            reportError(_file, 0, "Too many captured variables in function '" + function._prototype.getName() + "'.");
+        }
+        upvalues.add(new UpvalueDescriptor(isLocal, index));
+        return upvalues.size() - 1;
+    }
+
+    private void emitGetVariable(String identifier, int line) {
+        final var local = resolveLocal(_function, identifier);
+        if (local != -1) {
+            emitOp(OpCode.GET_LOCAL, line, +1);
+            emitByte(local, line);
+            return;
+        }
+        final var upvalue = resolveUpvalue(_function, identifier);
+        if (upvalue != -1) {
+            emitOp(OpCode.GET_UPVALUE, line, +1);
+            emitByte(upvalue, line);
+            return;
+        }
+        emitOp(OpCode.GET_GLOBAL, line, +1);
+        emitShort(resolveGlobal(identifier, line), line);
+    }
+
+    private void emitSetVariable(Token identifier) {
+        final var line = identifier.getLine();
+        final var local = resolveLocal(_function, identifier.getText());
+        if (local != -1) {
+            emitOp(OpCode.SET_LOCAL, line, 0);
+            emitByte(local, line);
+            return;
+        }
+        final var upvalue = resolveUpvalue(_function, identifier.getText());
+        if (upvalue != -1) {
+            emitOp(OpCode.SET_UPVALUE, line, 0);
+            emitByte(upvalue, line);
+            return;
+        }
+        emitOp(OpCode.SET_GLOBAL, line, 0);
+        emitShort(resolveGlobal(identifier.getText(), line), line);
+    }
+
+    private int declareGlobal(String identifier, int line) {
+        // Mirrors the interpreter, where re-declaring a variable within a scope is a runtime error.
+        if (_globals.containsKey(identifier)) {
+            emitError("Attempting to create variable '" + identifier + "' which already exists in scope");
+        }
+        if (!_globals.containsKey(identifier) && _globals.size() == MAX_U16 + 1) {
+            reportError(_file, line, "Too many global variables.");
+        }
+        _globals.putIfAbsent(identifier, _globals.size());
+        return _globals.get(identifier);
+    }
+
+    private void emitDefineGlobal(int global, int line) {
+        emitOp(OpCode.DEFINE_GLOBAL, line, -1);
+        emitShort(global, line);
+    }
+
+    private int resolveGlobal(String identifier, int line) {
+        final var index = _globals.get(identifier);
+        if (index == null) {
+            // The resolver will already have reported this, but just in case.
+            reportError(_file, line, "Attempting to reference undeclared variable '" + identifier + "'.");
+            return 0;
+        }
+        return index;
+    }
+
+    private void emitConstant(Object constant, int line) {
+        emitOp(OpCode.CONSTANT, line, +1);
+        emitShort(addConstant(constant), line);
+    }
+
+    private void emitError(String message) {
+        emitOp(OpCode.ERROR, 0, 0);
+        emitShort(addConstant(message), 0);
+    }
+
+    private int emitConditionalJump(String message) {
+        final var jump = emitJump(OpCode.JUMP_IF_FALSE, 0);
+        emitShort(addConstant(message), 0);
+        adjustStackSize(-1);
+        return jump;
+    }
+
+    private int emitJump(byte opCode, int line) {
+        emitOp(opCode, line, 0);
+        emitShort(0xffff, line);
+        return currentChunk().getSize() - 2;
+    }
+
+    private void patchJump(int offset) {
+        final var jump = currentChunk().getSize() - offset - 2;
+        if (jump > MAX_U16) {
+            reportError(_file, 0, "Too much code to jump over in function '" + _function._prototype.getName() + "'.");
+        }
+        currentChunk().patch(offset, (byte)((jump >> 8) & 0xff));
+        currentChunk().patch(offset + 1, (byte)(jump & 0xff));
+    }
+
+    private void emitLoop(int loopStart) {
+        emitOp(OpCode.LOOP, 0, 0);
+        final var offset = currentChunk().getSize() - loopStart + 2;
+        if (offset > MAX_U16) {
+            reportError(_file, 0, "Loop body too large in function '" + _function._prototype.getName() + "'.");
+        }
+        emitShort(offset, 0);
+    }
+
+    private void emitOp(byte opCode, int line, int stackEffect) {
+        currentChunk().write(opCode, line);
+        adjustStackSize(stackEffect);
+    }
+
+    private void emitByte(int value, int line) {
+        currentChunk().write((byte)value, line);
+    }
+
+    private void emitShort(int value, int line) {
+        currentChunk().write((byte)((value >> 8) & 0xff), line);
+        currentChunk().write((byte)(value & 0xff), line);
+    }
+
+    private void adjustStackSize(int stackEffect) {
+        _function._stackSize += stackEffect;
+        _function._maxStackSize = Math.max(_function._maxStackSize, _function._stackSize);
+    }
+
+    private int addConstant(Object constant) {
+        final var index = currentChunk().addConstant(constant);
+        if (index > MAX_U16) {
+            reportError(_file, 0, "Too many constants in function '" + _function._prototype.getName() + "'.");
+        }
+        return index;
+    }
+
+    private void checkArgumentCount(int argumentCount, int line) {
+        if (argumentCount > MAX_U8) {
+            reportError(_file, line, "Can't have more than " + MAX_U8 + " arguments.");
+        }
+    }
+
+    private Chunk currentChunk() {
+        return _function._prototype.getChunk();
+    }
+
+    private void reportError(Token token, String what) {
+        reportError(token.getFile(), token.getLine(), what);
+    }
+
+    private void reportError(String file, int line, String what) {
+        _errorReporter.report(new JocksError("Compiler", file, line, what));
+    }
+
+    private static final int MAX_U8 = 255;
+    private static final int MAX_U16 = 65535;
+
+    private final ErrorReporter _errorReporter;
+    private final String _file;
+    private final HashMap<String, Integer> _globals = new HashMap<>();
+    private FunctionState _function = null;
+}
@@ -0,0 +1,12 @@
+package com.colossalg.vm;
+
+// Frames are pooled and re-used by the VirtualMachine, hence the mutability.
+class CallFrame {
+
+    Closure closure;
+    int ip;
+    int base;        // Stack index of the first parameter/local.
+    int resultSlot;  // Stack index the result is written to on return.
+    boolean keepReceiver;      // Constructors evaluate to the instance rather than the returned value.
+    boolean hasCallStackEntry; // Whether returning should pop an entry from the call stack entry info.
+}
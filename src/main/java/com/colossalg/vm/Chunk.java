@@ -0,0 +1,82 @@
+package com.colossalg.vm;
+
+import com.colossalg.dataTypes.classes.InlineCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class Chunk {
+
+    public Chunk(String file) {
+        _file = file;
+    }
+
+    public String getFile() {
+        return _file;
+    }
+
+    public byte[] getCode() {
+        return _code;
+    }
+
+    public int getSize() {
+        return _size;
+    }
+
+    public int getLine(int offset) {
+        return _lines[offset];
+    }
+
+    // Each instruction performing a property lookup or assignment has its own cache.
+    public InlineCache getInlineCache(int offset) {
+        if (_inlineCaches == null) {
+            _inlineCaches = new InlineCache[_size];
+        }
+        var inlineCache = _inlineCaches[offset];
+        if (inlineCache == null) {
+            inlineCache = new InlineCache();
+            _inlineCaches[offset] = inlineCache;
+        }
+        return inlineCache;
+    }
+
+    public Object[] getConstants() {
+        if (_constantsArray == null || _constantsArray.length != _constants.size()) {
+            _constantsArray = _constants.toArray();
+        }
+        return _constantsArray;
+    }
+
+    public int write(byte value, int line) {
+        if (_size == _code.length) {
+            _code  = Arrays.copyOf(_code, _size * 2);
+            _lines = Arrays.copyOf(_lines, _size * 2);
+        }
+        _code[_size]  = value;
+        _lines[_size] = line;
+        return _size++;
+    }
+
+    public void patch(int offset, byte value) {
+        _code[offset] = value;
+    }
+
+    public int addConstant(Object constant) {
+        // Constants are de-duplicated so that repeated names and literals share a pool entry.
+        final var index = _constants.indexOf(constant);
+        if (index != -1) {
+            return index;
+        }
+        _constants.add(constant);
+        return _constants.size() - 1;
+    }
+
+    private final String _file;
+    private byte[] _code = new byte[64];
+    private int[] _lines = new int[64];
+    private int _size = 0;
+    private final List<Object> _constants = new ArrayList<>();
+    private Object[] _constantsArray = null;
+    private InlineCache[] _inlineCaches = null;
+}
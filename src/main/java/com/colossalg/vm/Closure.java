@@ -0,0 +1,42 @@
+package com.colossalg.vm;
+
+import com.colossalg.dataTypes.JocksValue;
+import com.colossalg.dataTypes.functions.JocksFunction;
+
+public class Closure extends JocksFunction {
+
+    public Closure(FunctionPrototype prototype, VirtualMachine virtualMachine) {
+        super(prototype.getName());
+        _prototype = prototype;
+        _upvalues = new Upvalue[prototype.getUpvalueCount()];
+        _virtualMachine = virtualMachine;
+    }
+
+    @Override
+    public String str() {
+        // Closures are user land functions as far as Jocks programs are concerned.
+        return String.format("JocksUserLandFunction(%s)", getName());
+    }
+
+    @Override
+    public int getArity() {
+        return _prototype.getArity();
+    }
+
+    @Override
+    public JocksValue call(JocksValue[] arguments) {
+        return _virtualMachine.callFromJavaLand(this, arguments);
+    }
+
+    public FunctionPrototype getPrototype() {
+        return _prototype;
+    }
+
+    public Upvalue[] getUpvalues() {
+        return _upvalues;
+    }
+
+    private final FunctionPrototype _prototype;
+    private final Upvalue[] _upvalues;
+    private final VirtualMachine _virtualMachine;
+}
@@ -0,0 +1,46 @@
+package com.colossalg.vm;
+
+// The compiled, immutable portion of a function.
+// Each evaluation of the declaration produces a new Closure over this.
+public class FunctionPrototype {
+
+    public FunctionPrototype(String name, int arity, Chunk chunk) {
+        _name = name;
+        _arity = arity;
+        _chunk = chunk;
+    }
+
+    public String getName() {
+        return _name;
+    }
+
+    public int getArity() {
+        return _arity;
+    }
+
+    public Chunk getChunk() {
+        return _chunk;
+    }
+
+    public int getUpvalueCount() {
+        return _upvalueCount;
+    }
+
+    public void setUpvalueCount(int upvalueCount) {
+        _upvalueCount = upvalueCount;
+    }
+
+    public int getMaxStackSize() {
+        return _maxStackSize;
+    }
+
+    public void setMaxStackSize(int maxStackSize) {
+        _maxStackSize = maxStackSize;
+    }
+
+    private final String _name;
+    private final int _arity;
+    private final Chunk _chunk;
+    private int _upvalueCount = 0;
+    private int _maxStackSize = 0;
+}
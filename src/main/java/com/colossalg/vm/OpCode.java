@@ -0,0 +1,80 @@
+package com.colossalg.vm;
+
+// The instruction set understood by the VirtualMachine.
+//
+// Operands follow the op code directly in the instruction stream, the
+// widths of which are documented beside each op code below:
+//  - u8  - A single unsigned byte.
+//  - u16 - Two bytes, big endian, unsigned.
+//
+// Plain constants are used over an enum so that the dispatch loop can
+// switch directly on the bytes in the instruction stream.
+public final class OpCode {
+
+    // Constants and literals
+    public static final byte CONSTANT = 0;              // u16 constant index
+    public static final byte NIL = 1;
+    public static final byte TRUE = 2;
+    public static final byte FALSE = 3;
+
+    // Stack manipulation
+    public static final byte POP = 4;
+
+    // Variables
+    public static final byte GET_LOCAL = 5;             // u8 slot
+    public static final byte SET_LOCAL = 6;             // u8 slot
+    public static final byte GET_UPVALUE = 7;           // u8 upvalue index
+    public static final byte SET_UPVALUE = 8;           // u8 upvalue index
+    public static final byte GET_GLOBAL = 9;            // u16 global index
+    public static final byte SET_GLOBAL = 10;           // u16 global index
+    public static final byte DEFINE_GLOBAL = 11;        // u16 global index
+    public static final byte CLOSE_UPVALUE = 12;
+
+    // Properties
+    public static final byte GET_PROPERTY = 13;         // u16 name constant index
+    public static final byte SET_PROPERTY = 14;         // u16 name constant index
+
+    // Operators
+    public static final byte EQUAL = 15;
+    public static final byte NOT_EQUAL = 16;
+    public static final byte LESS_THAN = 17;
+    public static final byte LESS_THAN_OR_EQUAL = 18;
+    public static final byte MORE_THAN = 19;
+    public static final byte MORE_THAN_OR_EQUAL = 20;
+    public static final byte ADD = 21;
+    public static final byte SUB = 22;
+    public static final byte MUL = 23;
+    public static final byte DIV = 24;
+    public static final byte NOT = 25;
+    public static final byte UNARY_ADD = 26;
+    public static final byte UNARY_SUB = 27;
+
+    // Control flow
+    public static final byte JUMP = 28;                 // u16 forward offset
+    public static final byte JUMP_IF_FALSE = 29;        // u16 forward offset, u16 message constant index
+    public static final byte JUMP_IF_FALSE_OR_POP = 30; // u16 forward offset ('and' short circuit)
+    public static final byte JUMP_IF_TRUE_OR_POP = 31;  // u16 forward offset ('or' short circuit)
+    public static final byte CHECK_LOGICAL_RGT = 32;    // u16 operator text constant index
+    public static final byte LOOP = 33;                 // u16 backward offset
+
+    // Functions and classes
+    public static final byte CALL = 34;                 // u8 argument count
+    public static final byte INVOKE = 35;               // u16 name constant index, u8 argument count
+    public static final byte NEW = 36;                  // u16 class name constant index, u8 argument count
+    public static final byte CLOSURE = 37;              // u16 prototype constant index, (u8 is local, u8 index) per upvalue
+    public static final byte CHECK_SUPERCLASS = 38;     // u16 superclass name constant index
+    public static final byte CLASS = 39;                // u16 class name constant index, u8 method count, u16 name constant index per method
+    public static final byte RETURN = 40;
+    public static final byte TAIL_CALL = 46;            // u8 argument count (followed by RETURN)
+
+    // Exceptions
+    public static final byte TRY_BEGIN = 41;            // u16 forward offset to the catch handler
+    public static final byte TRY_END = 42;
+    public static final byte THROW = 43;
+
+    // Miscellaneous
+    public static final byte PRINT = 44;
+    public static final byte ERROR = 45;                // u16 message constant index
+
+    private OpCode() {}
+}
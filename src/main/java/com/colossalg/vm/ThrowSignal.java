@@ -0,0 +1,23 @@
+package com.colossalg.vm;
+
+import com.colossalg.dataTypes.JocksValue;
+
+// Carries a value thrown by a Jocks program through Java land, for instance
+// when an overloaded operator throws or when a closure is invoked re-entrantly.
+// The stack trace is never used, so it isn't captured.
+public class ThrowSignal extends RuntimeException {
+
+    public ThrowSignal(JocksValue thrownValue) {
+        super(null, null, false, false);
+        _thrownValue = thrownValue;
+    }
+
+    public JocksValue getThrownValue() {
+        return _thrownValue;
+    }
+
+    // Signals are never serialized, so the value (which isn't serializable) is transient.
+    private final transient JocksValue _thrownValue;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,49 @@
+package com.colossalg.vm;
+
+import com.colossalg.dataTypes.JocksValue;
+
+// A variable captured by a closure.
+// While the variable is still live on the stack the upvalue is 'open' and
+// refers to its stack slot, once the variable goes out of scope the value is
+// moved into the upvalue itself and it is 'closed'.
+public class Upvalue {
+
+    public Upvalue(int slot, Upvalue next) {
+        _slot = slot;
+        _next = next;
+    }
+
+    public JocksValue get(JocksValue[] stack) {
+        return _isOpen ? stack[_slot] : _closed;
+    }
+
+    public void set(JocksValue[] stack, JocksValue value) {
+        if (_isOpen) {
+            stack[_slot] = value;
+        } else {
+            _closed = value;
+        }
+    }
+
+    public void close(JocksValue[] stack) {
+        _closed = stack[_slot];
+        _isOpen = false;
+    }
+
+    public int getSlot() {
+        return _slot;
+    }
+
+    public Upvalue getNext() {
+        return _next;
+    }
+
+    public void setNext(Upvalue next) {
+        _next = next;
+    }
+
+    private final int _slot;
+    private Upvalue _next;
+    private boolean _isOpen = true;
+    private JocksValue _closed = null;
+}
@@ -0,0 +1,726 @@
+package com.colossalg.vm;
+
+import com.colossalg.TokenType;
+import com.colossalg.builtin.Builtins;
+import com.colossalg.builtin.functions.*;
+import com.colossalg.dataTypes.*;
+import com.colossalg.dataTypes.classes.*;
+import com.colossalg.dataTypes.functions.*;
+import com.colossalg.dataTypes.primitives.*;
+import com.colossalg.visitors.CallStack;
+import com.colossalg.visitors.ExceptionFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+// A stack based virtual machine which executes the bytecode produced by the BytecodeCompiler.
+//
+// This is an alternative to the tree walking Interpreter and should behave identically, with the
+// exception of some fatal errors, which may be detected after (rather than before) evaluating the
+// arguments of a call.
+public class VirtualMachine {
+
+    private static class ExceptionHandler {
+
+        private int _frameIndex;
+        private int _handlerIp;
+        private int _stackSize;
+        private int _callStackSize;
+    }
+
+    public VirtualMachine() {
+        this(CallStack.DEFAULT_MAX_SIZE);
+    }
+
+    public VirtualMachine(int maxCallDepth) {
+        _maxCallDepth = maxCallDepth;
+
+        for (final var builtin : Builtins.ALL) {
+            defineGlobal(builtin.name(), builtin.create());
+        }
+    }
+
+    public List<String> getGlobalIdentifiers() {
+        return _globalIdentifiers;
+    }
+
+    public void interpret(FunctionPrototype script, int globalCount) {
+        _globals = Arrays.copyOf(_globals, Math.max(globalCount, _globals.length));
+
+        final var closure = new Closure(script, this);
+        ensureStackCapacity(script.getMaxStackSize());
+        pushFrame(closure, _stackSize, _stackSize, false, false);
+        try {
+            run(0);
+        } catch (ThrowSignal signal) {
+            _isThrowing = true;
+        }
+    }
+
+    public boolean getIsThrowing() {
+        return _isThrowing;
+    }
+
+    public JocksValue callFromJavaLand(Closure closure, JocksValue[] arguments) {
+        // Closures may be invoked from Java land, for instance when printing an instance
+        // with an overloaded '__str__' method. These execute within a nested dispatch loop
+        // which returns once the closure's frame has been popped.
+        final var base = _stackSize;
+        ensureStackCapacity(arguments.length + closure.getPrototype().getMaxStackSize());
+        for (final var argument : arguments) {
+            _stack[_stackSize++] = argument;
+        }
+        final var exitFrameCount = _frameCount;
+        pushFrame(closure, base, base, false, false);
+        run(exitFrameCount);
+        _stackSize = base;
+        return _stack[base];
+    }
+
+    private JocksValue run(int exitFrameCount) {
+        var frame = _frames[_frameCount - 1];
+        var chunk = frame.closure.getPrototype().getChunk();
+        var code = chunk.getCode();
+        var constants = chunk.getConstants();
+        var ip = frame.ip;
+
+        while (true) {
+            try {
+                while (true) {
+                    final var opStart = ip;
+                    switch (code[ip++]) {
+                        case OpCode.CONSTANT -> {
+                            _stack[_stackSize++] = (JocksValue)constants[readShort(code, ip)];
+                            ip += 2;
+                        }
+                        case OpCode.NIL -> _stack[_stackSize++] = JocksNil.Instance;
+                        case OpCode.TRUE -> _stack[_stackSize++] = JocksBool.Truthy;
+                        case OpCode.FALSE -> _stack[_stackSize++] = JocksBool.Falsey;
+                        case OpCode.POP -> _stackSize--;
+                        case OpCode.GET_LOCAL -> _stack[_stackSize++] = _stack[frame.base + (code[ip++] & 0xff)];
+                        case OpCode.SET_LOCAL -> _stack[frame.base + (code[ip++] & 0xff)] = _stack[_stackSize - 1];
+                        case OpCode.GET_UPVALUE -> {
+                            final var upvalue = frame.closure.getUpvalues()[code[ip++] & 0xff];
+                            _stack[_stackSize++] = upvalue.get(_stack);
+                        }
+                        case OpCode.SET_UPVALUE -> {
+                            final var upvalue = frame.closure.getUpvalues()[code[ip++] & 0xff];
+                            upvalue.set(_stack, _stack[_stackSize - 1]);
+                        }
+                        case OpCode.GET_GLOBAL -> {
+                            _stack[_stackSize++] = _globals[readShort(code, ip)];
+                            ip += 2;
+                        }
+                        case OpCode.SET_GLOBAL -> {
+                            _globals[readShort(code, ip)] = _stack[_stackSize - 1];
+                            ip += 2;
+                        }
+                        case OpCode.DEFINE_GLOBAL -> {
+                            _globals[readShort(code, ip)] = _stack[--_stackSize];
+                            ip += 2;
+                        }
+                        case OpCode.CLOSE_UPVALUE -> {
+                            closeUpvalues(_stackSize - 1);
+                            _stackSize--;
+                        }
+                        case OpCode.GET_PROPERTY -> {
+                            final var name = (String)constants[readShort(code, ip)];
+                            ip += 2;
+                            _stack[_stackSize - 1] = getProperty(_stack[_stackSize - 1], name, chunk, opStart);
+                        }
+                        case OpCode.SET_PROPERTY -> {
+                            final var name = (String)constants[readShort(code, ip)];
+                            ip += 2;
+                            if (!(_stack[--_stackSize] instanceof JocksInstance instance)) {
+                                throw _exceptionFactory.createExceptionWithFileAndLine(
+                                        chunk.getFile(),
+                                        chunk.getLine(opStart),
+                                        "The left sub expression did not evaluate to an instance during '.' assignment expression.");
+                            }
+                            chunk.getInlineCache(opStart).assign(instance, name, _stack[_stackSize - 1]);
+                        }
+                        case OpCode.EQUAL,
+                             OpCode.NOT_EQUAL,
+                             OpCode.LESS_THAN,
+                             OpCode.LESS_THAN_OR_EQUAL,
+                             OpCode.MORE_THAN,
+                             OpCode.MORE_THAN_OR_EQUAL,
+                             OpCode.ADD,
+                             OpCode.SUB,
+                             OpCode.MUL,
+                             OpCode.DIV -> {
+                            final var rgt = _stack[--_stackSize];
+                            final var lft = _stack[_stackSize - 1];
+                            _stack[_stackSize - 1] = executeBinaryOperator(code[opStart], lft, rgt, chunk, opStart);
+                        }
+                        case OpCode.NOT,
+                             OpCode.UNARY_ADD,
+                             OpCode.UNARY_SUB -> {
+                            _stack[_stackSize - 1] = executeUnaryOperator(code[opStart], _stack[_stackSize - 1], chunk, opStart);
+                        }
+                        case OpCode.JUMP -> ip += 2 + readShort(code, ip);
+                        case OpCode.JUMP_IF_FALSE -> {
+                            final var condition = _stack[--_stackSize];
+                            if (condition == JocksBool.Falsey) {
+                                ip += 2 + readShort(code, ip);
+                            } else if (condition == JocksBool.Truthy) {
+                                ip += 4;
+                            } else {
+                                throw _exceptionFactory.createExceptionWithoutFileOrLine(
+                                        (String)constants[readShort(code, ip + 2)]);
+                            }
+                        }
+                        case OpCode.JUMP_IF_FALSE_OR_POP,
+                             OpCode.JUMP_IF_TRUE_OR_POP -> {
+                            final var isAnd = code[opStart] == OpCode.JUMP_IF_FALSE_OR_POP;
+                            final var lft = _stack[_stackSize - 1];
+                            if (!(lft instanceof JocksBool)) {
+                                throw _exceptionFactory.createExceptionWithFileAndLine(
+                                        chunk.getFile(),
+                                        chunk.getLine(opStart),
+                                        "Left sub expression of '%s' expression did not evaluate to type 'bool.",
+                                        isAnd ? "and" : "or");
+                            }
+                            if (lft == (isAnd ? JocksBool.Falsey : JocksBool.Truthy)) {
+                                ip += 2 + readShort(code, ip);
+                            } else {
+                                _stackSize--;
+                                ip += 2;
+                            }
+                        }
+                        case OpCode.CHECK_LOGICAL_RGT -> {
+                            final var operatorText = (String)constants[readShort(code, ip)];
+                            ip += 2;
+                            if (!(_stack[_stackSize - 1] instanceof JocksBool)) {
+                                throw _exceptionFactory.createExceptionWithFileAndLine(
+                                        chunk.getFile(),
+                                        chunk.getLine(opStart),
+                                        "Right sub expression of '%s' expression did not evaluate to type 'bool.",
+                                        operatorText);
+                            }
+                        }
+                        case OpCode.LOOP -> ip = ip + 2 - readShort(code, ip);
+                        case OpCode.CALL -> {
+                            final var argumentCount = code[ip++] & 0xff;
+                            frame.ip = ip;
+                            final var calleeSlot = _stackSize - argumentCount - 1;
+                            if (callValue(_stack[calleeSlot], calleeSlot, argumentCount, chunk, opStart)) {
+                                frame = _frames[_frameCount - 1];
+                                chunk = frame.closure.getPrototype().getChunk();
+                                code = chunk.getCode();
+                                constants = chunk.getConstants();
+                                ip = frame.ip;
+                            }
+                        }
+                        case OpCode.TAIL_CALL -> {
+                            final var argumentCount = code[ip++] & 0xff;
+                            frame.ip = ip;
+                            if (tailCall(_stackSize - argumentCount - 1, argumentCount, chunk, opStart)) {
+                                frame = _frames[_frameCount - 1];
+                                chunk = frame.closure.getPrototype().getChunk();
+                                code = chunk.getCode();
+                                constants = chunk.getConstants();
+                                ip = frame.ip;
+                            }
+                        }
+                        case OpCode.INVOKE -> {
+                            final var name = (String)constants[readShort(code, ip)];
+                            final var argumentCount = code[ip + 2] & 0xff;
+                            ip += 3;
+                            frame.ip = ip;
+                            if (invoke(name, argumentCount, chunk, opStart)) {
+                                frame = _frames[_frameCount - 1];
+                                chunk = frame.closure.getPrototype().getChunk();
+                                code = chunk.getCode();
+                                constants = chunk.getConstants();
+                                ip = frame.ip;
+                            }
+                        }
+                        case OpCode.NEW -> {
+                            final var identifier = (String)constants[readShort(code, ip)];
+                            final var argumentCount = code[ip + 2] & 0xff;
+                            ip += 3;
+                            frame.ip = ip;
+                            if (instantiate(identifier, argumentCount, chunk, opStart)) {
+                                frame = _frames[_frameCount - 1];
+                                chunk = frame.closure.getPrototype().getChunk();
+                                code = chunk.getCode();
+                                constants = chunk.getConstants();
+                                ip = frame.ip;
+                            }
+                        }
+                        case OpCode.CLOSURE -> {
+                            final var prototype = (FunctionPrototype)constants[readShort(code, ip)];
+                            ip += 2;
+                            final var closure = new Closure(prototype, this);
+                            final var upvalues = closure.getUpvalues();
+                            for (int i = 0; i < upvalues.length; i++) {
+                                final var isLocal = code[ip++] == 1;
+                                final var index = code[ip++] & 0xff;
+                                upvalues[i] = isLocal
+                                        ? captureUpvalue(frame.base + index)
+                                        : frame.closure.getUpvalues()[index];
+                            }
+                            _stack[_stackSize++] = closure;
+                        }
+                        case OpCode.CHECK_SUPERCLASS -> {
+                            final var superClassIdentifier = (String)constants[readShort(code, ip)];
+                            ip += 2;
+                            if (!(_stack[_stackSize - 1] instanceof JocksClass)) {
+                                throw _exceptionFactory.createExceptionWithFileAndLine(
+                                        chunk.getFile(),
+                                        chunk.getLine(opStart),
+                                        "The identifier '%s' is not a class and can not be derived from.",
+                                        superClassIdentifier);
+                            }
+                        }
+                        case OpCode.CLASS -> {
+                            final var identifier = (String)constants[readShort(code, ip)];
+                            final var methodCount = code[ip + 2] & 0xff;
+                            ip += 3;
+                            final var methods = new HashMap<String, JocksFunction>();
+                            final var methodsBase = _stackSize - methodCount;
+                            for (int i = 0; i < methodCount; i++) {
+                                final var methodName = (String)constants[readShort(code, ip)];
+                                ip += 2;
+                                methods.put(methodName, (JocksFunction)_stack[methodsBase + i]);
+                            }
+                            final var superClass = (JocksClass)_stack[methodsBase - 1];
+                            _stackSize = methodsBase;
+                            _stack[_stackSize++] = new JocksClass(identifier, superClass, methods);
+                        }
+                        case OpCode.RETURN -> {
+                            final var result = _stack[--_stackSize];
+                            closeUpvalues(frame.base);
+                            while (_handlerCount > 0 && _handlers[_handlerCount - 1]._frameIndex >= _frameCount - 1) {
+                                _handlerCount--;
+                            }
+                            if (frame.hasCallStackEntry) {
+                                _callStack.pop();
+                            }
+                            if (!frame.keepReceiver) {
+                                _stack[frame.resultSlot] = result;
+                            }
+                            _stackSize = frame.resultSlot + 1;
+                            frame.closure = null;
+                            _frameCount--;
+                            if (_frameCount == exitFrameCount) {
+                                return _stack[_stackSize - 1];
+                            }
+                            frame = _frames[_frameCount - 1];
+                            chunk = frame.closure.getPrototype().getChunk();
+                            code = chunk.getCode();
+                            constants = chunk.getConstants();
+                            ip = frame.ip;
+                        }
+                        case OpCode.TRY_BEGIN -> {
+                            if (_handlerCount == _handlers.length) {
+                                _handlers = Arrays.copyOf(_handlers, _handlerCount * 2);
+                            }
+                            if (_handlers[_handlerCount] == null) {
+                                _handlers[_handlerCount] = new ExceptionHandler();
+                            }
+                            final var handler = _handlers[_handlerCount++];
+                            handler._frameIndex = _frameCount - 1;
+                            handler._handlerIp = ip + 2 + readShort(code, ip);
+                            handler._stackSize = _stackSize;
+                            handler._callStackSize = _callStack.size();
+                            ip += 2;
+                        }
+                        case OpCode.TRY_END -> _handlerCount--;
+                        case OpCode.THROW -> throw new ThrowSignal(_stack[--_stackSize]);
+                        case OpCode.PRINT -> System.out.println(_stack[--_stackSize].str());
+                        case OpCode.ERROR -> throw _exceptionFactory.createExceptionWithoutFileOrLine(
+                                (String)constants[readShort(code, ip)]);
+                        default -> throw _exceptionFactory.createExceptionWithFileAndLine(
+                                chunk.getFile(),
+                                chunk.getLine(opStart),
+                                "Invalid op code '%d'.",
+                                code[opStart]);
+                    }
+                }
+            } catch (ThrowSignal signal) {
+                // Only handlers registered by this invocation of the dispatch loop may catch the
+                // thrown value, otherwise it continues propagating through Java land.
+                if (_handlerCount == 0 || _handlers[_handlerCount - 1]._frameIndex < exitFrameCount) {
+                    unwindTo(exitFrameCount, _frames[exitFrameCount].base);
+                    throw signal;
+                }
+
+                final var handler = _handlers[--_handlerCount];
+                while (_frameCount - 1 > handler._frameIndex) {
+                    if (_frames[_frameCount - 1].hasCallStackEntry) {
+                        _callStack.pop();
+                    }
+                    _frames[--_frameCount].closure = null;
+                }
+                closeUpvalues(handler._stackSize);
+                _callStack.truncate(handler._callStackSize);
+                _stackSize = handler._stackSize;
+                _stack[_stackSize++] = signal.getThrownValue();
+
+                frame = _frames[_frameCount - 1];
+                chunk = frame.closure.getPrototype().getChunk();
+                code = chunk.getCode();
+                constants = chunk.getConstants();
+                ip = handler._handlerIp;
+            }
+        }
+    }
+
+    private boolean callValue(JocksValue callee, int calleeSlot, int argumentCount, Chunk chunk, int opStart) {
+        if (!(callee instanceof JocksFunction function)) {
+            throw _exceptionFactory.createExceptionWithFileAndLine(
+                    chunk.getFile(),
+                    chunk.getLine(opStart),
+                    "Sub expression did not evaluate to a function which can be invoked.");
+        }
+
+        checkArity(function.getArity(), argumentCount, chunk, opStart);
+
+        // Bound methods are unwrapped, with the instance taking the place of the callee.
+        if (function instanceof BoundMethod boundMethod) {
+            _stack[calleeSlot] = boundMethod.getInstance();
+            return callFunction(boundMethod.getFunction(), calleeSlot, argumentCount + 1, calleeSlot, chunk, opStart);
+        }
+
+        return callFunction(function, calleeSlot + 1, argumentCount, calleeSlot, chunk, opStart);
+    }
+
+    // A tail call to a closure (or a method which is one) replaces the calling frame, so that a chain
+    // of them runs in constant stack, and the caller's call stack entry is replaced by the callee's.
+    // Any other call is made as usual, as are those from frames which must be returned to (those of
+    // constructors, which evaluate to their instance, and those without a call stack entry).
+    private boolean tailCall(int calleeSlot, int argumentCount, Chunk chunk, int opStart) {
+        final var frame = _frames[_frameCount - 1];
+        final var callee = _stack[calleeSlot];
+        final var function = callee instanceof BoundMethod boundMethod ? boundMethod.getFunction() : callee;
+        if (frame.keepReceiver || !frame.hasCallStackEntry || !(function instanceof Closure)) {
+            return callValue(callee, calleeSlot, argumentCount, chunk, opStart);
+        }
+
+        // Checked before the caller's frame is replaced, so that it's within the call stack of the error.
+        checkArity(((JocksFunction)callee).getArity(), argumentCount, chunk, opStart);
+
+        closeUpvalues(frame.base);
+        while (_handlerCount > 0 && _handlers[_handlerCount - 1]._frameIndex >= _frameCount - 1) {
+            _handlerCount--;
+        }
+        _callStack.pop();
+        final var resultSlot = frame.resultSlot;
+        System.arraycopy(_stack, calleeSlot, _stack, resultSlot, argumentCount + 1);
+        _stackSize = resultSlot + argumentCount + 1;
+        frame.closure = null;
+        _frameCount--;
+
+        return callValue(_stack[resultSlot], resultSlot, argumentCount, chunk, opStart);
+    }
+
+    private boolean invoke(String name, int argumentCount, Chunk chunk, int opStart) {
+        final var receiverSlot = _stackSize - argumentCount - 1;
+        final var receiver = _stack[receiverSlot];
+
+        if (receiver instanceof JocksInstance instance) {
+            final var inlineCache = chunk.getInlineCache(opStart);
+            final var index = inlineCache.lookup(instance, name);
+            if (index != -1 && inlineCache.getSlot(index) != -1) {
+                final var property = instance.getPropertyAt(inlineCache.getSlot(index));
+                _stack[receiverSlot] = property;
+                return callValue(property, receiverSlot, argumentCount, chunk, opStart);
+            }
+            if (index != -1) {
+                // Equivalent to calling the bound method, without needing to create it.
+                final var method = inlineCache.getMethod(index);
+                checkArity(method.getArity() - 1, argumentCount, chunk, opStart);
+                return callFunction(method, receiverSlot, argumentCount + 1, receiverSlot, chunk, opStart);
+            }
+        }
+
+        _stack[receiverSlot] = getProperty(receiver, name, chunk, opStart);
+        return callValue(_stack[receiverSlot], receiverSlot, argumentCount, chunk, opStart);
+    }
+
+    private boolean instantiate(String identifier, int argumentCount, Chunk chunk, int opStart) {
+        final var classSlot = _stackSize - argumentCount - 1;
+        if (!(_stack[classSlot] instanceof JocksClass jClass)) {
+            throw _exceptionFactory.createExceptionWithFileAndLine(
+                    chunk.getFile(),
+                    chunk.getLine(opStart),
+                    "The identifier '%s' is not a class from which a new instance can be instantiated.",
+                    identifier);
+        }
+
+        final var instance = jClass.createInstance();
+        final var initMethod = jClass.getInitMethod();
+        checkArity(initMethod.getArity(), argumentCount + 1, chunk, opStart);
+
+        // The instance takes the place of the class, as the leading parameter to '__init__'.
+        _stack[classSlot] = instance;
+        pushCallStackEntryInfo(initMethod.getName(), chunk, opStart);
+        if (initMethod instanceof Closure closure) {
+            pushFrame(closure, classSlot, classSlot, true, true);
+            return true;
+        }
+        callJavaLandFunction(initMethod, classSlot, argumentCount + 1, classSlot);
+        _stack[classSlot] = instance;
+        return false;
+    }
+
+    private boolean callFunction(JocksFunction function, int base, int argumentCount, int resultSlot, Chunk chunk, int opStart) {
+        pushCallStackEntryInfo(function.getName(), chunk, opStart);
+        if (function instanceof Closure closure) {
+            pushFrame(closure, base, resultSlot, false, true);
+            return true;
+        }
+        callJavaLandFunction(function, base, argumentCount, resultSlot);
+        return false;
+    }
+
+    private void callJavaLandFunction(JocksFunction function, int base, int argumentCount, int resultSlot) {
+        final var result = switch (argumentCount) {
+            case 0 -> function.call0();
+            case 1 -> function.call1(_stack[base]);
+            case 2 -> function.call2(_stack[base], _stack[base + 1]);
+            case 3 -> function.call3(_stack[base], _stack[base + 1], _stack[base + 2]);
+            default -> function.call(Arrays.copyOfRange(_stack, base, base + argumentCount));
+        };
+        _callStack.pop();
+        _stack[resultSlot] = result;
+        _stackSize = resultSlot + 1;
+    }
+
+    private void checkArity(int funcArity, int exprArity, Chunk chunk, int opStart) {
+        if (funcArity != exprArity) {
+            throw _exceptionFactory.createExceptionWithFileAndLine(
+                    chunk.getFile(),
+                    chunk.getLine(opStart),
+                    "Number of parameters (%d) did not match what was expected (%d).",
+                    funcArity,
+                    exprArity);
+        }
+    }
+
+    private JocksValue getProperty(JocksValue value, String name, Chunk chunk, int opStart) {
+        // The line of the name is stored on the operand bytes following the op code.
+        final var nameOffset = opStart + 1;
+        final var inlineCache = chunk.getInlineCache(opStart);
+
+        if (value instanceof JocksInstance instance) {
+            // Return the property if it exists, otherwise return the method if it exists.
+            final var index = inlineCache.lookup(instance, name);
+            if (index == -1) {
+                throw _exceptionFactory.createExceptionWithFileAndLine(
+                        chunk.getFile(),
+                        chunk.getLine(nameOffset),
+                        "Couldn't find property or method '" + name + "' on instance.");
+            }
+            final var slot = inlineCache.getSlot(index);
+            return slot != -1
+                    ? instance.getPropertyAt(slot)
+                    : new BoundMethod(instance, inlineCache.getMethod(index));
+        }
+
+        if (value instanceof JocksClass jClass) {
+            // Return the method if it exists.
+            final var index = inlineCache.lookup(jClass, name);
+            if (index == -1) {
+                throw _exceptionFactory.createExceptionWithFileAndLine(
+                        chunk.getFile(),
+                        chunk.getLine(nameOffset),
+                        "Couldn't find method '%s' on class '%s'.",
+                        name,
+                        jClass.getIdentifier());
+            }
+            return inlineCache.getMethod(index);
+        }
+
+        throw _exceptionFactory.createExceptionWithFileAndLine(
+                chunk.getFile(),
+                chunk.getLine(nameOffset),
+                "Left sub expression of '.' expression did not evaluate to an instance or class.");
+    }
+
+    private JocksValue executeBinaryOperator(byte opCode, JocksValue lft, JocksValue rgt, Chunk chunk, int opStart) {
+        final var operatorType = switch (opCode) {
+            case OpCode.EQUAL -> TokenType.EQUAL_EQUAL;
+            case OpCode.NOT_EQUAL -> TokenType.BANGS_EQUAL;
+            case OpCode.LESS_THAN -> TokenType.LESS_THAN;
+            case OpCode.LESS_THAN_OR_EQUAL -> TokenType.LESS_THAN_OR_EQUAL;
+            case OpCode.MORE_THAN -> TokenType.MORE_THAN;
+            case OpCode.MORE_THAN_OR_EQUAL -> TokenType.MORE_THAN_OR_EQUAL;
+            case OpCode.ADD -> TokenType.ADD;
+            case OpCode.SUB -> TokenType.SUB;
+            case OpCode.MUL -> TokenType.MUL;
+            default -> TokenType.DIV;
+        };
+        try {
+            // If a user defined operator overload is being called, then update the call stack
+            // entry info list so any errors triggered within will have good diagnostics
+            // messages for debugging.
+            if (lft instanceof JocksInstance instance) {
+                pushCallStackEntryInfo(
+                        instance.getJClass().getIdentifier(),
+                        JocksInstance.binaryOperatorTypeToMethodString(operatorType),
+                        chunk, opStart);
+            }
+            final var result = switch (operatorType) {
+                case TokenType.EQUAL_EQUAL -> lft.equal(rgt);
+                case TokenType.BANGS_EQUAL -> lft.notEqual(rgt);
+                case TokenType.LESS_THAN -> lft.lessThan(rgt);
+                case TokenType.LESS_THAN_OR_EQUAL -> lft.lessThanOrEqual(rgt);
+                case TokenType.MORE_THAN -> lft.moreThan(rgt);
+                case TokenType.MORE_THAN_OR_EQUAL -> lft.moreThanOrEqual(rgt);
+                case TokenType.ADD -> lft.add(rgt);
+                case TokenType.SUB -> lft.sub(rgt);
+                case TokenType.MUL -> lft.mul(rgt);
+                default -> lft.div(rgt);
+            };
+            if (lft instanceof JocksInstance) {
+                _callStack.pop();
+            }
+            return result;
+        } catch (UnsupportedOperationException ex) {
+            // Add localization and re-throw.
+            throw _exceptionFactory.createExceptionWithFileAndLine(chunk.getFile(), chunk.getLine(opStart), ex.getMessage());
+        }
+    }
+
+    private JocksValue executeUnaryOperator(byte opCode, JocksValue value, Chunk chunk, int opStart) {
+        final var operatorType = switch (opCode) {
+            case OpCode.NOT -> TokenType.BANGS;
+            case OpCode.UNARY_ADD -> TokenType.ADD;
+            default -> TokenType.SUB;
+        };
+        try {
+            // See executeBinaryOperator.
+            if (value instanceof JocksInstance instance) {
+                pushCallStackEntryInfo(
+                        instance.getJClass().getIdentifier(),
+                        JocksInstance.unaryOperatorTypeToMethodString(operatorType),
+                        chunk, opStart);
+            }
+            final var result = switch (operatorType) {
+                case TokenType.BANGS -> value.not();
+                case TokenType.ADD -> value.add();
+                default -> value.sub();
+            };
+            if (value instanceof JocksInstance) {
+                _callStack.pop();
+            }
+            return result;
+        } catch (UnsupportedOperationException ex) {
+            // Add localization and re-throw.
+            throw _exceptionFactory.createExceptionWithFileAndLine(chunk.getFile(), chunk.getLine(opStart), ex.getMessage());
+        }
+    }
+
+    private void pushFrame(Closure closure, int base, int resultSlot, boolean keepReceiver, boolean hasCallStackEntry) {
+        if (_frameCount == _frames.length) {
+            _frames = Arrays.copyOf(_frames, _frameCount * 2);
+        }
+        if (_frames[_frameCount] == null) {
+            _frames[_frameCount] = new CallFrame();
+        }
+        ensureStackCapacity(closure.getPrototype().getMaxStackSize());
+
+        final var frame = _frames[_frameCount++];
+        frame.closure = closure;
+        frame.ip = 0;
+        frame.base = base;
+        frame.resultSlot = resultSlot;
+        frame.keepReceiver = keepReceiver;
+        frame.hasCallStackEntry = hasCallStackEntry;
+    }
+
+    private void unwindTo(int frameCount, int stackSize) {
+        while (_frameCount > frameCount) {
+            if (_frames[_frameCount - 1].hasCallStackEntry) {
+                _callStack.pop();
+            }
+            _frames[--_frameCount].closure = null;
+        }
+        closeUpvalues(stackSize);
+        _stackSize = stackSize;
+    }
+
+    private Upvalue captureUpvalue(int slot) {
+        // Open upvalues are kept in a list sorted by descending stack slot, so that
+        // closures capturing the same variable share the same upvalue.
+        Upvalue previous = null;
+        var upvalue = _openUpvalues;
+        while (upvalue != null && upvalue.getSlot() > slot) {
+            previous = upvalue;
+            upvalue = upvalue.getNext();
+        }
+        if (upvalue != null && upvalue.getSlot() == slot) {
+            return upvalue;
+        }
+
+        final var created = new Upvalue(slot, upvalue);
+        if (previous == null) {
+            _openUpvalues = created;
+        } else {
+            previous.setNext(created);
+        }
+        return created;
+    }
+
+    private void closeUpvalues(int lastSlot) {
+        while (_openUpvalues != null && _openUpvalues.getSlot() >= lastSlot) {
+            _openUpvalues.close(_stack);
+            _openUpvalues = _openUpvalues.getNext();
+        }
+    }
+
+    private void ensureStackCapacity(int additional) {
+        if (_stackSize + additional >= _stack.length) {
+            _stack = Arrays.copyOf(_stack, Math.max(_stack.length * 2, _stackSize + additional + 1));
+        }
+    }
+
+    private void pushCallStackEntryInfo(String name, Chunk chunk, int opStart) {
+        checkCallDepth(chunk, opStart);
+        _callStack.push(name, chunk.getFile(), chunk.getLine(opStart));
+    }
+
+    private void pushCallStackEntryInfo(String classIdentifier, String methodName, Chunk chunk, int opStart) {
+        checkCallDepth(chunk, opStart);
+        _callStack.push(classIdentifier, methodName, chunk.getFile(), chunk.getLine(opStart));
+    }
+
+    private void checkCallDepth(Chunk chunk, int opStart) {
+        if (_callStack.size() >= _maxCallDepth) {
+            throw _exceptionFactory.createExceptionWithFileAndLine(
+                    chunk.getFile(),
+                    chunk.getLine(opStart),
+                    "Maximum call depth (%d) exceeded.",
+                    _maxCallDepth);
+        }
+    }
+
+    private void defineGlobal(String identifier, JocksValue value) {
+        _globals = Arrays.copyOf(_globals, _globals.length + 1);
+        _globals[_globals.length - 1] = value;
+        _globalIdentifiers.add(identifier);
+    }
+
+    private static int readShort(byte[] code, int offset) {
+        return ((code[offset] & 0xff) << 8) | (code[offset + 1] & 0xff);
+    }
+
+    private final int _maxCallDepth;
+    private final CallStack _callStack = new CallStack();
+    private final ExceptionFactory _exceptionFactory = new ExceptionFactory(_callStack);
+    private final List<String> _globalIdentifiers = new ArrayList<>();
+    private JocksValue[] _globals = new JocksValue[0];
+    private JocksValue[] _stack = new JocksValue[1024];
+    private int _stackSize = 0;
+    private CallFrame[] _frames = new CallFrame[64];
+    private int _frameCount = 0;
+    private ExceptionHandler[] _handlers = new ExceptionHandler[16];
+    private int _handlerCount = 0;
+    private Upvalue _openUpvalues = null;
+    private boolean _isThrowing = false;
+}
@@ -20,6 +20,12 @@ class Test:
     def get_result_file_path(self):
         return self.test_file_path.with_suffix('.result')
 
+    def get_profile_file_path(self):
+        return self.test_file_path.with_suffix('.source.profile')
+
+    def get_cache_file_path(self):
+        return self.test_file_path.with_suffix('.source.ast')
+
 
 def create_html_row_for_test(test):
     if test.passed:
@@ -131,29 +137,91 @@ def create_and_view_html_results(tests):
     write_to_file(html_file_path, html)
     webbrowser.open(html_file_path)
 
-def extract_source_and_expect(test_file_path):
+# The expected output may be followed by sections headed '---* EXPECT <jocks-arg> *---', which give the output
+# expected instead when run with that argument (e.g. when a limit of the bytecode VM is exceeded).
+def extract_source_and_expect(test_file_path, jocks_args):
         source = ''
-        expect = ''
+        expects = {}
         with open(test_file_path, 'r') as test_file:
-            hasReadExpect = False
+            expect_key = None
             for line in test_file:
-                if line == '---* EXPECT *---\n':
-                    hasReadExpect = True
+                if line.startswith('---* EXPECT') and line.endswith(' *---\n'):
+                    expect_key = line[len('---* EXPECT'):-len(' *---\n')].strip()
+                    expects[expect_key] = ''
                     continue
-                if not hasReadExpect:
+                if expect_key is None:
                     source += line
                 else:
-                    expect += line
+                    expects[expect_key] += line
+        expect = next((expects[arg] for arg in jocks_args if arg in expects), expects.get('', ''))
         return (source, expect)
 
-def run_jocks_and_get_output(source_file_path):
+def run_jocks_and_get_output(source_file_path, jocks_args):
         jvm = 'C:\\Users\\angus\\.jdks\\openjdk-24.0.1\\bin\\java.exe' # Requires changing if JDK moves
         return subprocess.run(
-            [jvm, '-cp', get_cwd() / '../target/classes/', 'com.colossalg.Jocks', source_file_path],
+            [jvm, '-cp', get_cwd() / '../target/classes/', 'com.colossalg.Jocks', source_file_path] + jocks_args,
             capture_output=True,
             text=True
         ).stdout
 
+# The profile is first written for an edited copy of the source, so is stale once the source is restored,
+# and must be ignored and replaced by the next run. The run after that uses the replacement.
+def run_jocks_with_profiles_and_get_output(test, source, jocks_args):
+    write_to_file(test.get_source_file_path(), 'for (var stale = 0; stale < 2; stale = stale + 1) {}\n' + source)
+    run_jocks_and_get_output(test.get_source_file_path(), jocks_args)
+    stale_profile = read_file_if_exists(test.get_profile_file_path())
+    write_to_file(test.get_source_file_path(), source)
+    result_with_stale_profile = run_jocks_and_get_output(test.get_source_file_path(), jocks_args)
+    if stale_profile is not None and read_file_if_exists(test.get_profile_file_path()) == stale_profile:
+        return result_with_stale_profile + 'ERROR - The stale profile was not replaced.\n'
+    result_with_profile = run_jocks_and_get_output(test.get_source_file_path(), jocks_args)
+    if result_with_profile != result_with_stale_profile:
+        return result_with_profile
+    return result_with_stale_profile
+
+# As for profiles, the cache is first written for an edited copy of the source, so is stale once the source is
+# restored, and must be ignored and replaced by the next run. The replacement is then corrupted, so must be ignored
+# and replaced again. The run after that must read the cache, not replace it. No cache is written for a source with
+# errors, in which case only the first and last runs are compared.
+def run_jocks_with_caches_and_get_output(test, source, jocks_args):
+    write_to_file(test.get_source_file_path(), 'print "stale";\n' + source)
+    run_jocks_and_get_output(test.get_source_file_path(), jocks_args)
+    stale_cache = read_binary_file_if_exists(test.get_cache_file_path())
+    write_to_file(test.get_source_file_path(), source)
+    result_with_stale_cache = run_jocks_and_get_output(test.get_source_file_path(), jocks_args)
+    cache = read_binary_file_if_exists(test.get_cache_file_path())
+    if stale_cache is not None and cache == stale_cache:
+        return result_with_stale_cache + 'ERROR - The stale cache was not replaced.\n'
+    if cache is not None and stale_cache is not None:
+        corrupted_cache = corrupt_cache(cache, stale_cache)
+        write_binary_to_file(test.get_cache_file_path(), corrupted_cache)
+        result_with_corrupted_cache = run_jocks_and_get_output(test.get_source_file_path(), jocks_args)
+        if result_with_corrupted_cache != result_with_stale_cache:
+            return result_with_corrupted_cache
+        if read_binary_file_if_exists(test.get_cache_file_path()) != cache:
+            return result_with_corrupted_cache + 'ERROR - The corrupted cache was not replaced.\n'
+    cache_modified_time = get_modified_time_if_exists(test.get_cache_file_path())
+    result_with_cache = run_jocks_and_get_output(test.get_source_file_path(), jocks_args)
+    if result_with_cache != result_with_stale_cache:
+        return result_with_cache
+    if get_modified_time_if_exists(test.get_cache_file_path()) != cache_modified_time:
+        return result_with_cache + 'ERROR - The cache was not read.\n'
+    return result_with_cache
+
+# The cache starts with the path and hash of the source (each as a Java modified UTF-8 string, prefixed by its
+# length in two bytes), then the length of the statements (four bytes) and their checksum (eight bytes), then the
+# statements (see AstCache). The corrupted cache keeps the header and checksum of the cache, but has the statements
+# of the stale cache, which read without error, so only the checksum shows them to be corrupted.
+def corrupt_cache(cache, stale_cache):
+    def split(cache):
+        offset = 0
+        for _ in range(2):
+            offset += 2 + int.from_bytes(cache[offset:offset + 2], 'big')
+        return (cache[:offset], cache[offset + 4:offset + 12], cache[offset + 12:])
+    header, checksum, _ = split(cache)
+    _, _, stale_statements = split(stale_cache)
+    return header + len(stale_statements).to_bytes(4, 'big') + checksum + stale_statements
+
 def get_cwd():
     return pathlib.Path(__file__).resolve().parent
 
@@ -161,23 +229,51 @@ def write_to_file(file_path, content):
     with open(file_path, 'w') as file:
         file.write(content)
 
+def read_file_if_exists(file_path):
+    if not os.path.exists(file_path):
+        return None
+    with open(file_path, 'r') as file:
+        return file.read()
+
+def write_binary_to_file(file_path, content):
+    with open(file_path, 'wb') as file:
+        file.write(content)
+
+def read_binary_file_if_exists(file_path):
+    if not os.path.exists(file_path):
+        return None
+    with open(file_path, 'rb') as file:
+        return file.read()
+
+def get_modified_time_if_exists(file_path):
+    if not os.path.exists(file_path):
+        return None
+    return os.stat(file_path).st_mtime_ns
+
 def remove_files_if_exist(file_paths):
     for file_path in file_paths:
         if os.path.exists(file_path):
             os.remove(file_path)
 
-def run_tests():
+def run_tests(jocks_args, is_profiled=False, is_cached=False):
     tests = [Test(test_file_path) for test_file_path in get_cwd().glob('*.test')]
     for test in tests:
-        source, expect = extract_source_and_expect(test.test_file_path)
-        write_to_file(test.get_source_file_path(), source)
-        result = run_jocks_and_get_output(test.get_source_file_path())
+        source, expect = extract_source_and_expect(test.test_file_path, jocks_args)
+        if is_profiled:
+            result = run_jocks_with_profiles_and_get_output(test, source, jocks_args)
+        elif is_cached:
+            result = run_jocks_with_caches_and_get_output(test, source, jocks_args)
+        else:
+            write_to_file(test.get_source_file_path(), source)
+            result = run_jocks_and_get_output(test.get_source_file_path(), jocks_args)
         if result == expect:
             test.passed = True
             remove_files_if_exist([
                 test.get_source_file_path(),
                 test.get_expect_file_path(),
-                test.get_result_file_path()
+                test.get_result_file_path(),
+                test.get_profile_file_path(),
+                test.get_cache_file_path()
             ])
         else:
             test.passed = False
@@ -190,16 +286,31 @@ def clean():
         list(get_cwd().glob('*.html')) +
         list(get_cwd().glob('*.source')) +
         list(get_cwd().glob('*.expect')) +
-        list(get_cwd().glob('*.result'))
+        list(get_cwd().glob('*.result')) +
+        list(get_cwd().glob('*.profile')) +
+        list(get_cwd().glob('*.ast'))
     )
     remove_files_if_exist(to_remove)
 
 if __name__ == '__main__':
     match sys.argv[1:]:
         case []:
-            run_tests()
+            run_tests([])
         case ['--clean']:
             clean()
+        case ['--vm']:
+            run_tests(['--vm'])
+        case ['--compiled']:
+            run_tests(['--compiled'])
+        case [jit_threshold] if jit_threshold.startswith('--jit-threshold='):
+            run_tests([jit_threshold])
+        case ['--profile']:
+            run_tests(['--profile', '--jit-threshold=1'], is_profiled=True)
+        case ['--cache']:
+            run_tests(['--cache'], is_cached=True)
         case _:
             print('USAGE:')
-            print('    python test_runner.py [--clean]')
\ No newline at end of file
+            print('    python test_runner.py [--clean | --vm | --compiled | --jit-threshold=<n> | --profile | --cache]')
+            print('    --jit-threshold=1 runs the tests with functions and top level loops compiled to JVM bytecode as soon as they are run.')
+            print('    --profile runs each test with a stale profile, which must be replaced, then with its replacement.')
+            print('    --cache runs each test with a stale cache, then a corrupted cache, each of which must be replaced, then with the cache.')
\ No newline at end of file